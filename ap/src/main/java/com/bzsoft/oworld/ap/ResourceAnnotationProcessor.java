@@ -2,7 +2,9 @@ package com.bzsoft.oworld.ap;
 
 import java.awt.Color;
 import java.awt.Font;
+import java.io.BufferedReader;
 import java.io.PrintWriter;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
@@ -16,15 +18,26 @@ import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
 import javax.tools.Diagnostic;
+import javax.tools.FileObject;
 import javax.tools.JavaFileObject;
+import javax.tools.StandardLocation;
 
 import com.bzsoft.oworld.ap.util.AppInfo;
+import com.bzsoft.oworld.ap.util.CharacterTables;
+import com.bzsoft.oworld.ap.util.PerfectHash;
 import com.bzsoft.oworld.ap.util.ResourceUtil;
 
 @SupportedAnnotationTypes(value = "com.bzsoft.oworld.ap.ResourceProcessable")
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
 public final class ResourceAnnotationProcessor extends AbstractProcessor {
 
+	private static final String HASH_HEADER = "// inputs-sha256: ";
+
+	/** The generator itself is an input, a new version must regenerate. */
+	private static final List<String> GENERATOR_CLASSES = Arrays.asList(
+			"com/bzsoft/oworld/ap/ResourceAnnotationProcessor.class", "com/bzsoft/oworld/ap/util/ResourceUtil.class",
+			"com/bzsoft/oworld/ap/util/PerfectHash.class", "com/bzsoft/oworld/ap/util/CharacterTables.class");
+
 	public ResourceAnnotationProcessor() {
 		//
 	}
@@ -53,11 +66,19 @@ public final class ResourceAnnotationProcessor extends AbstractProcessor {
 				final String charUrl = appInfo.getCharsUrl();
 				msg.printMessage(Diagnostic.Kind.NOTE,
 						ResourceProcessable.class.getSimpleName() + " annotation found.");
+				final List<String> inputs = ResourceUtil.listInputs(appUrl, appInfo);
+				inputs.addAll(GENERATOR_CLASSES);
+				final String inputHash = ResourceUtil.hashResources(inputs);
+				if (inputHash.equals(readInputHash(processingEnv, className))) {
+					msg.printMessage(Diagnostic.Kind.NOTE, className + " is up to date.");
+					return true;
+				}
 				final Object[][] colors = ResourceUtil.parseProperties(colorUrl);
 				final Object[][] fonts = ResourceUtil.parseProperties(fontUrl);
 				final Object[][] resources = ResourceUtil.parseProperties(resourceUrls);
 				final Object[][] chars = ResourceUtil.parseProperties(charUrl);
-				writeNamingFile(className, processingEnv, colors, fonts, null, resources, chars);
+				final CharacterTables charTables = loadCharacterTables(chars);
+				writeNamingFile(className, processingEnv, inputHash, colors, fonts, null, resources, chars, charTables);
 			} catch (final Exception e) {
 				e.printStackTrace();
 				msg.printMessage(Diagnostic.Kind.ERROR,
@@ -70,6 +91,49 @@ public final class ResourceAnnotationProcessor extends AbstractProcessor {
 		return true;
 	}
 
+	/**
+	 * Reads the input hash written in the header of a previously generated
+	 * class, null when there is none.
+	 */
+	private static final String readInputHash(ProcessingEnvironment processingEnv, String className) {
+		final int lastDot = className.lastIndexOf('.');
+		final String packageName = lastDot > 0 ? className.substring(0, lastDot) : "";
+		final String fileName = className.substring(lastDot + 1) + ".java";
+		try {
+			final FileObject fo = processingEnv.getFiler().getResource(StandardLocation.SOURCE_OUTPUT, packageName,
+					fileName);
+			try (BufferedReader br = new BufferedReader(fo.openReader(true))) {
+				final String line = br.readLine();
+				return line != null && line.startsWith(HASH_HEADER) ? line.substring(HASH_HEADER.length()).trim()
+						: null;
+			}
+		} catch (final Exception e) {
+			return null;
+		}
+	}
+
+	private static final String findValue(Object[][] props, String name) {
+		if (props != null) {
+			for (final Object[] p : props) {
+				if (name.equals(p[0])) {
+					return (String) p[1];
+				}
+			}
+		}
+		return null;
+	}
+
+	private static final CharacterTables loadCharacterTables(Object[][] chars) throws Exception {
+		final String imgBasePath = findValue(chars, "imgbasepath");
+		final String characters = findValue(chars, "characters");
+		final String mdFile = findValue(chars, "characterImgMdFile");
+		final String propFile = findValue(chars, "characterImgPropFile");
+		if (imgBasePath == null || characters == null || mdFile == null || propFile == null) {
+			return null;
+		}
+		return ResourceUtil.loadCharacterTables(imgBasePath, characters, mdFile, propFile);
+	}
+
 	private static final Color parseColor(String c) throws Exception {
 		return new Color(Integer.valueOf(c.substring(1, 3), 16), Integer.valueOf(c.substring(3, 5), 16),
 				Integer.valueOf(c.substring(5, 7), 16));
@@ -83,9 +147,10 @@ public final class ResourceAnnotationProcessor extends AbstractProcessor {
 		return new Font(name, style, size);
 	}
 
-	private static void writeNamingFile(String className, ProcessingEnvironment processingEnv, Object[][] colors,
-			final Object[][] fonts, String i18nUrl, final Object[][] resources, final Object[][] chars)
-			throws Exception {
+	private static void writeNamingFile(String className, ProcessingEnvironment processingEnv, String inputHash,
+			Object[][] colors,
+			final Object[][] fonts, String i18nUrl, final Object[][] resources, final Object[][] chars,
+			final CharacterTables charTables) throws Exception {
 		String simpleClassName;
 		String packageName = null;
 		{
@@ -98,6 +163,8 @@ public final class ResourceAnnotationProcessor extends AbstractProcessor {
 
 		final JavaFileObject builderFile = processingEnv.getFiler().createSourceFile(className);
 		try (PrintWriter out = new PrintWriter(builderFile.openWriter())) {
+			out.print(HASH_HEADER);
+			out.println(inputHash);
 			if (packageName != null) {
 				out.print("package ");
 				out.print(packageName);
@@ -139,6 +206,7 @@ public final class ResourceAnnotationProcessor extends AbstractProcessor {
 				}
 				out.println(" };");
 				out.println(" public static final java.awt.Color get(int color) { return colors[color];}");
+				writeLookup(out, "id", "hash", null, names(colors));
 			}
 			out.println(" }");
 
@@ -170,6 +238,7 @@ public final class ResourceAnnotationProcessor extends AbstractProcessor {
 				}
 				out.println(" };");
 				out.println(" public static final java.awt.Font get(int font) { return fonts[font];}");
+				writeLookup(out, "id", "hash", null, names(fonts));
 			}
 			out.println(" }");
 
@@ -200,6 +269,7 @@ public final class ResourceAnnotationProcessor extends AbstractProcessor {
 				}
 				out.println(" };");
 				out.println(" public static final String get(int resource) { return resources[resource];}");
+				writeLookup(out, "id", "hash", null, names(resources));
 			}
 			out.println(" }");
 			// characters
@@ -232,10 +302,132 @@ public final class ResourceAnnotationProcessor extends AbstractProcessor {
 				}
 				out.println(" };");
 				out.println(" public static final String get(int character) { return charinfo[character];}");
+				writeLookup(out, "id", "hash", null, names(chars));
+			}
+			if (charTables != null) {
+				writeCharacterTables(out, charTables);
+				writeLookup(out, "characterId", "character", "characterNames", charTables.getCharacters().toArray(new String[0]));
 			}
 			out.println(" }");
+			writeHash(out);
 			out.println(" }");
 		}
 	}
 
+	private static String[] names(Object[][] props) {
+		final String[] names = new String[props.length];
+		for (int i = 0; i < props.length; i++) {
+			names[i] = (String) props[i][0];
+		}
+		return names;
+	}
+
+	/**
+	 * Writes a name to id method backed by a minimal perfect hash, returning -1
+	 * for unknown names. Ids are the positions in keys. When namesField is null
+	 * the keys are written to a new array, otherwise that field must already
+	 * hold them.
+	 */
+	private static void writeLookup(PrintWriter out, String method, String prefix, String namesField,
+			String[] keys) {
+		final PerfectHash ph = PerfectHash.build(Arrays.asList(keys));
+		if (namesField == null) {
+			namesField = prefix + "Names";
+			writeStringArray(out, namesField, keys);
+		}
+		writeIntArray(out, prefix + "Seeds", ph.getSeeds());
+		writeIntArray(out, prefix + "Slots", ph.getSlots());
+		out.println(" public static final int " + method + "(String name) { return lookup(name, " + namesField + ", "
+				+ prefix + "Seeds, " + prefix + "Slots);}");
+	}
+
+	/** Copy of {@link PerfectHash#hash(String, int)} and its lookup. */
+	private static void writeHash(PrintWriter out) {
+		out.println();
+		out.println("private static int hash(String s, int seed) {");
+		out.println(" int h = 0x811c9dc5 ^ (seed * 0x9e3779b9);");
+		out.println(" for (int i = 0; i < s.length(); i++) {");
+		out.println("  h = (h ^ s.charAt(i)) * 0x01000193;");
+		out.println(" }");
+		out.println(" h ^= h >>> 16;");
+		out.println(" h *= 0x85ebca6b;");
+		out.println(" h ^= h >>> 13;");
+		out.println(" return h;");
+		out.println(" }");
+		out.println();
+		out.println("private static int lookup(String name, String[] names, int[] seeds, int[] slots) {");
+		out.println(" final int n = seeds.length;");
+		out.println(" if (n == 0 || name == null) {");
+		out.println("  return -1;");
+		out.println(" }");
+		out.println(" final int d = seeds[(hash(name, 0) & 0x7fffffff) % n];");
+		out.println(" final int id = slots[d < 0 ? -d - 1 : (hash(name, d) & 0x7fffffff) % n];");
+		out.println(" return names[id].equals(name) ? id : -1;");
+		out.println(" }");
+	}
+
+	private static void writeCharacterTables(PrintWriter out, CharacterTables t) {
+		out.println(" public static final int DIRECTIONS=" + t.getDirections().size() + ";");
+		writeStringArray(out, "characterNames", t.getCharacters().toArray(new String[0]));
+		writeStringArray(out, "stateNames", t.getStates().toArray(new String[0]));
+		writeIntArray(out, "characterFirstFrame", t.getCharacterFirstFrame());
+		writeIntArray(out, "clipFirstFrame", t.getClipFirstFrame());
+		writeIntArray(out, "clipFrameCount", t.getClipFrameCount());
+		writeIntArray(out, "frameDx", t.getFrameDx());
+		writeIntArray(out, "frameDy", t.getFrameDy());
+		writeStringArray(out, "frameUrls", t.getFrameUrls());
+		writeIntArray(out, "frameImage", t.getFrameImage());
+		out.println(" public static final int characterCount() { return characterNames.length;}");
+		out.println(" public static final String characterName(int character) { return characterNames[character];}");
+		out.println(" public static final int stateCount() { return stateNames.length;}");
+		out.println(" public static final String stateName(int state) { return stateNames[state];}");
+		out.println(" public static final int frameCount() { return frameUrls.length;}");
+		out.println(
+				" public static final int characterFirstFrame(int character) { return characterFirstFrame[character];}");
+		out.println(
+				" public static final int characterFrameCount(int character) { return characterFirstFrame[character + 1] - characterFirstFrame[character];}");
+		out.println(
+				" public static final int clip(int character, int state, int direction) { return (character * stateNames.length + state) * DIRECTIONS + direction;}");
+		out.println(" public static final int clipFirstFrame(int clip) { return clipFirstFrame[clip];}");
+		out.println(" public static final int clipFrameCount(int clip) { return clipFrameCount[clip];}");
+		out.println(" public static final int frameDx(int frame) { return frameDx[frame];}");
+		out.println(" public static final int frameDy(int frame) { return frameDy[frame];}");
+		out.println(" public static final String frameUrl(int frame) { return frameUrls[frame];}");
+		out.println(" public static final int frameImage(int frame) { return frameImage[frame];}");
+	}
+
+	private static void writeIntArray(PrintWriter out, String name, int[] values) {
+		out.print("private static final int[] ");
+		out.print(name);
+		out.print(" = new int[]{");
+		for (int i = 0; i < values.length; i++) {
+			if (i % 32 == 0) {
+				out.println();
+			}
+			out.print(values[i]);
+			if (i < values.length - 1) {
+				out.print(',');
+			}
+		}
+		out.println();
+		out.println(" };");
+	}
+
+	private static void writeStringArray(PrintWriter out, String name, String[] values) {
+		out.print("private static final String[] ");
+		out.print(name);
+		out.println(" = new String[]{");
+		for (int i = 0; i < values.length; i++) {
+			out.print('"');
+			out.print(values[i].replace("\\", "\\\\").replace("\"", "\\\""));
+			out.print('"');
+			if (i < values.length - 1) {
+				out.println(',');
+			} else {
+				out.println();
+			}
+		}
+		out.println(" };");
+	}
+
 }
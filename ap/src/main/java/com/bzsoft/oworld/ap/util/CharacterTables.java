@@ -0,0 +1,93 @@
+package com.bzsoft.oworld.ap.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Character animation metadata flattened into primitive tables, ready to be
+ * written as static arrays.
+ * <p>
+ * Clips are indexed by ((character * states) + state) * directions +
+ * direction. Frames are numbered globally, the frames of a character are
+ * contiguous. Frames repeating the image of an earlier frame, see
+ * {@link #getFrameImage()}, share its url.
+ */
+public final class CharacterTables {
+
+	private final List<String> characters;
+	private final List<String> states;
+	private final List<String> directions;
+	private final int[] characterFirstFrame;
+	private final int[] clipFirstFrame;
+	private final int[] clipFrameCount;
+	private final int[] frameDx;
+	private final int[] frameDy;
+	private final String[] frameUrls;
+	private final int[] frameImage;
+
+	public CharacterTables(List<String> characters, List<String> states, List<String> directions,
+			int[] characterFirstFrame, int[] clipFirstFrame, int[] clipFrameCount, int[] frameDx, int[] frameDy,
+			String[] frameUrls) {
+		this.characters = characters;
+		this.states = states;
+		this.directions = directions;
+		this.characterFirstFrame = characterFirstFrame;
+		this.clipFirstFrame = clipFirstFrame;
+		this.clipFrameCount = clipFrameCount;
+		this.frameDx = frameDx;
+		this.frameDy = frameDy;
+		this.frameUrls = frameUrls;
+		this.frameImage = new int[frameUrls.length];
+		final Map<String, Integer> first = new HashMap<>();
+		for (int i = 0; i < frameUrls.length; i++) {
+			final Integer f = first.putIfAbsent(frameUrls[i], i);
+			frameImage[i] = f == null ? i : f;
+		}
+	}
+
+	public List<String> getCharacters() {
+		return characters;
+	}
+
+	public List<String> getStates() {
+		return states;
+	}
+
+	public List<String> getDirections() {
+		return directions;
+	}
+
+	public int[] getCharacterFirstFrame() {
+		return characterFirstFrame;
+	}
+
+	public int[] getClipFirstFrame() {
+		return clipFirstFrame;
+	}
+
+	public int[] getClipFrameCount() {
+		return clipFrameCount;
+	}
+
+	public int[] getFrameDx() {
+		return frameDx;
+	}
+
+	public int[] getFrameDy() {
+		return frameDy;
+	}
+
+	public String[] getFrameUrls() {
+		return frameUrls;
+	}
+
+	/** For every frame, the first frame with the same url. */
+	public int[] getFrameImage() {
+		return frameImage;
+	}
+
+	public int getFrameCount() {
+		return frameUrls.length;
+	}
+}
@@ -0,0 +1,37 @@
+package com.bzsoft.oworld.ap.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Properties remembering the order in which keys were loaded, so generated
+ * code does not depend on the hash order of {@link Properties}.
+ */
+final class OrderedProperties extends Properties {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Set<String> keys = new LinkedHashSet<>();
+
+	@Override
+	public synchronized Object put(Object key, Object value) {
+		if (key instanceof String) {
+			keys.add((String) key);
+		}
+		return super.put(key, value);
+	}
+
+	@Override
+	public synchronized Object remove(Object key) {
+		keys.remove(key);
+		return super.remove(key);
+	}
+
+	/** String keys in load order. */
+	public synchronized List<String> orderedNames() {
+		return new ArrayList<>(keys);
+	}
+}
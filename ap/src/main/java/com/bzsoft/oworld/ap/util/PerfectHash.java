@@ -0,0 +1,145 @@
+package com.bzsoft.oworld.ap.util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Minimal perfect hash over a fixed key set, built with hash and displace.
+ * <p>
+ * Keys are first spread into buckets with seed 0. Buckets are placed from the
+ * largest to the smallest, each one gets the first seed that sends all its keys
+ * to free slots. Buckets with a single key store the slot directly, encoded as
+ * -slot - 1. A lookup is two hashes and one comparison:
+ *
+ * <pre>
+ * d = seeds[bucket(hash(key, 0))];
+ * slot = d &lt; 0 ? -d - 1 : bucket(hash(key, d));
+ * </pre>
+ *
+ * {@link #hash(String, int)} is copied verbatim into the generated sources, both
+ * must be kept in sync.
+ */
+public final class PerfectHash {
+
+	private static final int MAXSEED = 1 << 20;
+
+	private final int[] seeds;
+	private final int[] slots;
+
+	private PerfectHash(int[] seeds, int[] slots) {
+		this.seeds = seeds;
+		this.slots = slots;
+	}
+
+	/** FNV-1a over the chars of s, seeded and finalized with a murmur mix. */
+	public static final int hash(String s, int seed) {
+		int h = 0x811c9dc5 ^ (seed * 0x9e3779b9);
+		for (int i = 0; i < s.length(); i++) {
+			h = (h ^ s.charAt(i)) * 0x01000193;
+		}
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h;
+	}
+
+	private static final int index(int hash, int n) {
+		return (hash & 0x7fffffff) % n;
+	}
+
+	/**
+	 * Builds the hash for distinct keys. The slot of key i is stored so that
+	 * {@link #getSlots()}[slot] == i.
+	 */
+	public static final PerfectHash build(List<String> keys) {
+		final int n = keys.size();
+		if (new HashSet<>(keys).size() != n) {
+			throw new IllegalArgumentException("Duplicated keys");
+		}
+		final int[] seeds = new int[n];
+		final int[] slots = new int[n];
+		Arrays.fill(slots, -1);
+		if (n == 0) {
+			return new PerfectHash(seeds, slots);
+		}
+		final int[][] buckets = new int[n][];
+		final int[] sizes = new int[n];
+		for (int i = 0; i < n; i++) {
+			sizes[index(hash(keys.get(i), 0), n)]++;
+		}
+		for (int b = 0; b < n; b++) {
+			buckets[b] = new int[sizes[b]];
+			sizes[b] = 0;
+		}
+		for (int i = 0; i < n; i++) {
+			final int b = index(hash(keys.get(i), 0), n);
+			buckets[b][sizes[b]++] = i;
+		}
+		final Integer[] order = new Integer[n];
+		for (int b = 0; b < n; b++) {
+			order[b] = b;
+		}
+		Arrays.sort(order, Comparator.comparingInt((Integer b) -> -buckets[b].length).thenComparingInt(b -> b));
+		final Set<Integer> tried = new HashSet<>();
+		int free = 0;
+		for (final int b : order) {
+			final int[] bucket = buckets[b];
+			if (bucket.length == 0) {
+				break;
+			}
+			if (bucket.length == 1) {
+				while (slots[free] >= 0) {
+					free++;
+				}
+				slots[free] = bucket[0];
+				seeds[b] = -free - 1;
+				continue;
+			}
+			int seed = 1;
+			for (; seed < MAXSEED; seed++) {
+				tried.clear();
+				boolean ok = true;
+				for (final int k : bucket) {
+					final int slot = index(hash(keys.get(k), seed), n);
+					if (slots[slot] >= 0 || !tried.add(slot)) {
+						ok = false;
+						break;
+					}
+				}
+				if (ok) {
+					break;
+				}
+			}
+			if (seed == MAXSEED) {
+				throw new IllegalStateException("Perfect hash not found");
+			}
+			for (final int k : bucket) {
+				slots[index(hash(keys.get(k), seed), n)] = k;
+			}
+			seeds[b] = seed;
+		}
+		return new PerfectHash(seeds, slots);
+	}
+
+	public int[] getSeeds() {
+		return seeds;
+	}
+
+	public int[] getSlots() {
+		return slots;
+	}
+
+	/** Reference lookup, the generated code does the same. */
+	public int lookup(List<String> keys, String key) {
+		final int n = seeds.length;
+		if (n == 0) {
+			return -1;
+		}
+		final int d = seeds[index(hash(key, 0), n)];
+		final int id = slots[d < 0 ? -d - 1 : index(hash(key, d), n)];
+		return keys.get(id).equals(key) ? id : -1;
+	}
+}
@@ -2,12 +2,15 @@ package com.bzsoft.oworld.ap.util;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Properties;
+import java.util.TreeSet;
 
 public final class ResourceUtil {
 
@@ -19,6 +22,11 @@ public final class ResourceUtil {
 	private static final String I18N = "i18n";
 	private static final String RESOURCES = "resources";
 	private static final String CHARACTERS = "chars";
+	private static final String STATES = "states";
+
+	/** Direction order, matches the CharacterData direction constants. */
+	public static final List<String> DIRECTIONS = Collections
+			.unmodifiableList(Arrays.asList("n", "s", "e", "w", "ne", "nw", "se", "sw"));
 
 	private ResourceUtil() {
 		// empty
@@ -87,9 +95,12 @@ public final class ResourceUtil {
 				return null;
 			}
 			try (InputStream is = ResourceUtil.class.getClassLoader().getResourceAsStream(url)) {
-				final Properties prop = new Properties();
+				if (is == null) {
+					throw new IOException("Resource not found " + url);
+				}
+				final OrderedProperties prop = new OrderedProperties();
 				prop.load(is);
-				for (final String name : prop.stringPropertyNames()) {
+				for (final String name : prop.orderedNames()) {
 					final String val = prop.getProperty(name).trim();
 					list.add(new Object[] { name.trim(), val, i++ });
 				}
@@ -101,4 +112,155 @@ public final class ResourceUtil {
 		}
 		return out;
 	}
+
+	private static final Properties loadProperties(String url) throws IOException {
+		try (InputStream is = ResourceUtil.class.getClassLoader().getResourceAsStream(url)) {
+			if (is == null) {
+				throw new IOException("Resource not found " + url);
+			}
+			final Properties prop = new Properties();
+			prop.load(is);
+			return prop;
+		}
+	}
+
+	private static final String[] split(String s) {
+		return s == null || s.trim().isEmpty() ? new String[0] : s.trim().split("\\s*,\\s*");
+	}
+
+	/**
+	 * Reads the metadata and image property files of every character and
+	 * flattens them into {@link CharacterTables}.
+	 */
+	public static final CharacterTables loadCharacterTables(String imgBasePath, String characters, String mdFile,
+			String propFile) throws IOException {
+		final List<String> characterList = Arrays.asList(split(characters));
+		final List<Properties> mds = new ArrayList<>(characterList.size());
+		final List<Properties> props = new ArrayList<>(characterList.size());
+		final TreeSet<String> stateSet = new TreeSet<>();
+		for (final String character : characterList) {
+			final Properties md = loadProperties(imgBasePath + "/" + character + "/" + mdFile);
+			mds.add(md);
+			props.add(loadProperties(imgBasePath + "/" + character + "/" + propFile));
+			stateSet.addAll(Arrays.asList(split(md.getProperty(STATES))));
+		}
+		final List<String> states = new ArrayList<>(stateSet);
+		final int nclips = characterList.size() * states.size() * DIRECTIONS.size();
+		final int[] clipFirstFrame = new int[nclips];
+		final int[] clipFrameCount = new int[nclips];
+		Arrays.fill(clipFirstFrame, -1);
+		final int[] characterFirstFrame = new int[characterList.size() + 1];
+		final List<int[]> offsets = new ArrayList<>();
+		final List<String> urls = new ArrayList<>();
+		for (int c = 0; c < characterList.size(); c++) {
+			final String character = characterList.get(c);
+			final Properties md = mds.get(c);
+			final Properties prop = props.get(c);
+			characterFirstFrame[c] = urls.size();
+			for (final String st : split(md.getProperty(STATES))) {
+				final int s = states.indexOf(st);
+				for (final String dir : split(md.getProperty(st))) {
+					final int d = DIRECTIONS.indexOf(dir.toLowerCase());
+					if (d < 0) {
+						throw new IOException("Bad direction " + dir + " for " + character + "." + st);
+					}
+					final int count;
+					try {
+						count = Integer.parseInt(md.getProperty(st + "." + dir).trim());
+					} catch (final RuntimeException e) {
+						throw new IOException("Bad number at " + character + "." + st + "." + dir, e);
+					}
+					final int clip = (c * states.size() + s) * DIRECTIONS.size() + d;
+					clipFirstFrame[clip] = urls.size();
+					clipFrameCount[clip] = count;
+					for (int i = 0; i < count; i++) {
+						final String key = st + "_" + dir + "_" + i;
+						final String url = prop.getProperty(key);
+						final String[] off = split(md.getProperty(key));
+						if (url == null || off.length != 2) {
+							throw new IOException("Bad frame " + character + "." + key);
+						}
+						try {
+							offsets.add(new int[] { Integer.parseInt(off[0]), Integer.parseInt(off[1]) });
+						} catch (final NumberFormatException e) {
+							throw new IOException("Bad offset format " + character + "." + key, e);
+						}
+						urls.add(url.trim());
+					}
+				}
+			}
+		}
+		characterFirstFrame[characterList.size()] = urls.size();
+		final int[] dx = new int[urls.size()];
+		final int[] dy = new int[urls.size()];
+		for (int i = 0; i < dx.length; i++) {
+			dx[i] = offsets.get(i)[0];
+			dy[i] = offsets.get(i)[1];
+		}
+		return new CharacterTables(characterList, states, DIRECTIONS, characterFirstFrame, clipFirstFrame,
+				clipFrameCount, dx, dy, urls.toArray(new String[urls.size()]));
+	}
+
+	/**
+	 * SHA-256 of the bytes of every resource, in order, hex encoded. Missing
+	 * resources hash as empty so that creating them changes the digest.
+	 */
+	public static final String hashResources(List<String> urls) throws IOException {
+		final MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IOException(e.getMessage(), e);
+		}
+		final byte[] buff = new byte[8192];
+		for (final String url : urls) {
+			md.update(url.getBytes("UTF-8"));
+			md.update((byte) 0);
+			try (InputStream is = ResourceUtil.class.getClassLoader().getResourceAsStream(url)) {
+				if (is != null) {
+					int l;
+					while ((l = is.read(buff)) != -1) {
+						md.update(buff, 0, l);
+					}
+				}
+			}
+			md.update((byte) 0);
+		}
+		final StringBuilder sb = new StringBuilder();
+		for (final byte b : md.digest()) {
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Every resource read to generate the naming class: the app file, color,
+	 * font, resource and character files and the metadata of each character.
+	 */
+	public static final List<String> listInputs(String appUrl, AppInfo appInfo) throws IOException {
+		final List<String> inputs = new ArrayList<>();
+		inputs.add(appUrl);
+		addIfPresent(inputs, appInfo.getColorUrl());
+		addIfPresent(inputs, appInfo.getFontUrl());
+		inputs.addAll(appInfo.getResourceUrls());
+		final String charsUrl = appInfo.getCharsUrl();
+		if (charsUrl != null && !charsUrl.isEmpty()) {
+			inputs.add(charsUrl);
+			final Properties chars = loadProperties(charsUrl);
+			final String imgBasePath = chars.getProperty("imgbasepath");
+			final String mdFile = chars.getProperty("characterImgMdFile");
+			final String propFile = chars.getProperty("characterImgPropFile");
+			for (final String character : split(chars.getProperty("characters"))) {
+				inputs.add(imgBasePath + "/" + character + "/" + mdFile);
+				inputs.add(imgBasePath + "/" + character + "/" + propFile);
+			}
+		}
+		return inputs;
+	}
+
+	private static final void addIfPresent(List<String> list, String url) {
+		if (url != null && !url.isEmpty()) {
+			list.add(url);
+		}
+	}
 }
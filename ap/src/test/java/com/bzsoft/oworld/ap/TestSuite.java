@@ -0,0 +1,12 @@
+package com.bzsoft.oworld.ap;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+import com.bzsoft.oworld.ap.util.PerfectHashTest;
+
+@RunWith(Suite.class)
+@Suite.SuiteClasses({ PerfectHashTest.class })
+public class TestSuite {
+
+}
@@ -0,0 +1,60 @@
+package com.bzsoft.oworld.ap.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class PerfectHashTest {
+
+	private static final List<String> keys(int n) {
+		final List<String> keys = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			keys.add("img/chars/dino/walking ne" + i + ".png");
+		}
+		return keys;
+	}
+
+	@Test
+	public void everyKeyFindsItsSlot() {
+		for (final int n : new int[] { 1, 2, 3, 17, 1000 }) {
+			final List<String> keys = keys(n);
+			final PerfectHash ph = PerfectHash.build(keys);
+			final boolean[] used = new boolean[n];
+			for (int i = 0; i < n; i++) {
+				assertEquals(i, ph.lookup(keys, keys.get(i)));
+			}
+			for (final int id : ph.getSlots()) {
+				assertTrue(id >= 0 && !used[id]);
+				used[id] = true;
+			}
+		}
+	}
+
+	@Test
+	public void missesReturnMinusOne() {
+		final List<String> keys = keys(100);
+		final PerfectHash ph = PerfectHash.build(keys);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(-1, ph.lookup(keys, "missing" + i));
+		}
+		assertEquals(-1, ph.lookup(keys, ""));
+	}
+
+	@Test
+	public void emptyKeySet() {
+		final List<String> keys = Collections.emptyList();
+		assertEquals(-1, PerfectHash.build(keys).lookup(keys, "a"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void duplicatedKeysAreRejected() {
+		PerfectHash.build(Arrays.asList("a", "b", "a"));
+	}
+
+}
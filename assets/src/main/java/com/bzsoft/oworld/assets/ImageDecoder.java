@@ -0,0 +1,28 @@
+package com.bzsoft.oworld.assets;
+
+import java.awt.Image;
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface ImageDecoder {
+
+	/**
+	 * System property used to select the decoder backend for a run, one of the
+	 * {@link Type} names.
+	 */
+	public static final String PROPERTY = "oworld.imagedecoder";
+
+	public static enum Type {
+		/** Toolkit.createImage plus MediaTracker, the historical backend. */
+		TOOLKIT,
+		/** Plain ImageIO decode, pixel format chosen by the codec. */
+		IMAGEIO,
+		/** ImageIO decode copied into a screen compatible (accelerable) image. */
+		COMPATIBLE
+	}
+
+	public Type getType();
+
+	public Image decode(InputStream is) throws IOException;
+
+}
@@ -3,6 +3,7 @@ package com.bzsoft.oworld.assets;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Image;
+import java.awt.image.IndexColorModel;
 import java.util.Locale;
 
 public interface ResourceManager {
@@ -17,6 +18,23 @@ public interface ResourceManager {
 
 	public Image getCharacterImage(int key);
 
+	/**
+	 * Returns the character frame drawn with a palette derived from
+	 * {@link #getCharacterPalette(String)}, or the plain frame when characters
+	 * are not palette indexed.
+	 */
+	public Image getCharacterImage(int key, IndexColorModel palette);
+
+	public IndexColorModel getCharacterPalette(String character);
+
+	/**
+	 * Returns the character frame as a {@link Sprite} for software rendering
+	 * into an int[] back buffer.
+	 */
+	public Sprite getCharacterSprite(int key);
+
+	public Sprite getCharacterSprite(int key, IndexColorModel palette);
+
 	public void setLocale(Locale locale);
 
 	public void loadCharacterInfo() throws ResourceException;
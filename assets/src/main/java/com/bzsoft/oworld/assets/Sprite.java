@@ -0,0 +1,29 @@
+package com.bzsoft.oworld.assets;
+
+/**
+ * A frame that draws itself straight into an int[] RGB raster, bypassing
+ * Java2D compositing.
+ */
+public interface Sprite {
+
+	public int getWidth();
+
+	public int getHeight();
+
+	/**
+	 * Draws the sprite with its top left corner at (x, y) into dst, a
+	 * dstWidth x dstHeight TYPE_INT_RGB or TYPE_INT_ARGB raster with row stride
+	 * dstWidth. Pixels outside dst are clipped.
+	 */
+	public void blit(int[] dst, int dstWidth, int dstHeight, int x, int y);
+
+	/**
+	 * Like {@link #blit(int[], int, int, int, int)} but only the rows [y0, y1)
+	 * of dst are written, so disjoint bands can be drawn concurrently.
+	 */
+	public void blit(int[] dst, int dstWidth, int x, int y, int y0, int y1);
+
+	/** Opaque plus translucent pixels, the pixels blit touches. */
+	public int getPixelCount();
+
+}
@@ -3,22 +3,17 @@ package com.bzsoft.oworld.assets.impl;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Font;
+import java.awt.Graphics2D;
 import java.awt.Image;
-import java.awt.MediaTracker;
-import java.awt.Toolkit;
-import java.io.ByteArrayOutputStream;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Properties;
-
-import javax.imageio.ImageIO;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,10 +22,13 @@ import com.bzsoft.oworld.R;
 import com.bzsoft.oworld.ap.ResourceProcessable;
 import com.bzsoft.oworld.assets.CharacterData;
 import com.bzsoft.oworld.assets.CharacterData.Status;
+import com.bzsoft.oworld.assets.ImageDecoder;
 import com.bzsoft.oworld.assets.ResourceException;
 import com.bzsoft.oworld.assets.ResourceManager;
+import com.bzsoft.oworld.assets.Sprite;
+import com.bzsoft.oworld.assets.tools.SharedPalette;
 import com.bzsoft.oworld.util.tuple.Tuple;
-import com.bzsoft.oworld.util.tuple.Tuple.Tuple2;
+import com.bzsoft.oworld.util.tuple.Tuple.Tuple3;
 
 @ResourceProcessable
 public class BaseResourceManager implements ResourceManager {
@@ -38,19 +36,33 @@ public class BaseResourceManager implements ResourceManager {
 	private static final Logger LOGGER = LoggerFactory.getLogger(BaseResourceManager.class);
 	private static final int CHARACTER_IMG_OFFSET = 10000;
 
-	private static final String STATES = "states";
+	/**
+	 * System property, when not "false" character frames are kept as 8-bit
+	 * indexed rasters sharing one palette per character.
+	 */
+	public static final String INDEXED_CHARACTERS_PROPERTY = "oworld.indexedchars";
 
 	protected Component component;
-	protected Toolkit toolkit;
+	protected final ImageDecoder decoder;
 	protected Locale locale;
 	protected final Map<Integer, Image> imgCache;
+	protected final Map<Integer, Sprite> spriteCache;
 	protected Map<String, Map<Status, Map<Integer, CharacterImageDescriptor[]>>> cdMap;
 	protected String[] cdUrls;
+	protected final boolean indexedCharacters;
+	protected IndexedCharacterSheet[] cdSheets;
 
 	public BaseResourceManager(final Component component, int cacheSize) {
+		this(component, cacheSize, ImageDecoderFactory.create(component));
+	}
+
+	public BaseResourceManager(final Component component, int cacheSize, ImageDecoder decoder) {
 		locale = Locale.getDefault();
-		toolkit = Toolkit.getDefaultToolkit();
 		this.component = component;
+		this.decoder = decoder;
+		this.indexedCharacters = !"false".equalsIgnoreCase(System.getProperty(INDEXED_CHARACTERS_PROPERTY));
+		cdSheets = new IndexedCharacterSheet[0];
+		LOGGER.info("Image decoder: {}, indexed characters: {}", decoder.getType(), indexedCharacters);
 		imgCache = new LinkedHashMap<Integer, Image>() {
 			private static final long serialVersionUID = 1L;
 
@@ -59,114 +71,64 @@ public class BaseResourceManager implements ResourceManager {
 				return size() == cacheSize;
 			};
 		};
+		spriteCache = new LinkedHashMap<Integer, Sprite>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Sprite> eldest) {
+				return size() == cacheSize;
+			};
+		};
 	}
 
-	private final static Tuple2<Map<String, Map<Status, Map<Integer, CharacterImageDescriptor[]>>>, String[]> loadCharInfo()
+	/**
+	 * Builds the character maps from the tables generated into
+	 * {@link R.CharInfo} at compile time, no property file is read.
+	 */
+	private final static Tuple3<Map<String, Map<Status, Map<Integer, CharacterImageDescriptor[]>>>, String[], Map<String, int[]>> loadCharInfo()
 			throws ResourceException {
-		try {
-			final String imgBasePath = R.CharInfo.get(R.CharInfo.imgbasepath);
-			final String characters = R.CharInfo.get(R.CharInfo.characters);
-			final String mdFile = R.CharInfo.get(R.CharInfo.characterImgMdFile);
-			final String propFile = R.CharInfo.get(R.CharInfo.characterImgPropFile);
-			final String pattern = "%s_%s_%d";
-			int img = CHARACTER_IMG_OFFSET;
-			final List<String> urls = new ArrayList<>();
-			final Map<String, Map<Status, Map<Integer, CharacterImageDescriptor[]>>> map = new HashMap<>();
-			for (final String character : split(characters)) {
-				final Map<Status, Map<Integer, CharacterImageDescriptor[]>> mStatus = new EnumMap<>(Status.class);
-
-				final String mdPath = imgBasePath + "/" + character + "/" + mdFile;
-				final String propPath = imgBasePath + "/" + character + "/" + propFile;
-				final Properties md = loadProperties(mdPath);
-				final Properties prop = loadProperties(propPath);
-				final String states = md.getProperty(STATES);
-				for (final String st : split(states)) {
-					final Status status = parseStatus(st);
-					final Map<Integer, CharacterImageDescriptor[]> mDirection = new HashMap<>();
-
-					final String directions = md.getProperty(st);
-					for (final String direction : split(directions)) {
-						final int dir = parseDirection(direction);
-						final int imgCount;
-						try {
-							imgCount = Integer.parseInt(md.getProperty(st + "." + direction));
-						} catch (final NumberFormatException nfe) {
-							throw new ResourceException("Bad number at " + st + "." + direction, nfe);
-						}
-						final CharacterImageDescriptor[] cidArray = new CharacterImageDescriptor[imgCount];
-						for (int i = 0; i < imgCount; i++) {
-							final String key = String.format(pattern, st, direction, i);
-							final String url = prop.getProperty(key);
-							final String sOffsets = md.getProperty(key);
-							final int[] offsets = parseOffsets(sOffsets);
-							cidArray[i] = CharacterImageDescriptor.of(img, offsets[0], offsets[1]);
-							img += 1;
-							urls.add(url);
-						}
-						mDirection.put(dir, cidArray);
+		final int nstates = R.CharInfo.stateCount();
+		final Status[] statuses = new Status[nstates];
+		for (int s = 0; s < nstates; s++) {
+			statuses[s] = parseStatus(R.CharInfo.stateName(s));
+		}
+		final int nframes = R.CharInfo.frameCount();
+		final String[] urls = new String[nframes];
+		for (int i = 0; i < nframes; i++) {
+			urls[i] = R.CharInfo.frameUrl(i);
+		}
+		final Map<String, Map<Status, Map<Integer, CharacterImageDescriptor[]>>> map = new HashMap<>();
+		final Map<String, int[]> ranges = new LinkedHashMap<>();
+		for (int c = 0; c < R.CharInfo.characterCount(); c++) {
+			final String character = R.CharInfo.characterName(c);
+			final Map<Status, Map<Integer, CharacterImageDescriptor[]>> mStatus = new EnumMap<>(Status.class);
+			for (int s = 0; s < nstates; s++) {
+				Map<Integer, CharacterImageDescriptor[]> mDirection = null;
+				for (int d = 0; d < R.CharInfo.DIRECTIONS; d++) {
+					final int clip = R.CharInfo.clip(c, s, d);
+					final int first = R.CharInfo.clipFirstFrame(clip);
+					if (first < 0) {
+						continue;
+					}
+					final int count = R.CharInfo.clipFrameCount(clip);
+					final CharacterImageDescriptor[] cidArray = new CharacterImageDescriptor[count];
+					for (int i = 0; i < count; i++) {
+						final int frame = first + i;
+						// repeated frames point to the image of their first occurrence
+						cidArray[i] = CharacterImageDescriptor.of(CHARACTER_IMG_OFFSET + R.CharInfo.frameImage(frame),
+								R.CharInfo.frameDx(frame), R.CharInfo.frameDy(frame));
+					}
+					if (mDirection == null) {
+						mDirection = new HashMap<>();
+						mStatus.put(statuses[s], mDirection);
 					}
-					mStatus.put(status, mDirection);
+					mDirection.put(d, cidArray);
 				}
-				map.put(character, mStatus);
 			}
-			return Tuple.of(map, urls.toArray(new String[urls.size()]));
-		} catch (final IOException e) {
-			throw new ResourceException(e.getMessage(), e);
-		}
-	}
-
-	private static int[] parseOffsets(String val) throws ResourceException {
-		if (val == null || val.isEmpty()) {
-			throw new ResourceException("Bad Offset format");
-		}
-		final String[] ss = split(val);
-		if (ss.length != 2) {
-			throw new ResourceException("Bad Offset format");
-		}
-		try {
-			return new int[] { Integer.parseInt(ss[0]), Integer.parseInt(ss[1]) };
-		} catch (final NumberFormatException e) {
-			throw new ResourceException("Bad Offset format", e);
-		}
-	}
-
-	private static final String[] split(String s) {
-		return s == null ? new String[0] : s.split(",");
-	}
-
-	private final static Properties loadProperties(String url) throws IOException {
-		try (InputStream is = BaseResourceManager.class.getClassLoader().getResourceAsStream(url)) {
-			final Properties prop = new Properties();
-			prop.load(is);
-			return prop;
-		}
-	}
-
-	private static final int parseDirection(String dir) throws ResourceException {
-		if (dir == null || dir.isEmpty()) {
-			throw new ResourceException("Bad direction format");
-		}
-		final String c = dir.trim().toUpperCase();
-		switch (c) {
-		case "N":
-			return CharacterData.N;
-		case "S":
-			return CharacterData.S;
-		case "E":
-			return CharacterData.E;
-		case "W":
-			return CharacterData.W;
-		case "NE":
-			return CharacterData.NE;
-		case "NW":
-			return CharacterData.NW;
-		case "SE":
-			return CharacterData.SE;
-		case "SW":
-			return CharacterData.SW;
-		default:
-			throw new ResourceException("Bad direction format");
+			map.put(character, mStatus);
+			ranges.put(character, new int[] { R.CharInfo.characterFirstFrame(c), R.CharInfo.characterFrameCount(c) });
 		}
+		return Tuple.of(map, urls, ranges);
 	}
 
 	private static final Status parseStatus(String s) throws ResourceException {
@@ -183,9 +145,12 @@ public class BaseResourceManager implements ResourceManager {
 	@Override
 	public void loadCharacterInfo() {
 		try {
-			final Tuple2<Map<String, Map<Status, Map<Integer, CharacterImageDescriptor[]>>>, String[]> t = loadCharInfo();
+			final Tuple3<Map<String, Map<Status, Map<Integer, CharacterImageDescriptor[]>>>, String[], Map<String, int[]>> t = loadCharInfo();
 			cdMap = t.get1();
 			cdUrls = t.get2();
+			if (indexedCharacters) {
+				cdSheets = loadSheets(cdUrls, t.get3());
+			}
 		} catch (final Exception e) {
 			LOGGER.warn("Error Loading CharacterInfo", e);
 		}
@@ -198,7 +163,7 @@ public class BaseResourceManager implements ResourceManager {
 			String url = null;
 			try {
 				url = R.Resources.get(resource);
-				img = loadImage(component, toolkit, url, false);
+				img = loadImage(decoder, url);
 				imgCache.put(resource, img);
 			} catch (final Exception e) {
 				LOGGER.warn("Error Loading Image {}", url, e);
@@ -207,14 +172,59 @@ public class BaseResourceManager implements ResourceManager {
 		return img;
 	}
 
+	private static final IndexedCharacterSheet[] loadSheets(String[] urls, Map<String, int[]> ranges)
+			throws IOException {
+		final IndexedCharacterSheet[] sheets = new IndexedCharacterSheet[R.CharInfo.characterCount()];
+		for (final Map.Entry<String, int[]> e : ranges.entrySet()) {
+			final int[] range = e.getValue();
+			final String paletteUrl = R.CharInfo.get(R.CharInfo.imgbasepath) + "/" + e.getKey() + "/"
+					+ SharedPalette.PALETTEFILE;
+			final IndexedCharacterSheet sheet = IndexedCharacterSheet.load(CHARACTER_IMG_OFFSET + range[0], urls,
+					range[0], range[1], paletteUrl);
+			LOGGER.info("Character {}: {} frames, {} KB indexed", e.getKey(), sheet.size(),
+					sheet.getPixelBytes() / 1024);
+			sheets[R.CharInfo.characterId(e.getKey())] = sheet;
+		}
+		return sheets;
+	}
+
+	private final IndexedCharacterSheet findSheet(int key) {
+		for (final IndexedCharacterSheet sheet : cdSheets) {
+			if (sheet != null && sheet.contains(key)) {
+				return sheet;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public IndexColorModel getCharacterPalette(String character) {
+		final int id = R.CharInfo.characterId(character);
+		final IndexedCharacterSheet sheet = id < 0 || id >= cdSheets.length ? null : cdSheets[id];
+		return sheet == null ? null : sheet.getPalette();
+	}
+
+	@Override
+	public Image getCharacterImage(int key, IndexColorModel palette) {
+		final IndexedCharacterSheet sheet = findSheet(key);
+		if (sheet == null) {
+			return getCharacterImage(key);
+		}
+		return palette == null ? sheet.getImage(key) : sheet.getImage(key, palette);
+	}
+
 	@Override
 	public Image getCharacterImage(int key) {
+		final IndexedCharacterSheet sheet = findSheet(key);
+		if (sheet != null) {
+			return sheet.getImage(key);
+		}
 		Image img = imgCache.get(key);
 		if (img == null) {
 			String url = null;
 			try {
 				url = cdUrls[key - CHARACTER_IMG_OFFSET];
-				img = loadImage(component, toolkit, url, false);
+				img = loadImage(decoder, url);
 				imgCache.put(key, img);
 			} catch (final Exception e) {
 				LOGGER.warn("Error Loading Image {}", url, e);
@@ -223,30 +233,50 @@ public class BaseResourceManager implements ResourceManager {
 		return img;
 	}
 
-	private static final Image loadImage(Component c, Toolkit toolkit, String name, boolean imageio) throws Exception {
-		if (imageio) {
-			try (InputStream is = BaseResourceManager.class.getClassLoader().getResourceAsStream(name)) {
-				return ImageIO.read(is);
+	@Override
+	public Sprite getCharacterSprite(int key) {
+		return getCharacterSprite(key, null);
+	}
+
+	@Override
+	public Sprite getCharacterSprite(int key, IndexColorModel palette) {
+		final IndexedCharacterSheet sheet = findSheet(key);
+		if (sheet != null) {
+			return palette == null ? sheet.getSprite(key) : sheet.getSprite(key, palette);
+		}
+		Sprite sprite = spriteCache.get(key);
+		if (sprite == null) {
+			final Image img = getCharacterImage(key);
+			if (img == null) {
+				return null;
 			}
-		} else {
-			try (InputStream is = BaseResourceManager.class.getClassLoader().getResourceAsStream(name)) {
-				final ByteArrayOutputStream baos = new ByteArrayOutputStream(1024 * 10);
-				final byte[] buff = new byte[1024];
-				int l = 0;
-				while ((l = is.read(buff)) != -1) {
-					baos.write(buff, 0, l);
-				}
-				final int id = 1;
-				final MediaTracker mt = new MediaTracker(c);
-				final Image img = toolkit.createImage(baos.toByteArray());
-				mt.addImage(img, id);
-				try {
-					mt.waitForID(id);
-				} finally {
-					mt.removeImage(img);
-				}
-				return img;
+			sprite = RleSprite.of(toBufferedImage(img));
+			spriteCache.put(key, sprite);
+		}
+		return sprite;
+	}
+
+	private static final BufferedImage toBufferedImage(Image img) {
+		if (img instanceof BufferedImage) {
+			return (BufferedImage) img;
+		}
+		final BufferedImage bi = new BufferedImage(img.getWidth(null), img.getHeight(null),
+				BufferedImage.TYPE_INT_ARGB);
+		final Graphics2D g = bi.createGraphics();
+		try {
+			g.drawImage(img, 0, 0, null);
+		} finally {
+			g.dispose();
+		}
+		return bi;
+	}
+
+	private static final Image loadImage(ImageDecoder decoder, String name) throws IOException {
+		try (InputStream is = BaseResourceManager.class.getClassLoader().getResourceAsStream(name)) {
+			if (is == null) {
+				throw new IOException("Resource not found " + name);
 			}
+			return decoder.decode(is);
 		}
 	}
 
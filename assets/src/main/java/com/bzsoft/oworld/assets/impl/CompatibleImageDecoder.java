@@ -0,0 +1,80 @@
+package com.bzsoft.oworld.assets.impl;
+
+import java.awt.AlphaComposite;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.imageio.ImageIO;
+
+import com.bzsoft.oworld.assets.ImageDecoder;
+
+/**
+ * Decodes with ImageIO and copies the result into an image created by
+ * {@link GraphicsConfiguration#createCompatibleImage(int, int, int)}, so the
+ * pixels are already in the screen format and can be cached in video memory.
+ * Without a screen it falls back to a premultiplied ARGB image.
+ */
+public final class CompatibleImageDecoder implements ImageDecoder {
+
+	private final Component component;
+
+	public CompatibleImageDecoder(Component component) {
+		this.component = component;
+		ImageIO.setUseCache(false);
+	}
+
+	@Override
+	public Type getType() {
+		return Type.COMPATIBLE;
+	}
+
+	@Override
+	public Image decode(InputStream is) throws IOException {
+		final BufferedImage src = ImageIO.read(is);
+		if (src == null) {
+			throw new IOException("Unsupported image format");
+		}
+		return toCompatibleImage(src, getGraphicsConfiguration(component));
+	}
+
+	public static final BufferedImage toCompatibleImage(BufferedImage src, GraphicsConfiguration gc) {
+		final int w = src.getWidth();
+		final int h = src.getHeight();
+		final int transparency = src.getColorModel().getTransparency();
+		final BufferedImage dst;
+		if (gc != null) {
+			if (src.getColorModel().equals(gc.getColorModel(transparency))) {
+				return src;
+			}
+			dst = gc.createCompatibleImage(w, h, transparency);
+		} else {
+			dst = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE);
+		}
+		final Graphics2D g = dst.createGraphics();
+		try {
+			g.setComposite(AlphaComposite.Src);
+			g.drawImage(src, 0, 0, null);
+		} finally {
+			g.dispose();
+		}
+		return dst;
+	}
+
+	public static final GraphicsConfiguration getGraphicsConfiguration(Component c) {
+		if (GraphicsEnvironment.isHeadless()) {
+			return null;
+		}
+		final GraphicsConfiguration gc = c == null ? null : c.getGraphicsConfiguration();
+		if (gc != null) {
+			return gc;
+		}
+		return GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+	}
+
+}
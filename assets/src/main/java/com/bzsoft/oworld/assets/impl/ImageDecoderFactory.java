@@ -0,0 +1,51 @@
+package com.bzsoft.oworld.assets.impl;
+
+import java.awt.Component;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bzsoft.oworld.assets.ImageDecoder;
+import com.bzsoft.oworld.assets.ImageDecoder.Type;
+
+public final class ImageDecoderFactory {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ImageDecoderFactory.class);
+
+	private ImageDecoderFactory() {
+		// empty
+	}
+
+	public static final ImageDecoder create(Type type, Component component) {
+		switch (type) {
+		case TOOLKIT:
+			return new ToolkitImageDecoder(component);
+		case IMAGEIO:
+			return new ImageIOImageDecoder();
+		case COMPATIBLE:
+		default:
+			return new CompatibleImageDecoder(component);
+		}
+	}
+
+	/**
+	 * Creates the decoder named by the {@link ImageDecoder#PROPERTY} system
+	 * property, {@link Type#COMPATIBLE} when unset or unknown.
+	 */
+	public static final ImageDecoder create(Component component) {
+		return create(parseType(System.getProperty(ImageDecoder.PROPERTY)), component);
+	}
+
+	public static final Type parseType(String s) {
+		if (s == null || s.trim().isEmpty()) {
+			return Type.COMPATIBLE;
+		}
+		try {
+			return Type.valueOf(s.trim().toUpperCase());
+		} catch (final IllegalArgumentException e) {
+			LOGGER.warn("Unknown image decoder {}, using {}", s, Type.COMPATIBLE);
+			return Type.COMPATIBLE;
+		}
+	}
+
+}
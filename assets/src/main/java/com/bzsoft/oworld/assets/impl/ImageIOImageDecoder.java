@@ -0,0 +1,31 @@
+package com.bzsoft.oworld.assets.impl;
+
+import java.awt.Image;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.imageio.ImageIO;
+
+import com.bzsoft.oworld.assets.ImageDecoder;
+
+public final class ImageIOImageDecoder implements ImageDecoder {
+
+	public ImageIOImageDecoder() {
+		ImageIO.setUseCache(false);
+	}
+
+	@Override
+	public Type getType() {
+		return Type.IMAGEIO;
+	}
+
+	@Override
+	public Image decode(InputStream is) throws IOException {
+		final Image img = ImageIO.read(is);
+		if (img == null) {
+			throw new IOException("Unsupported image format");
+		}
+		return img;
+	}
+
+}
@@ -0,0 +1,272 @@
+package com.bzsoft.oworld.assets.impl;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.imageio.ImageIO;
+
+import com.bzsoft.oworld.assets.tools.IndexColorModelProcessor;
+import com.bzsoft.oworld.assets.tools.RasterKernels;
+import com.bzsoft.oworld.assets.tools.SharedPalette;
+
+/**
+ * All the frames of a character stored as 8-bit rasters sharing a single
+ * {@link IndexColorModel}. Palette variants reuse the rasters, only a new
+ * {@link BufferedImage} header per frame is created.
+ */
+public final class IndexedCharacterSheet {
+
+	private static final int MAXCOLORS = 255;
+
+	private final int firstKey;
+	private final IndexColorModel palette;
+	private final WritableRaster[] rasters;
+	private final BufferedImage[] images;
+	private final Map<IndexColorModel, BufferedImage[]> variants;
+	private final Map<IndexColorModel, RleSprite[]> sprites;
+
+	private IndexedCharacterSheet(int firstKey, IndexColorModel palette, WritableRaster[] rasters) {
+		this.firstKey = firstKey;
+		this.palette = palette;
+		this.rasters = rasters;
+		this.images = new BufferedImage[rasters.length];
+		for (int i = 0; i < rasters.length; i++) {
+			images[i] = new BufferedImage(palette, rasters[i], false, null);
+		}
+		this.variants = new IdentityHashMap<>();
+		variants.put(palette, images);
+		this.sprites = new IdentityHashMap<>();
+	}
+
+	/**
+	 * Loads the frames of a character. When paletteUrl names a shared palette
+	 * (see {@link SharedPalette}) frames already quantized to it are used as
+	 * they are and any other frame is mapped to its nearest colors. Otherwise
+	 * one median cut palette is built from the union of the frame histograms and
+	 * every frame is remapped to it. Frames with the same url share one raster.
+	 */
+	public static final IndexedCharacterSheet load(int firstKey, String[] urls, int off, int len,
+			String paletteUrl) throws IOException {
+		final IndexColorModel shared = readPalette(paletteUrl);
+		if (shared != null) {
+			return loadShared(firstKey, urls, off, len, shared);
+		}
+		final int[][] argb = new int[len][];
+		final int[] widths = new int[len];
+		final int[] heights = new int[len];
+		final int[] hist = IndexColorModelProcessor.createHistogram();
+		final Map<String, Integer> seen = new HashMap<>();
+		final int[] same = new int[len];
+		for (int i = 0; i < len; i++) {
+			final Integer prev = seen.putIfAbsent(urls[off + i], i);
+			same[i] = prev == null ? -1 : prev;
+			if (prev != null) {
+				continue;
+			}
+			final BufferedImage img = read(urls[off + i]);
+			final int w = img.getWidth();
+			final int h = img.getHeight();
+			argb[i] = RasterKernels.toArgb(img);
+			widths[i] = w;
+			heights[i] = h;
+			IndexColorModelProcessor.accumulate(hist, argb[i], 0, argb[i].length);
+		}
+		final IndexColorModelProcessor icmp = new IndexColorModelProcessor(hist);
+		final IndexColorModel palette = icmp.createColorModel(MAXCOLORS);
+		final WritableRaster[] rasters = new WritableRaster[len];
+		for (int i = 0; i < len; i++) {
+			if (same[i] >= 0) {
+				rasters[i] = rasters[same[i]];
+				continue;
+			}
+			final byte[] pixels = icmp.map(argb[i], new byte[argb[i].length]);
+			argb[i] = null;
+			rasters[i] = createRaster(pixels, widths[i], heights[i]);
+		}
+		return new IndexedCharacterSheet(firstKey, palette, rasters);
+	}
+
+	private static final IndexedCharacterSheet loadShared(int firstKey, String[] urls, int off, int len,
+			IndexColorModel palette) throws IOException {
+		final WritableRaster[] rasters = new WritableRaster[len];
+		IndexColorModelProcessor nearest = null;
+		final Map<String, Integer> seen = new HashMap<>();
+		for (int i = 0; i < len; i++) {
+			final Integer prev = seen.putIfAbsent(urls[off + i], i);
+			if (prev != null) {
+				rasters[i] = rasters[prev];
+				continue;
+			}
+			final BufferedImage img = read(urls[off + i]);
+			final byte[] indices = RasterKernels.toIndices(img);
+			if (indices != null && samePalette(palette, img.getColorModel())) {
+				rasters[i] = img.getRaster();
+			} else {
+				if (nearest == null) {
+					nearest = IndexColorModelProcessor.ofColorModel(palette);
+				}
+				final int[] argb = RasterKernels.toArgb(img);
+				rasters[i] = createRaster(nearest.map(argb, new byte[argb.length]), img.getWidth(),
+						img.getHeight());
+			}
+		}
+		return new IndexedCharacterSheet(firstKey, palette, rasters);
+	}
+
+	private static final boolean samePalette(IndexColorModel palette, ColorModel cm) {
+		if (!(cm instanceof IndexColorModel)) {
+			return false;
+		}
+		final IndexColorModel icm = (IndexColorModel) cm;
+		final int size = palette.getMapSize();
+		if (icm.getMapSize() < size) {
+			return false;
+		}
+		for (int i = 0; i < size; i++) {
+			if (palette.getRGB(i) != icm.getRGB(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static final WritableRaster createRaster(byte[] pixels, int w, int h) {
+		final DataBuffer db = new DataBufferByte(pixels, pixels.length);
+		return Raster.createInterleavedRaster(db, w, h, w, 1, new int[] { 0 }, null);
+	}
+
+	private static final IndexColorModel readPalette(String url) throws IOException {
+		if (url == null) {
+			return null;
+		}
+		try (InputStream is = IndexedCharacterSheet.class.getClassLoader().getResourceAsStream(url)) {
+			return is == null ? null : SharedPalette.read(is);
+		}
+	}
+
+	private static final BufferedImage read(String url) throws IOException {
+		try (InputStream is = IndexedCharacterSheet.class.getClassLoader().getResourceAsStream(url)) {
+			if (is == null) {
+				throw new IOException("Resource not found " + url);
+			}
+			final BufferedImage img = ImageIO.read(is);
+			if (img == null) {
+				throw new IOException("Unsupported image format " + url);
+			}
+			return img;
+		}
+	}
+
+	public boolean contains(int key) {
+		return key >= firstKey && key < firstKey + rasters.length;
+	}
+
+	public int getFirstKey() {
+		return firstKey;
+	}
+
+	public int size() {
+		return rasters.length;
+	}
+
+	public IndexColorModel getPalette() {
+		return palette;
+	}
+
+	public BufferedImage getImage(int key) {
+		return images[key - firstKey];
+	}
+
+	/**
+	 * Returns the frame drawn with another palette of the same size, see
+	 * {@link Palettes}. Frames of a variant are created on first use and kept
+	 * while the palette instance is alive in this sheet.
+	 */
+	public BufferedImage getImage(int key, IndexColorModel variant) {
+		BufferedImage[] vimages;
+		synchronized (variants) {
+			vimages = variants.get(variant);
+			if (vimages == null) {
+				if (variant.getMapSize() != palette.getMapSize()) {
+					throw new IllegalArgumentException("Palette size mismatch");
+				}
+				vimages = new BufferedImage[rasters.length];
+				variants.put(variant, vimages);
+			}
+		}
+		final int i = key - firstKey;
+		BufferedImage img = vimages[i];
+		if (img == null) {
+			img = new BufferedImage(variant, rasters[i], false, null);
+			vimages[i] = img;
+		}
+		return img;
+	}
+
+	public void removeVariant(IndexColorModel variant) {
+		if (variant != palette) {
+			synchronized (variants) {
+				variants.remove(variant);
+				sprites.remove(variant);
+			}
+		}
+	}
+
+	public RleSprite getSprite(int key) {
+		return getSprite(key, palette);
+	}
+
+	/**
+	 * Returns the frame as a {@link RleSprite} drawn with variant, encoded on
+	 * first use. Repeated frames share their sprite.
+	 */
+	public RleSprite getSprite(int key, IndexColorModel variant) {
+		RleSprite[] vsprites;
+		synchronized (variants) {
+			vsprites = sprites.get(variant);
+			if (vsprites == null) {
+				vsprites = new RleSprite[rasters.length];
+				sprites.put(variant, vsprites);
+			}
+		}
+		final int i = key - firstKey;
+		RleSprite sprite = vsprites[i];
+		if (sprite == null) {
+			for (int j = 0; j < i; j++) {
+				if (rasters[j] == rasters[i] && vsprites[j] != null) {
+					sprite = vsprites[j];
+					break;
+				}
+			}
+			if (sprite == null) {
+				sprite = RleSprite.of(getImage(key, variant));
+			}
+			vsprites[i] = sprite;
+		}
+		return sprite;
+	}
+
+	/** Bytes used by the pixel data, shared by every variant and repeated frame. */
+	public long getPixelBytes() {
+		final Set<WritableRaster> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+		long bytes = 0;
+		for (final WritableRaster r : rasters) {
+			if (distinct.add(r)) {
+				bytes += r.getDataBuffer().getSize();
+			}
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,60 @@
+package com.bzsoft.oworld.assets.impl;
+
+import java.awt.Color;
+import java.awt.image.IndexColorModel;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Palette transforms for {@link IndexedCharacterSheet} variants. Each one
+ * returns a new color model of the same size, keeping the transparent index.
+ */
+public final class Palettes {
+
+	private Palettes() {
+		// empty
+	}
+
+	/** Applies op to every RGB entry but the transparent one. */
+	public static final IndexColorModel map(IndexColorModel cm, IntUnaryOperator op) {
+		final int size = cm.getMapSize();
+		final int transparent = cm.getTransparentPixel();
+		final int[] rgbs = new int[size];
+		cm.getRGBs(rgbs);
+		for (int i = 0; i < size; i++) {
+			if (i != transparent) {
+				rgbs[i] = 0xff000000 | op.applyAsInt(rgbs[i] & 0xffffff);
+			}
+		}
+		return new IndexColorModel(8, size, rgbs, 0, false, transparent, cm.getTransferType());
+	}
+
+	/** Blends every color towards c by amount in [0, 1], for damage flashes. */
+	public static final IndexColorModel tint(IndexColorModel cm, Color c, float amount) {
+		final int a = Math.round(Math.max(0f, Math.min(1f, amount)) * 256);
+		final int tr = c.getRed();
+		final int tg = c.getGreen();
+		final int tb = c.getBlue();
+		return map(cm, rgb -> {
+			final int r = (rgb >> 16) & 0xff;
+			final int g = (rgb >> 8) & 0xff;
+			final int b = rgb & 0xff;
+			return ((r + (((tr - r) * a) >> 8)) << 16) | ((g + (((tg - g) * a) >> 8)) << 8)
+					| (b + (((tb - b) * a) >> 8));
+		});
+	}
+
+	/**
+	 * Rotates the hue of the colors whose hue lies in [fromHue, toHue], both in
+	 * [0, 1), by shift. Used for team colors.
+	 */
+	public static final IndexColorModel shiftHue(IndexColorModel cm, float fromHue, float toHue, float shift) {
+		final float[] hsb = new float[3];
+		return map(cm, rgb -> {
+			Color.RGBtoHSB((rgb >> 16) & 0xff, (rgb >> 8) & 0xff, rgb & 0xff, hsb);
+			if (hsb[0] < fromHue || hsb[0] > toHue) {
+				return rgb;
+			}
+			return Color.HSBtoRGB(hsb[0] + shift, hsb[1], hsb[2]) & 0xffffff;
+		});
+	}
+}
@@ -0,0 +1,166 @@
+package com.bzsoft.oworld.assets.impl;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.util.Arrays;
+
+import com.bzsoft.oworld.assets.Sprite;
+import com.bzsoft.oworld.assets.tools.RasterKernels;
+
+/**
+ * Run length encoded sprite: only the non transparent spans of every
+ * scanline are kept. Each span is a triple (x, length, pixel offset); the
+ * length is negative for translucent spans, which are blended, while opaque
+ * spans are copied with {@link System#arraycopy}. Fully transparent pixels
+ * cost nothing when drawing.
+ */
+public final class RleSprite implements Sprite {
+
+	private final int width;
+	private final int height;
+	private final int[] rows;
+	private final int[] spans;
+	private final int[] pixels;
+
+	private RleSprite(int width, int height, int[] rows, int[] spans, int[] pixels) {
+		this.width = width;
+		this.height = height;
+		this.rows = rows;
+		this.spans = spans;
+		this.pixels = pixels;
+	}
+
+	public static final RleSprite of(BufferedImage img) {
+		return of(RasterKernels.toArgb(img), img.getWidth(), img.getHeight());
+	}
+
+	/** Encodes the indices of an 8-bit frame drawn with palette. */
+	public static final RleSprite of(byte[] indices, int w, int h, IndexColorModel palette) {
+		final int[] lut = new int[256];
+		palette.getRGBs(lut);
+		final int[] argb = new int[indices.length];
+		for (int i = 0; i < argb.length; i++) {
+			argb[i] = lut[indices[i] & 0xff];
+		}
+		return of(argb, w, h);
+	}
+
+	/** Encodes ARGB pixels with row stride w. */
+	public static final RleSprite of(int[] argb, int w, int h) {
+		final int[] rows = new int[h + 1];
+		int[] spans = new int[Math.max(3, h * 6)];
+		int[] pixels = new int[Math.max(1, argb.length / 2)];
+		int nspans = 0;
+		int npixels = 0;
+		for (int y = 0; y < h; y++) {
+			rows[y] = nspans;
+			final int row = y * w;
+			int x = 0;
+			while (x < w) {
+				final int a = argb[row + x] >>> 24;
+				if (a == 0) {
+					x++;
+					continue;
+				}
+				final boolean opaque = a == 0xff;
+				final int start = x;
+				while (x < w) {
+					final int b = argb[row + x] >>> 24;
+					if (b == 0 || (b == 0xff) != opaque) {
+						break;
+					}
+					x++;
+				}
+				if (nspans + 3 > spans.length) {
+					spans = Arrays.copyOf(spans, spans.length * 2);
+				}
+				if (npixels + x - start > pixels.length) {
+					pixels = Arrays.copyOf(pixels, Math.max(pixels.length * 2, npixels + x - start));
+				}
+				System.arraycopy(argb, row + start, pixels, npixels, x - start);
+				spans[nspans] = start;
+				spans[nspans + 1] = opaque ? x - start : start - x;
+				spans[nspans + 2] = npixels;
+				nspans += 3;
+				npixels += x - start;
+			}
+		}
+		rows[h] = nspans;
+		return new RleSprite(w, h, rows, Arrays.copyOf(spans, nspans), Arrays.copyOf(pixels, npixels));
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int getPixelCount() {
+		return pixels.length;
+	}
+
+	/** Number of spans, opaque and translucent. */
+	public int getSpanCount() {
+		return spans.length / 3;
+	}
+
+	@Override
+	public void blit(int[] dst, int dstWidth, int dstHeight, int x, int y) {
+		blit(dst, dstWidth, x, y, 0, dstHeight);
+	}
+
+	@Override
+	public void blit(int[] dst, int dstWidth, int x, int y, int clipY0, int clipY1) {
+		final int y0 = Math.max(0, clipY0 - y);
+		final int y1 = Math.min(height, clipY1 - y);
+		if (y0 >= y1 || x >= dstWidth || x + width <= 0) {
+			return;
+		}
+		final boolean clipx = x < 0 || x + width > dstWidth;
+		for (int row = y0; row < y1; row++) {
+			final int line = (y + row) * dstWidth + x;
+			for (int s = rows[row], end = rows[row + 1]; s < end; s += 3) {
+				int sx = spans[s];
+				final int len = spans[s + 1];
+				int n = len < 0 ? -len : len;
+				int po = spans[s + 2];
+				if (clipx) {
+					final int left = -x - sx;
+					if (left > 0) {
+						sx += left;
+						po += left;
+						n -= left;
+					}
+					final int right = x + sx + n - dstWidth;
+					if (right > 0) {
+						n -= right;
+					}
+					if (n <= 0) {
+						continue;
+					}
+				}
+				if (len > 0) {
+					System.arraycopy(pixels, po, dst, line + sx, n);
+				} else {
+					blend(pixels, po, dst, line + sx, n);
+				}
+			}
+		}
+	}
+
+	private static void blend(int[] src, int so, int[] dst, int d, int n) {
+		for (int i = 0; i < n; i++, d++) {
+			final int s = src[so + i];
+			final int a = s >>> 24;
+			final int t = dst[d];
+			final int rb = (((s & 0xff00ff) * a + (t & 0xff00ff) * (255 - a)) >>> 8) & 0xff00ff;
+			final int g = (((s & 0xff00) * a + (t & 0xff00) * (255 - a)) >>> 8) & 0xff00;
+			dst[d] = 0xff000000 | rb | g;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package com.bzsoft.oworld.assets.impl;
+
+import java.awt.Component;
+import java.awt.Image;
+import java.awt.MediaTracker;
+import java.awt.Toolkit;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.bzsoft.oworld.assets.ImageDecoder;
+
+public final class ToolkitImageDecoder implements ImageDecoder {
+
+	private final Component component;
+	private final Toolkit toolkit;
+
+	public ToolkitImageDecoder(Component component) {
+		this.component = component;
+		this.toolkit = Toolkit.getDefaultToolkit();
+	}
+
+	@Override
+	public Type getType() {
+		return Type.TOOLKIT;
+	}
+
+	@Override
+	public Image decode(InputStream is) throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream(1024 * 10);
+		final byte[] buff = new byte[1024];
+		int l = 0;
+		while ((l = is.read(buff)) != -1) {
+			baos.write(buff, 0, l);
+		}
+		final int id = 1;
+		final MediaTracker mt = new MediaTracker(component);
+		final Image img = toolkit.createImage(baos.toByteArray());
+		mt.addImage(img, id);
+		try {
+			mt.waitForID(id);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted decoding image", e);
+		} finally {
+			mt.removeImage(img);
+		}
+		if (mt.isErrorID(id)) {
+			throw new IOException("Error decoding image");
+		}
+		return img;
+	}
+
+}
@@ -0,0 +1,438 @@
+package com.bzsoft.oworld.assets.tools;
+
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.imageio.ImageIO;
+
+import com.bzsoft.oworld.util.tuple.Tuple;
+import com.bzsoft.oworld.util.tuple.Tuple.Tuple2;
+
+/**
+ * Imports Reiner tileset zips: zip entries are streamed by the calling thread
+ * and every frame is decoded, color keyed and trimmed by a fork-join pool,
+ * which spills it as an ARGB png to the cache directory and adds it to the
+ * character histogram. At most maxInFlight frames are held in memory at any
+ * time. Once every frame is in, one {@link SharedPalette} is built for the
+ * character and each frame is remapped to it from its spill. Only frames that
+ * changed since the last import are decoded again, see {@link BuildManifest};
+ * the others add their spill to the histogram, and are only remapped when the
+ * palette changes, so an incremental import writes what a clean one does.
+ */
+public final class AssetImportPipeline {
+
+	public static enum Stage {
+		HASH, READ, CACHED, DECODE, ALPHA, TRIM, SPILL, PALETTE, QUANTIZE, WRITE
+	}
+
+	/** Bumped when the frame processing changes, invalidates every manifest. */
+	private static final int VERSION = 3;
+
+	public static final class StageStats {
+
+		private final LongAdder[] nanos;
+		private final LongAdder[] items;
+		private final LongAdder[] bytes;
+
+		private StageStats() {
+			final int n = Stage.values().length;
+			nanos = new LongAdder[n];
+			items = new LongAdder[n];
+			bytes = new LongAdder[n];
+			for (int i = 0; i < n; i++) {
+				nanos[i] = new LongAdder();
+				items[i] = new LongAdder();
+				bytes[i] = new LongAdder();
+			}
+		}
+
+		private long record(Stage stage, long start, long nbytes) {
+			final long now = System.nanoTime();
+			nanos[stage.ordinal()].add(now - start);
+			items[stage.ordinal()].increment();
+			bytes[stage.ordinal()].add(nbytes);
+			return now;
+		}
+
+		public long getNanos(Stage stage) {
+			return nanos[stage.ordinal()].sum();
+		}
+
+		public long getItems(Stage stage) {
+			return items[stage.ordinal()].sum();
+		}
+
+		public long getBytes(Stage stage) {
+			return bytes[stage.ordinal()].sum();
+		}
+
+		/** Per stage items and bytes per busy second of one worker. */
+		public String report() {
+			final StringBuilder sb = new StringBuilder();
+			for (final Stage stage : Stage.values()) {
+				final double secs = getNanos(stage) / 1e9;
+				final long n = getItems(stage);
+				sb.append(String.format("%-9s %6d items %9.1f ms %9.1f items/s %8.2f MB/s%n", stage, n, secs * 1e3,
+						secs > 0 ? n / secs : 0, secs > 0 ? getBytes(stage) / secs / (1 << 20) : 0));
+			}
+			return sb.toString();
+		}
+	}
+
+	private final ImageProcessor processor;
+	private final ForkJoinPool pool;
+	private final Semaphore inFlight;
+	private final int maxColors;
+	private final Quantizer quantizer;
+	private final String fileprefix;
+	private final File cacheDir;
+	private final StageStats stats;
+
+	/**
+	 * @param parallelism worker threads
+	 * @param maxInFlight frames read but not yet written
+	 * @param maxColors   size of the palette shared by the frames of a character
+	 * @param fileprefix  resource path of the characters directory
+	 * @param cacheDir    directory of the ARGB frames kept between imports
+	 */
+	public AssetImportPipeline(int parallelism, int maxInFlight, int maxColors, String fileprefix, File cacheDir) {
+		this.processor = new ImageProcessor();
+		this.pool = new ForkJoinPool(parallelism);
+		this.inFlight = new Semaphore(maxInFlight);
+		this.maxColors = maxColors;
+		this.quantizer = Quantizers.create();
+		this.fileprefix = fileprefix;
+		this.cacheDir = cacheDir;
+		this.stats = new StageStats();
+	}
+
+	public AssetImportPipeline(int parallelism, int maxInFlight, int maxColors, String fileprefix) {
+		this(parallelism, maxInFlight, maxColors, fileprefix,
+				new File(System.getProperty("java.io.tmpdir"), "oworld-import"));
+	}
+
+	public AssetImportPipeline(String fileprefix) {
+		this(Runtime.getRuntime().availableProcessors(), 4 * Runtime.getRuntime().availableProcessors(), 255,
+				fileprefix);
+	}
+
+	public StageStats getStats() {
+		return stats;
+	}
+
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	public void importZipFiles(File findir, File foutdir) {
+		final File[] flist = findir.listFiles(new ImageProcessor.SuffixFileFilter("zip"));
+		for (final File f : flist) {
+			try {
+				importZip(f, foutdir);
+			} catch (final Exception e) {
+				System.err.println(f.getName());
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/** Processing parameters, part of every manifest entry. */
+	private String params() {
+		return BuildManifest.sha256(("version=" + VERSION + ",maxColors=" + maxColors + ",quantizer="
+				+ quantizer.getType() + ",tolerance=" + CharacterMetadata.DEFAULT_TOLERANCE + ",fileprefix="
+				+ fileprefix).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static final String frameName(ZipEntry ze) {
+		String name = ze.getName();
+		if (ze.isDirectory() || !name.endsWith(".bmp")) {
+			return null;
+		}
+		final int indexof = name.lastIndexOf('/');
+		if (indexof > -1) {
+			name = name.substring(indexof + 1);
+		}
+		return name.substring(0, name.length() - 4) + ".png";
+	}
+
+	/**
+	 * Hashes the zip file and every frame entry in one pass, returns the zip
+	 * hash and the entry hashes by png name.
+	 */
+	private static final Tuple2<String, Map<String, String>> hashZip(File zip) throws IOException {
+		final MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		final Map<String, String> hashes = new TreeMap<>();
+		try (DigestInputStream dis = new DigestInputStream(new FileInputStream(zip), md);
+				ZipInputStream zis = new ZipInputStream(new BufferedInputStream(dis, 1 << 16))) {
+			ZipEntry ze;
+			while ((ze = zis.getNextEntry()) != null) {
+				final String name = frameName(ze);
+				if (name != null) {
+					hashes.put(name, BuildManifest.sha256(readFully(zis, ze.getSize())));
+				}
+			}
+			// the zip central directory is not read by ZipInputStream
+			ImageProcessor.copy(dis, new ByteArrayOutputStream());
+		}
+		return Tuple.of(BuildManifest.toHex(md.digest()), hashes);
+	}
+
+	/** Frames to decode again: changed inputs, changed or missing outputs and missing spills. */
+	private static final Set<String> staleFrames(BuildManifest manifest, File fout, File spill,
+			Map<String, String> hashes, String params) throws IOException {
+		final Set<String> stale = new HashSet<>();
+		for (final Map.Entry<String, String> e : hashes.entrySet()) {
+			if (!manifest.isUpToDate(fout, e.getKey(), e.getValue(), params)
+					|| !new File(spill, e.getKey()).isFile()) {
+				stale.add(e.getKey());
+			}
+		}
+		return stale;
+	}
+
+	/**
+	 * Imports every bmp frame of a zip into foutdir/&lt;character&gt;, remaps them
+	 * to the character palette written as {@link SharedPalette#PALETTEFILE} and
+	 * writes the character metadata once all its frames are done. Frames recorded as
+	 * up to date in the {@link BuildManifest} of the directory are not
+	 * decoded again and only rewritten when the palette changes; nothing is
+	 * written when the zip is unchanged.
+	 */
+	public void importZip(File zip, File foutdir) throws IOException, InterruptedException {
+		final String character = ImageProcessor.getRealName(zip.getName());
+		final File fout = new File(foutdir, character);
+		final File spill = new File(cacheDir, character);
+		fout.mkdirs();
+		spill.mkdirs();
+		final String params = params();
+		final BuildManifest previous = BuildManifest.load(fout);
+		long t = System.nanoTime();
+		final Tuple2<String, Map<String, String>> hashed = hashZip(zip);
+		stats.record(Stage.HASH, t, zip.length());
+		final Map<String, String> hashes = hashed.get2();
+		if (hashed.get1().equals(previous.getSourceHash()) && params.equals(previous.getParamsHash())
+				&& previous.isComplete(fout) && new File(fout, SharedPalette.PALETTEFILE).isFile()) {
+			System.out.println(character + " is up to date");
+			return;
+		}
+		final Set<String> stale = staleFrames(previous, fout, spill, hashes, params);
+		System.out.printf("%s: %d of %d frames stale%n", character, stale.size(), hashes.size());
+		final CharacterMetadata metadata = new CharacterMetadata(character, fileprefix);
+		final Map<String, Point> offsets = new ConcurrentHashMap<>();
+		final int[] hist = IndexColorModelProcessor.createHistogram();
+		final List<ForkJoinTask<?>> tasks = new ArrayList<>();
+		for (final String name : hashes.keySet()) {
+			if (stale.contains(name)) {
+				continue;
+			}
+			tasks.add(pool.submit(() -> {
+				try {
+					final long t0 = System.nanoTime();
+					final BuildManifest.Entry e = previous.get(name);
+					final File f = new File(spill, name);
+					final BufferedImage img = ImageIO.read(f);
+					if (img == null) {
+						throw new IOException("Unsupported image format");
+					}
+					final int[] argb = RasterKernels.toArgb(img);
+					synchronized (hist) {
+						IndexColorModelProcessor.accumulate(hist, argb, 0, argb.length);
+					}
+					offsets.put(name, new Point(e.getDx(), e.getDy()));
+					stats.record(Stage.CACHED, t0, f.length());
+				} catch (final Exception e) {
+					System.err.println(name);
+					e.printStackTrace();
+				}
+			}));
+		}
+		if (!stale.isEmpty()) {
+			try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(new FileInputStream(zip), 1 << 16))) {
+				ZipEntry ze;
+				while ((ze = zis.getNextEntry()) != null) {
+					final String pngName = frameName(ze);
+					if (pngName == null || !stale.contains(pngName)) {
+						continue;
+					}
+					inFlight.acquire();
+					t = System.nanoTime();
+					final byte[] data;
+					try {
+						data = readFully(zis, ze.getSize());
+					} catch (final IOException e) {
+						inFlight.release();
+						throw e;
+					}
+					stats.record(Stage.READ, t, data.length);
+					tasks.add(pool.submit(() -> {
+						try {
+							offsets.put(pngName, processFrame(data, new File(spill, pngName), hist));
+						} catch (final Exception e) {
+							System.err.println(pngName);
+							e.printStackTrace();
+						} finally {
+							inFlight.release();
+						}
+					}));
+				}
+			}
+		}
+		for (final ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+		t = System.nanoTime();
+		final IndexColorModelProcessor palette = SharedPalette.build(hist, maxColors, quantizer);
+		final boolean changed = SharedPalette.update(palette.getColorModel(),
+				new File(fout, SharedPalette.PALETTEFILE));
+		stats.record(Stage.PALETTE, t, hist.length * 4L);
+		tasks.clear();
+		for (final Map.Entry<String, Point> e : offsets.entrySet()) {
+			final String name = e.getKey();
+			// duplicates have no file of their own once the metadata is stored
+			final boolean remap = changed || stale.contains(name) || !new File(fout, name).isFile();
+			tasks.add(pool.submit(() -> {
+				try {
+					if (remap) {
+						remapFrame(new File(spill, name), new File(fout, name), e.getValue(), palette, metadata);
+					} else {
+						addFrame(new File(fout, name), e.getValue(), metadata);
+					}
+				} catch (final Exception ex) {
+					System.err.println(e.getKey());
+					ex.printStackTrace();
+				}
+			}));
+		}
+		for (final ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+		final Map<String, String> aliases = metadata.store(fout);
+		final BuildManifest manifest = new BuildManifest();
+		manifest.setSourceHash(hashed.get1());
+		manifest.setParamsHash(params);
+		for (final Map.Entry<String, Point> e : offsets.entrySet()) {
+			final String name = e.getKey();
+			final String output = aliases.getOrDefault(name, name);
+			final String outputHash = manifest.hashOutput(fout, output);
+			if (outputHash != null) {
+				manifest.put(name, new BuildManifest.Entry(hashes.get(name), output, outputHash, e.getValue().x,
+						e.getValue().y));
+			}
+		}
+		// outputs and spills of frames no longer in the zip
+		for (final String name : previous.names()) {
+			if (!hashes.containsKey(name)) {
+				new File(fout, name).delete();
+				new File(spill, name).delete();
+			}
+		}
+		manifest.store(fout);
+	}
+
+	private static final byte[] readFully(InputStream is, long size) throws IOException {
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream(size > 0 ? (int) size : 1 << 16);
+		ImageProcessor.copy(is, baos);
+		return baos.toByteArray();
+	}
+
+	/**
+	 * Decodes, color keys and trims a frame, adds it to hist and spills it to
+	 * f as an ARGB png, returns its offset.
+	 */
+	private Point processFrame(byte[] data, File f, int[] hist) throws IOException {
+		long t = System.nanoTime();
+		final BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(data));
+		if (decoded == null) {
+			throw new IOException("Unsupported image format");
+		}
+		final long pixels = (long) decoded.getWidth() * decoded.getHeight();
+		t = stats.record(Stage.DECODE, t, data.length);
+		final BufferedImage alpha = processor.processImage(decoded);
+		t = stats.record(Stage.ALPHA, t, pixels * 4);
+		final Tuple2<BufferedImage, Point> trimmed = processor.processSize(alpha);
+		final int[] argb = RasterKernels.toArgb(trimmed.get1());
+		synchronized (hist) {
+			IndexColorModelProcessor.accumulate(hist, argb, 0, argb.length);
+		}
+		t = stats.record(Stage.TRIM, t, pixels);
+		ImageIO.write(trimmed.get1(), "PNG", f);
+		stats.record(Stage.SPILL, t, f.length());
+		return trimmed.get2();
+	}
+
+	/** Reads a spilled frame back and writes it in palette to f. */
+	private void remapFrame(File spilled, File f, Point offset, IndexColorModelProcessor palette,
+			CharacterMetadata metadata) throws IOException {
+		long t = System.nanoTime();
+		final BufferedImage img = ImageIO.read(spilled);
+		if (img == null) {
+			throw new IOException("Unsupported image format");
+		}
+		final BufferedImage indexed = SharedPalette.remap(img, palette);
+		t = stats.record(Stage.QUANTIZE, t, (long) img.getWidth() * img.getHeight() * 4);
+		ImageIO.write(indexed, "PNG", f);
+		stats.record(Stage.WRITE, t, f.length());
+		metadata.add(f.getName(), offset.x, offset.y, indexed);
+	}
+
+	/** Adds a frame already written in the current palette. */
+	private void addFrame(File f, Point offset, CharacterMetadata metadata) throws IOException {
+		final long t = System.nanoTime();
+		final BufferedImage img = ImageIO.read(f);
+		if (img == null) {
+			throw new IOException("Unsupported image format");
+		}
+		metadata.add(f.getName(), offset.x, offset.y, img);
+		stats.record(Stage.CACHED, t, f.length());
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 2) {
+			System.err.println("Usage: AssetImportPipeline <zipdir> <outdir> [parallelism] [cachedir]");
+			return;
+		}
+		final int parallelism = args.length > 2 ? Integer.parseInt(args[2])
+				: Runtime.getRuntime().availableProcessors();
+		final AssetImportPipeline pipeline = args.length > 3
+				? new AssetImportPipeline(parallelism, 4 * parallelism, 255, "img/chars", new File(args[3]))
+				: new AssetImportPipeline(parallelism, 4 * parallelism, 255, "img/chars");
+		final long t = System.nanoTime();
+		try {
+			pipeline.importZipFiles(new File(args[0]), new File(args[1]));
+		} finally {
+			pipeline.shutdown();
+		}
+		System.out.printf("Imported %d frames in %.1f ms with %d threads%n",
+				pipeline.getStats().getItems(Stage.WRITE), (System.nanoTime() - t) / 1e6, parallelism);
+		System.out.print(pipeline.getStats().report());
+	}
+}
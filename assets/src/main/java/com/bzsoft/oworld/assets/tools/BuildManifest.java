@@ -0,0 +1,219 @@
+package com.bzsoft.oworld.assets.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records how every output of an asset directory was built: the hash of the
+ * source archive, the hash of the processing parameters and, per frame, the
+ * input hash, the file holding its pixels (itself or the canonical frame of
+ * a duplicate), that file's hash and the trim offset. A frame whose input,
+ * parameters and output file are unchanged is up to date and is not
+ * processed again.
+ */
+public final class BuildManifest {
+
+	public static final String MANIFESTFILE = ".manifest.properties";
+
+	private static final String SOURCE = "@source";
+	private static final String PARAMS = "@params";
+
+	public static final class Entry {
+		private final String inputHash;
+		private final String output;
+		private final String outputHash;
+		private final int dx, dy;
+
+		public Entry(String inputHash, String output, String outputHash, int dx, int dy) {
+			this.inputHash = inputHash;
+			this.output = output;
+			this.outputHash = outputHash;
+			this.dx = dx;
+			this.dy = dy;
+		}
+
+		public String getInputHash() {
+			return inputHash;
+		}
+
+		public String getOutput() {
+			return output;
+		}
+
+		public String getOutputHash() {
+			return outputHash;
+		}
+
+		public int getDx() {
+			return dx;
+		}
+
+		public int getDy() {
+			return dy;
+		}
+	}
+
+	private final Map<String, Entry> entries;
+	private final Map<String, String> fileHashes;
+	private String sourceHash;
+	private String paramsHash;
+
+	public BuildManifest() {
+		entries = new ConcurrentHashMap<>();
+		fileHashes = new ConcurrentHashMap<>();
+	}
+
+	public static final String sha256(byte[] data) {
+		final MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		return toHex(md.digest(data));
+	}
+
+	public static final String toHex(byte[] digest) {
+		final StringBuilder sb = new StringBuilder(digest.length * 2);
+		for (final byte b : digest) {
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return sb.toString();
+	}
+
+	public static final String sha256(File f) throws IOException {
+		return sha256(Files.readAllBytes(f.toPath()));
+	}
+
+	/** Loads the manifest of dir, empty when there is none or it is unreadable. */
+	public static final BuildManifest load(File dir) {
+		final BuildManifest manifest = new BuildManifest();
+		final File f = new File(dir, MANIFESTFILE);
+		if (!f.exists()) {
+			return manifest;
+		}
+		final Properties prop = new Properties();
+		try (InputStream is = new FileInputStream(f)) {
+			prop.load(is);
+		} catch (final IOException e) {
+			return manifest;
+		}
+		manifest.sourceHash = prop.getProperty(SOURCE);
+		manifest.paramsHash = prop.getProperty(PARAMS);
+		for (final String name : prop.stringPropertyNames()) {
+			if (name.startsWith("@")) {
+				continue;
+			}
+			final String[] v = prop.getProperty(name).split(",");
+			if (v.length != 5) {
+				continue;
+			}
+			try {
+				manifest.entries.put(name,
+						new Entry(v[0], v[1], v[2], Integer.parseInt(v[3]), Integer.parseInt(v[4])));
+			} catch (final NumberFormatException e) {
+				// dropped, the frame is rebuilt
+			}
+		}
+		return manifest;
+	}
+
+	public void store(File dir) throws IOException {
+		final Map<String, String> sorted = new TreeMap<>();
+		for (final Map.Entry<String, Entry> e : entries.entrySet()) {
+			final Entry v = e.getValue();
+			sorted.put(e.getKey(),
+					v.inputHash + "," + v.output + "," + v.outputHash + "," + v.dx + "," + v.dy);
+		}
+		final Properties prop = new Properties();
+		prop.putAll(sorted);
+		if (sourceHash != null) {
+			prop.setProperty(SOURCE, sourceHash);
+		}
+		if (paramsHash != null) {
+			prop.setProperty(PARAMS, paramsHash);
+		}
+		try (OutputStream os = new FileOutputStream(new File(dir, MANIFESTFILE))) {
+			prop.store(os, "Asset build manifest");
+		}
+	}
+
+	public String getSourceHash() {
+		return sourceHash;
+	}
+
+	public void setSourceHash(String sourceHash) {
+		this.sourceHash = sourceHash;
+	}
+
+	public String getParamsHash() {
+		return paramsHash;
+	}
+
+	public void setParamsHash(String paramsHash) {
+		this.paramsHash = paramsHash;
+	}
+
+	public Entry get(String name) {
+		return entries.get(name);
+	}
+
+	public void put(String name, Entry entry) {
+		entries.put(name, entry);
+	}
+
+	public Set<String> names() {
+		return entries.keySet();
+	}
+
+	public void retain(Set<String> names) {
+		entries.keySet().retainAll(names);
+	}
+
+	/** Hash of a file of dir, computed once per manifest instance. */
+	public String hashOutput(File dir, String name) throws IOException {
+		String h = fileHashes.get(name);
+		if (h == null) {
+			final File f = new File(dir, name);
+			if (!f.exists()) {
+				return null;
+			}
+			h = sha256(f);
+			fileHashes.put(name, h);
+		}
+		return h;
+	}
+
+	/**
+	 * True when name was built from inputHash with the current parameters and
+	 * the file holding its pixels is unchanged.
+	 */
+	public boolean isUpToDate(File dir, String name, String inputHash, String params) throws IOException {
+		final Entry e = entries.get(name);
+		return e != null && params.equals(paramsHash) && e.inputHash.equals(inputHash)
+				&& e.outputHash.equals(hashOutput(dir, e.output));
+	}
+
+	/** True when every output recorded in the manifest is present and unchanged. */
+	public boolean isComplete(File dir) throws IOException {
+		for (final Entry e : entries.values()) {
+			if (!e.outputHash.equals(hashOutput(dir, e.output))) {
+				return false;
+			}
+		}
+		return !entries.isEmpty() && new File(dir, CharacterMetadata.MDPROPFILE).exists()
+				&& new File(dir, CharacterMetadata.IMGPROPFILE).exists();
+	}
+}
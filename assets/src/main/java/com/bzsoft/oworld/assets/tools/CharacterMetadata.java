@@ -0,0 +1,137 @@
+package com.bzsoft.oworld.assets.tools;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Accumulates the frames of a character and writes its md.properties
+ * (offsets, states, directions and frame counts) and img.properties (frame
+ * resource paths). Frames may be added from several threads. Frames added
+ * with their image are deduplicated on store, see {@link FrameDeduplicator}:
+ * a duplicate keeps its own offsets but its img.properties entry points to
+ * the canonical file and its own file is deleted.
+ */
+public final class CharacterMetadata {
+
+	public static final String MDPROPFILE = "md.properties";
+	public static final String IMGPROPFILE = "img.properties";
+
+	/** Per channel tolerance of near duplicate frames, not visible on screen. */
+	public static final int DEFAULT_TOLERANCE = 2;
+
+	private static final Pattern PATTERN = Pattern.compile("(.+)\\s(n|s|e|w|ne|nw|se|sw)(\\d\\d\\d\\d)\\.png");
+
+	private final String prefix;
+	private final String fileprefix;
+	private final Properties mdprop;
+	private final Properties imgprop;
+	private final Map<String, Map<String, Integer>> stateDirectionCountMap;
+	private final FrameDeduplicator deduplicator;
+
+	/**
+	 * @param prefix     character directory name
+	 * @param fileprefix resource path of the characters directory
+	 */
+	public CharacterMetadata(String prefix, String fileprefix) {
+		this(prefix, fileprefix, DEFAULT_TOLERANCE);
+	}
+
+	public CharacterMetadata(String prefix, String fileprefix, int tolerance) {
+		this.prefix = prefix;
+		this.fileprefix = fileprefix;
+		mdprop = new Properties();
+		imgprop = new Properties();
+		stateDirectionCountMap = new TreeMap<>();
+		deduplicator = new FrameDeduplicator(tolerance);
+	}
+
+	/**
+	 * Returns the sprite name (state_direction_index) of a Reiner frame file
+	 * name like "tipping over ne0003.png", null when it does not match.
+	 */
+	public static final String getSpriteName(String name) {
+		final Matcher m = PATTERN.matcher(name);
+		if (!m.matches()) {
+			return null;
+		}
+		return m.group(1).replaceAll("\\s", "") + "_" + m.group(2) + "_" + Integer.parseInt(m.group(3));
+	}
+
+	/** Adds a frame trimmed at (dx, dy), returns false when the name is not a frame. */
+	public boolean add(String name, int dx, int dy) {
+		final Matcher m = PATTERN.matcher(name);
+		if (!m.matches()) {
+			return false;
+		}
+		final String state = m.group(1).replaceAll("\\s", "");
+		final String direction = m.group(2);
+		final int c = Integer.parseInt(m.group(3));
+		final String spritename = state + "_" + direction + "_" + c;
+		synchronized (this) {
+			Map<String, Integer> mDir = stateDirectionCountMap.get(state);
+			if (mDir == null) {
+				mDir = new TreeMap<>();
+				stateDirectionCountMap.put(state, mDir);
+			}
+			final Integer icount = mDir.get(direction);
+			if (icount == null) {
+				mDir.put(direction, c + 1);
+			} else {
+				mDir.put(direction, Math.max(icount, c + 1));
+			}
+			mdprop.setProperty(spritename, dx + "," + dy);
+			imgprop.setProperty(spritename, fileprefix + "/" + prefix + "/" + name);
+		}
+		return true;
+	}
+
+	/**
+	 * Adds a frame and its trimmed image for duplicate detection. The image
+	 * must already be written to name in the directory given to store.
+	 */
+	public boolean add(String name, int dx, int dy, BufferedImage img) {
+		if (!add(name, dx, dy)) {
+			return false;
+		}
+		deduplicator.add(name, img);
+		return true;
+	}
+
+	/** Writes the property files, returns the duplicate frames and their canonical frames. */
+	public synchronized Map<String, String> store(File dir) throws IOException {
+		final Map<String, String> aliases = deduplicator.resolve(dir);
+		for (final Entry<String, String> e : aliases.entrySet()) {
+			imgprop.setProperty(getSpriteName(e.getKey()), fileprefix + "/" + prefix + "/" + e.getValue());
+			new File(dir, e.getKey()).delete();
+		}
+		if (!aliases.isEmpty()) {
+			System.out.printf("%s: %d duplicate frames share %d images%n", prefix, aliases.size(),
+					aliases.values().stream().distinct().count());
+		}
+		mdprop.put("states", stateDirectionCountMap.keySet().stream().collect(Collectors.joining(",")));
+		for (final Entry<String, Map<String, Integer>> e : stateDirectionCountMap.entrySet()) {
+			final String state = e.getKey();
+			mdprop.put(state, e.getValue().keySet().stream().collect(Collectors.joining(",")));
+			for (final Entry<String, Integer> e2 : e.getValue().entrySet()) {
+				mdprop.put(state + "." + e2.getKey(), e2.getValue().toString());
+			}
+		}
+		try (OutputStream fos = new FileOutputStream(new File(dir, MDPROPFILE))) {
+			mdprop.store(fos, "Displacements");
+		}
+		try (OutputStream fos = new FileOutputStream(new File(dir, IMGPROPFILE))) {
+			imgprop.store(fos, "Images");
+		}
+		return aliases;
+	}
+}
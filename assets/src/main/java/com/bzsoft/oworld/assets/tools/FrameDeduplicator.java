@@ -0,0 +1,183 @@
+package com.bzsoft.oworld.assets.tools;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Finds repeated trimmed frames of a character. Frames are hashed on their
+ * size and ARGB content, transparent pixels normalized, so exact copies with
+ * different per frame palettes match. Frames of the same size whose channels
+ * all differ by at most the tolerance, with the same transparent pixels, are
+ * near duplicates. Only the hash, size and transparency mask hash of a frame
+ * are kept when it is added. Near duplicates share their size and mask, so
+ * {@link #resolve(File)} compares them one such bucket at a time, reading the
+ * frames back from their files; the comparisons are quadratic and the pixels
+ * of the distinct frames are held only within a bucket. Frames may be added
+ * from several threads; the result only depends on the frame names, the
+ * smallest name of a group is its canonical frame.
+ */
+public final class FrameDeduplicator {
+
+	private static final class Frame {
+		final String name;
+		final int width, height;
+		final String hash;
+		final int mask;
+		int[] argb;
+
+		Frame(String name, int width, int height, String hash, int mask) {
+			this.name = name;
+			this.width = width;
+			this.height = height;
+			this.hash = hash;
+			this.mask = mask;
+		}
+
+		String bucket() {
+			return width + "x" + height + ":" + Integer.toHexString(mask);
+		}
+	}
+
+	private final int tolerance;
+	private final Map<String, Frame> frames;
+
+	/**
+	 * @param tolerance maximum per channel difference of near duplicates, 0
+	 *                  only detects exact duplicates
+	 */
+	public FrameDeduplicator(int tolerance) {
+		this.tolerance = tolerance;
+		this.frames = new TreeMap<>();
+	}
+
+	private static final int[] normalized(BufferedImage img) {
+		final int[] argb = RasterKernels.toArgb(img);
+		for (int i = 0; i < argb.length; i++) {
+			if ((argb[i] >>> 24) == 0) {
+				argb[i] = 0;
+			}
+		}
+		return argb;
+	}
+
+	/** Adds a frame whose image is also written to the file named name. */
+	public void add(String name, BufferedImage img) {
+		final int w = img.getWidth();
+		final int h = img.getHeight();
+		final int[] argb = normalized(img);
+		final Frame f = new Frame(name, w, h, hash(w, h, argb), mask(argb));
+		synchronized (frames) {
+			frames.put(name, f);
+		}
+	}
+
+	private static String hash(int w, int h, int[] argb) {
+		final ByteBuffer bb = ByteBuffer.allocate(8 + argb.length * 4);
+		bb.putInt(w).putInt(h);
+		bb.asIntBuffer().put(argb);
+		return BuildManifest.sha256(bb.array());
+	}
+
+	/** Hash of the transparent pixels, which near duplicates have in common. */
+	private static int mask(int[] argb) {
+		final long[] bits = new long[(argb.length + 63) >>> 6];
+		for (int i = 0; i < argb.length; i++) {
+			if (argb[i] == 0) {
+				bits[i >>> 6] |= 1L << i;
+			}
+		}
+		return Arrays.hashCode(bits);
+	}
+
+	private boolean near(Frame a, Frame b) {
+		for (int i = 0; i < a.argb.length; i++) {
+			final int ca = a.argb[i];
+			final int cb = b.argb[i];
+			if (ca == cb) {
+				continue;
+			}
+			if ((ca >>> 24) == 0 || (cb >>> 24) == 0) {
+				return false;
+			}
+			for (int shift = 0; shift < 32; shift += 8) {
+				if (Math.abs(((ca >> shift) & 0xff) - ((cb >> shift) & 0xff)) > tolerance) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static final int[] read(File dir, Frame f) throws IOException {
+		final BufferedImage img = ImageIO.read(new File(dir, f.name));
+		if (img == null || img.getWidth() != f.width || img.getHeight() != f.height) {
+			throw new IOException("Frame changed on disk " + f.name);
+		}
+		return normalized(img);
+	}
+
+	/**
+	 * Returns every duplicate frame name mapped to its canonical frame name,
+	 * reading near duplicate candidates from dir. Near duplicates are compared
+	 * with the canonical frame only, so no frame drifts more than the tolerance
+	 * from the image that replaces it.
+	 */
+	public Map<String, String> resolve(File dir) throws IOException {
+		final Map<String, String> aliases = new TreeMap<>();
+		final Map<String, List<Frame>> buckets = new HashMap<>();
+		synchronized (frames) {
+			for (final Frame f : frames.values()) {
+				List<Frame> bucket = buckets.get(f.bucket());
+				if (bucket == null) {
+					bucket = new ArrayList<>();
+					buckets.put(f.bucket(), bucket);
+				}
+				bucket.add(f);
+			}
+		}
+		for (final List<Frame> bucket : buckets.values()) {
+			// frames come in name order, pixels are only held while their bucket is resolved
+			final Map<String, String> byHash = new HashMap<>();
+			final List<Frame> candidates = new ArrayList<>();
+			for (final Frame f : bucket) {
+				final String exact = byHash.get(f.hash);
+				if (exact != null) {
+					aliases.put(f.name, exact);
+					continue;
+				}
+				String canonical = null;
+				if (tolerance > 0) {
+					f.argb = read(dir, f);
+					for (final Frame c : candidates) {
+						if (near(c, f)) {
+							canonical = c.name;
+							break;
+						}
+					}
+				}
+				if (canonical != null) {
+					aliases.put(f.name, canonical);
+					f.argb = null;
+				} else {
+					candidates.add(f);
+					canonical = f.name;
+				}
+				byHash.put(f.hash, canonical);
+			}
+			for (final Frame c : candidates) {
+				c.argb = null;
+			}
+		}
+		return aliases;
+	}
+}
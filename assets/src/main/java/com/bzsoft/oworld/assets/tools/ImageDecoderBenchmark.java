@@ -0,0 +1,96 @@
+package com.bzsoft.oworld.assets.tools;
+
+import java.awt.Canvas;
+import java.awt.Component;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.bzsoft.oworld.R;
+import com.bzsoft.oworld.assets.ImageDecoder;
+import com.bzsoft.oworld.assets.ImageDecoder.Type;
+import com.bzsoft.oworld.assets.impl.CompatibleImageDecoder;
+import com.bzsoft.oworld.assets.impl.ImageDecoderFactory;
+
+/**
+ * Compares decode time and draw throughput of every {@link ImageDecoder}
+ * backend over the character frames bundled in the classpath.
+ * <p>
+ * Usage: ImageDecoderBenchmark [drawRounds]
+ */
+public final class ImageDecoderBenchmark {
+
+	private static final int WIDTH = 1280;
+	private static final int HEIGHT = 800;
+
+	private ImageDecoderBenchmark() {
+		// empty
+	}
+
+	private static final List<String> loadCharacterUrls() {
+		final List<String> urls = new ArrayList<>(R.CharInfo.frameCount());
+		for (int i = 0; i < R.CharInfo.frameCount(); i++) {
+			urls.add(R.CharInfo.frameUrl(i));
+		}
+		return urls;
+	}
+
+	private static final Image[] decodeAll(ImageDecoder decoder, List<String> urls) throws IOException {
+		final Image[] images = new Image[urls.size()];
+		for (int i = 0; i < images.length; i++) {
+			try (InputStream is = ImageDecoderBenchmark.class.getClassLoader().getResourceAsStream(urls.get(i))) {
+				images[i] = decoder.decode(is);
+			}
+		}
+		return images;
+	}
+
+	private static final long draw(Image[] images, BufferedImage target, int rounds) {
+		final Graphics2D g = target.createGraphics();
+		final long t = System.nanoTime();
+		try {
+			for (int r = 0; r < rounds; r++) {
+				for (int i = 0; i < images.length; i++) {
+					g.drawImage(images[i], (i * 37) % WIDTH, (i * 53) % HEIGHT, null);
+				}
+			}
+		} finally {
+			g.dispose();
+		}
+		return System.nanoTime() - t;
+	}
+
+	public static void main(String[] args) throws Exception {
+		final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+		final List<String> urls = loadCharacterUrls();
+		// ToolkitImageDecoder waits on a MediaTracker, which needs a component
+		final Component component = GraphicsEnvironment.isHeadless() ? null : new Canvas();
+		final GraphicsConfiguration gc = CompatibleImageDecoder.getGraphicsConfiguration(component);
+		final BufferedImage target = gc != null ? gc.createCompatibleImage(WIDTH, HEIGHT, Transparency.OPAQUE)
+				: new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		System.out.println("Frames: " + urls.size() + ", draw rounds: " + rounds + ", screen: " + (gc != null));
+		for (final Type type : Type.values()) {
+			if (type == Type.TOOLKIT && component == null) {
+				System.out.println(type + ": skipped, needs a screen");
+				continue;
+			}
+			final ImageDecoder decoder = ImageDecoderFactory.create(type, component);
+			// warm up codecs and draw loops
+			draw(decodeAll(decoder, urls), target, 1);
+			final long t = System.nanoTime();
+			final Image[] images = decodeAll(decoder, urls);
+			final long decode = System.nanoTime() - t;
+			final long drawTime = draw(images, target, rounds);
+			final double draws = (double) images.length * rounds;
+			System.out.printf("%-10s decode %8.2f ms (%6.1f us/img)  draw %8.2f ms (%10.0f img/s)%n", type,
+					decode / 1e6, decode / 1e3 / images.length, drawTime / 1e6, draws * 1e9 / drawTime);
+		}
+	}
+}
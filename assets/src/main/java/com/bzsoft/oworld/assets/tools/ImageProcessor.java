@@ -1,29 +1,22 @@
 package com.bzsoft.oworld.assets.tools;
 
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
-import java.awt.image.WritableRaster;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Enumeration;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Properties;
-import java.util.Set;
-import java.util.TreeMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -34,9 +27,6 @@ import com.bzsoft.oworld.util.tuple.Tuple.Tuple2;
 
 public final class ImageProcessor {
 
-	private static final String MDPROPFILE = "md.properties";
-	private static final String IMGPROPFILE = "img.properties";
-
 	protected static final class SuffixFileFilter implements FileFilter {
 
 		private final String suffix;
@@ -67,7 +57,7 @@ public final class ImageProcessor {
 		}
 	}
 
-	private String getRealName(String name) {
+	static final String getRealName(String name) {
 		name = name.replace("T", "");
 		name = name.replace("_", "");
 		name = name.replace(" ", "");
@@ -94,46 +84,36 @@ public final class ImageProcessor {
 					name = name.substring(indexof + 1);
 				}
 				System.out.println("Extracting " + name + " ...");
-				InputStream is = null;
-				BufferedOutputStream bos = null;
-				try {
-					is = zf.getInputStream(ze);
-					final File file = new File(fout, name);
-					bos = new BufferedOutputStream(new FileOutputStream(file));
-					final byte[] barray = new byte[(int) ze.getSize()];
-					is.read(barray);
-					bos.write(barray);
-				} catch (final Exception e) {
-					throw e;
-				} finally {
-					if (is != null) {
-						try {
-							is.close();
-						} catch (final Exception e) {
-						}
-					}
-					if (bos != null) {
-						try {
-							bos.close();
-						} catch (final Exception e) {
-						}
-					}
+				try (InputStream is = zf.getInputStream(ze);
+						OutputStream os = new BufferedOutputStream(new FileOutputStream(new File(fout, name)))) {
+					copy(is, os);
 				}
 			}
 		}
 		processImageDir(fout);
 	}
 
+	static final long copy(InputStream is, OutputStream os) throws IOException {
+		final byte[] buff = new byte[8192];
+		long total = 0;
+		int l;
+		while ((l = is.read(buff)) != -1) {
+			os.write(buff, 0, l);
+			total += l;
+		}
+		return total;
+	}
+
 	private void processImageDir(File dir) {
 		final File[] flist = dir.listFiles(new SuffixFileFilter("bmp"));
-		for (final File f : flist) {
+		Arrays.stream(flist).parallel().forEach(f -> {
 			try {
 				processImageFile(f);
 			} catch (final Exception e) {
 				System.err.println(f.getName());
 				e.printStackTrace();
 			}
-		}
+		});
 	}
 
 	private void processImageFile(File fimg) throws Exception {
@@ -150,131 +130,29 @@ public final class ImageProcessor {
 		}
 	}
 
-	private BufferedImage processImage(BufferedImage input) {
+	/**
+	 * Keys the most frequent color of input to transparent and returns an ARGB
+	 * image.
+	 */
+	BufferedImage processImage(BufferedImage input) {
 		final int width = input.getWidth();
 		final int height = input.getHeight();
-		final BufferedImage output = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
-		final int p = getTransparentPixel(input, width, height);
-		final WritableRaster wra = output.getAlphaRaster();
-		for (int i = 0; i < width; i++) {
-			for (int j = 0; j < height; j++) {
-				final int po = input.getRGB(i, j);
-				if (po == p) {
-					wra.setSample(i, j, 0, 0);
-				}
-			}
-		}
-		for (int i = 0; i < width; i++) {
-			for (int j = 0; j < height; j++) {
-				final int po = input.getRGB(i, j);
-				if (po != p) {
-					output.setRGB(i, j, po);
-				} else {
-					output.setRGB(i, j, 0);
-				}
-			}
-		}
-		return output;
-	}
-
-	private int getTransparentPixel(BufferedImage input, int width, int height) {
-		final HashMap<Integer, Integer> mHisto = new HashMap<>();
-		for (int i = 0; i < width; i++) {
-			for (int j = 0; j < height; j++) {
-				final int po = input.getRGB(i, j);
-				Integer count = mHisto.get(po);
-				if (count == null) {
-					mHisto.put(po, 0);
-				} else {
-					count++;
-					mHisto.put(po, count);
-				}
-			}
-		}
-		final List<Integer> l = new ArrayList<>(mHisto.values());
-		Collections.sort(l);
-		final int count = l.get(l.size() - 1);
-		final Set<Integer> sKeys = mHisto.keySet();
-		int pkey = 0;
-		for (final int key : sKeys) {
-			final int value = mHisto.get(key);
-			if (value == count) {
-				pkey = key;
-				break;
-			}
-		}
-		return pkey;
+		final int[] argb = input.getRGB(0, 0, width, height, null, 0, width);
+		RasterKernels.colorKeyToAlpha(argb, RasterKernels.mostFrequent(argb));
+		return RasterKernels.wrap(argb, width, height);
 	}
 
+	/**
+	 * Trims the transparent borders of input, returns the trimmed view and its
+	 * offset in input.
+	 */
 	public Tuple2<BufferedImage, Point> processSize(BufferedImage input) {
-		final int width = input.getWidth();
-		final int height = input.getHeight();
-		int x = 0, y = 0, x2 = width - 1, y2 = height - 1;
-		boolean all = true;
-		for (int i = 0; i < width; i++) {
-			for (int j = 0; j < height; j++) {
-				final int pixel = input.getRGB(i, j);
-				if (pixel != 0) {
-					all = false;
-					break;
-				}
-			}
-			if (all) {
-				x++;
-			} else {
-				break;
-			}
-		}
-		all = true;
-		for (int j = 0; j < height; j++) {
-			for (int i = 0; i < width; i++) {
-				final int pixel = input.getRGB(i, j);
-				if (pixel != 0) {
-					all = false;
-					break;
-				}
-			}
-			if (all) {
-				y++;
-			} else {
-				break;
-			}
-		}
-		all = true;
-		for (int i = width - 1; i >= 0; i--) {
-			for (int j = 0; j < height; j++) {
-				final int pixel = input.getRGB(i, j);
-				if (pixel != 0) {
-					all = false;
-					break;
-				}
-			}
-			if (all) {
-				x2--;
-			} else {
-				break;
-			}
+		Rectangle r = RasterKernels.opaqueBounds(input);
+		if (r == null) {
+			r = new Rectangle(0, 0, 1, 1);
 		}
-		all = true;
-		for (int j = height - 1; j >= 0; j--) {
-			for (int i = 0; i < width; i++) {
-				final int pixel = input.getRGB(i, j);
-				if (pixel != 0) {
-					all = false;
-					break;
-				}
-			}
-			if (all) {
-				y2--;
-			} else {
-				break;
-			}
-		}
-		final int w = x2 - x + 1;
-		final int h = y2 - y + 1;
-		final BufferedImage output = input.getSubimage(x, y, w, h);
-		final Point p = new Point(x, y);
-		return Tuple.of(output, p);
+		final BufferedImage output = input.getSubimage(r.x, r.y, r.width, r.height);
+		return Tuple.of(output, new Point(r.x, r.y));
 	}
 
 	public void processPNGFiles(File fDirInput, File fDirOutput) {
@@ -282,7 +160,7 @@ public final class ImageProcessor {
 			fDirOutput.mkdirs();
 		}
 		final File[] flist = fDirInput.listFiles(new SuffixFileFilter("png"));
-		for (final File fInput : flist) {
+		Arrays.stream(flist).parallel().forEach(fInput -> {
 			try {
 				final BufferedImage imginput = ImageIO.read(fInput);
 				final IndexColorModelProcessor imgp = new IndexColorModelProcessor(imginput);
@@ -292,6 +170,18 @@ public final class ImageProcessor {
 			} catch (final Exception e) {
 				e.printStackTrace();
 			}
+		});
+	}
+
+	/**
+	 * Like {@link #processPNGFiles(File, File)} but every frame shares one
+	 * palette, written as {@link SharedPalette#PALETTEFILE}.
+	 */
+	public void processSharedPaletteFiles(File fDirInput, File fDirOutput) {
+		try {
+			SharedPalette.process(fDirInput, fDirOutput, 255);
+		} catch (final Exception e) {
+			e.printStackTrace();
 		}
 	}
 
@@ -299,86 +189,34 @@ public final class ImageProcessor {
 		if (!fDirOutput.exists()) {
 			fDirOutput.mkdirs();
 		}
-		final Properties mdprop = new Properties();
-		final Properties imgprop = new Properties();
+		final CharacterMetadata metadata = new CharacterMetadata(prefix, fileprefix);
 		final File[] flist = fDirInput.listFiles(new SuffixFileFilter("png"));
-		final Pattern pattern = Pattern.compile("(.+)\\s(n|s|e|w|ne|nw|se|sw)(\\d\\d\\d\\d)\\.png");
-		final Map<String, Map<String, Integer>> stateDirectionCountMap = new TreeMap<>();
-		for (final File fInput : flist) {
+		final File palette = new File(fDirInput, SharedPalette.PALETTEFILE);
+		if (palette.exists()) {
+			try {
+				Files.copy(palette.toPath(), new File(fDirOutput, SharedPalette.PALETTEFILE).toPath(),
+						StandardCopyOption.REPLACE_EXISTING);
+			} catch (final IOException e) {
+				e.printStackTrace();
+			}
+		}
+		Arrays.stream(flist).parallel().filter(f -> !SharedPalette.PALETTEFILE.equals(f.getName())).forEach(fInput -> {
 			try {
+				final String name = fInput.getName();
 				final BufferedImage imginput = ImageIO.read(fInput);
 				final Tuple2<BufferedImage, Point> poutput = processSize(imginput);
-				final File foutput = new File(fDirOutput, fInput.getName());
+				final File foutput = new File(fDirOutput, name);
 				ImageIO.write(poutput.get1(), "PNG", foutput);
 				final Point p = poutput.get2();
-				final String name = fInput.getName();
-				final Matcher m = pattern.matcher(name);
-				final String state;
-				final String direction;
-				final String count;
-				int c;
-				if (m.matches()) {
-					state = m.group(1).replaceAll("\\s", "");
-					direction = m.group(2);
-					count = m.group(3);
-					c = Integer.parseInt(count);
-					Map<String, Integer> mDir = stateDirectionCountMap.get(state);
-					if (mDir == null) {
-						mDir = new TreeMap<>();
-						stateDirectionCountMap.put(state, mDir);
-					}
-					final Integer icount = mDir.get(direction);
-					if (icount == null) {
-						mDir.put(direction, c + 1);
-					} else {
-						mDir.put(direction, Math.max(icount, c + 1));
-					}
-				} else {
-					continue;
-				}
-				final String spritename = state + "_" + direction + "_" + c;
-				mdprop.setProperty(spritename, p.x + "," + p.y);
-				imgprop.setProperty(spritename, fileprefix + "/" + prefix + "/" + name);
+				metadata.add(name, p.x, p.y, poutput.get1());
 			} catch (final Exception e) {
 				e.printStackTrace();
 			}
-		}
-		mdprop.put("states", stateDirectionCountMap.keySet().stream().collect(Collectors.joining(",")));
-		for (final Entry<String, Map<String, Integer>> e : stateDirectionCountMap.entrySet()) {
-			final String state = e.getKey();
-			mdprop.put(state, e.getValue().keySet().stream().collect(Collectors.joining(",")));
-			for (final Entry<String, Integer> e2 : e.getValue().entrySet()) {
-				mdprop.put(state + "." + e2.getKey(), e2.getValue().toString());
-			}
-		}
-		FileOutputStream fos = null;
-		try {
-			final File f = new File(fDirOutput, MDPROPFILE);
-			fos = new FileOutputStream(f);
-			mdprop.store(fos, "Displacements");
-		} catch (final Exception e) {
-			e.printStackTrace();
-		} finally {
-			if (fos != null) {
-				try {
-					fos.close();
-				} catch (final Exception e) {
-				}
-			}
-		}
+		});
 		try {
-			final File f = new File(fDirOutput, IMGPROPFILE);
-			fos = new FileOutputStream(f);
-			imgprop.store(fos, "Images");
+			metadata.store(fDirOutput);
 		} catch (final Exception e) {
 			e.printStackTrace();
-		} finally {
-			if (fos != null) {
-				try {
-					fos.close();
-				} catch (final Exception e) {
-				}
-			}
 		}
 	}
 
@@ -480,7 +318,7 @@ public final class ImageProcessor {
 		}
 		final ImageProcessor imp = new ImageProcessor();
 		// imp.processZipFiles(fdir, fout);
-		imp.processPNGFiles(fout, fout2);
+		imp.processSharedPaletteFiles(fout, fout2);
 		imp.processSizeFiles(fout2, fout3, "dinogreen", "img/chars");
 		// imp.generatePropertyFiles(fout3, fout3);
 		// PropertyFileSorter.sortPropertyFile(new File(fout, "Player.properties"), new
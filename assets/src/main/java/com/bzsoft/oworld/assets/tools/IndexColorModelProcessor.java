@@ -54,6 +54,84 @@ public final class IndexColorModelProcessor {
 		}
 	}
 
+	/**
+	 * Creates a processor over a 15-bit histogram accumulated with
+	 * {@link #accumulate(int[], int[], int, int)}, typically shared by several
+	 * images. Use {@link #createColorModel(int)} and {@link #map(int[], byte[])}
+	 * instead of {@link #convertToByte(int)}.
+	 */
+	public IndexColorModelProcessor(int[] hist) {
+		if (hist.length != HSIZE) {
+			throw new IllegalArgumentException("Histogram size must be " + HSIZE);
+		}
+		this.hist = hist;
+		this.pixels32 = null;
+		this.width = 0;
+		this.height = 0;
+	}
+
+	/**
+	 * Creates a processor mapping to an existing palette, the inverse map sends
+	 * every 15-bit color to the nearest opaque palette entry. Only
+	 * {@link #map(int[], byte[])} may be used on it.
+	 */
+	public static final IndexColorModelProcessor ofColorModel(IndexColorModel cm) {
+		final int size = cm.getMapSize();
+		final int transparent = cm.getTransparentPixel();
+		final int[] rgbs = new int[size];
+		cm.getRGBs(rgbs);
+		final int[] inverse = new int[HSIZE];
+		for (int c = 0; c < HSIZE; c++) {
+			final int r = (c & 31) << 3;
+			final int g = (c >> 2) & 0xf8;
+			final int b = (c >> 7) & 0xf8;
+			int best = 0;
+			int bestDist = Integer.MAX_VALUE;
+			for (int i = 0; i < size; i++) {
+				if (i == transparent) {
+					continue;
+				}
+				final int dr = ((rgbs[i] >> 16) & 0xff) - r;
+				final int dg = ((rgbs[i] >> 8) & 0xff) - g;
+				final int db = (rgbs[i] & 0xff) - b;
+				final int dist = dr * dr + dg * dg + db * db;
+				if (dist < bestDist) {
+					bestDist = dist;
+					best = i;
+				}
+			}
+			inverse[c] = best;
+		}
+		final IndexColorModelProcessor icmp = new IndexColorModelProcessor(inverse);
+		icmp.cm = cm;
+		return icmp;
+	}
+
+	/** Adds b into a, both 15-bit histograms. */
+	public static final int[] merge(int[] a, int[] b) {
+		for (int i = 0; i < HSIZE; i++) {
+			a[i] += b[i];
+		}
+		return a;
+	}
+
+	public static final int[] createHistogram() {
+		return new int[HSIZE];
+	}
+
+	/**
+	 * Adds the non transparent ARGB pixels in [off, off + len) to a 15-bit
+	 * histogram.
+	 */
+	public static final void accumulate(int[] hist, int[] argb, int off, int len) {
+		for (int i = off, end = off + len; i < end; i++) {
+			final int c = argb[i];
+			if ((c >>> 24) != 0) {
+				hist[((c & 0xf8) << 7) | ((c & 0xf800) >> 6) | ((c & 0xf80000) >> 19)]++;
+			}
+		}
+	}
+
 	public IndexColorModelProcessor(BufferedImage img) {
 		this(img.getRGB(0, 0, img.getWidth(), img.getHeight(), null, 0, img.getWidth()), img.getWidth(),
 				img.getHeight());
@@ -94,6 +172,46 @@ public final class IndexColorModelProcessor {
 	 */
 	/** This is a version of convert that returns a ByteProcessor. */
 	public BufferedImage convertToByte(int maxcubes) {
+		return makeImage(medianCut(maxcubes));
+	}
+
+	/**
+	 * Runs the median cut and returns a color model of at most maxcubes colors
+	 * plus a trailing fully transparent entry. After this call the histogram is
+	 * an inverse color map, see {@link #map(int[], byte[])}.
+	 */
+	public IndexColorModel createColorModel(int maxcubes) {
+		medianCut(maxcubes);
+		return cm;
+	}
+
+	public IndexColorModel getColorModel() {
+		return cm;
+	}
+
+	/**
+	 * Maps ARGB pixels to indices of the color model built by
+	 * {@link #createColorModel(int)}. Transparent pixels map to the transparent
+	 * index.
+	 */
+	public byte[] map(int[] argb, byte[] out) {
+		if (cm == null) {
+			throw new IllegalStateException("Color model not created");
+		}
+		final byte transparent = (byte) cm.getTransparentPixel();
+		final int[] inverse = hist;
+		for (int i = 0; i < argb.length; i++) {
+			final int c = argb[i];
+			if ((c >>> 24) == 0) {
+				out[i] = transparent;
+			} else {
+				out[i] = (byte) inverse[((c & 0xf8) << 7) | ((c & 0xf800) >> 6) | ((c & 0xf80000) >> 19)];
+			}
+		}
+		return out;
+	}
+
+	private int medianCut(int maxcubes) {
 		int lr, lg, lb;
 		int i, median, color;
 		int count;
@@ -191,7 +309,7 @@ public final class IndexColorModelProcessor {
 		// compute the color map, the inverse color map, and return
 		// an 8-bit image.
 		makeInverseMap(hist, ncubes);
-		return makeImage(ncubes);
+		return ncubes;
 	}
 
 	protected void shrink(Cube cube) {
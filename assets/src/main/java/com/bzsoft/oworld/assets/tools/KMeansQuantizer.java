@@ -0,0 +1,115 @@
+package com.bzsoft.oworld.assets.tools;
+
+import java.awt.image.IndexColorModel;
+import java.util.stream.IntStream;
+
+/**
+ * Median cut palette refined by weighted k-means (Lloyd) iterations over the
+ * histogram colors. Each iteration assigns the occupied histogram cells to
+ * their nearest centroid in parallel chunks and moves every centroid to the
+ * weighted mean of its cells. Stops after a fixed number of iterations or when
+ * no centroid moves.
+ */
+public final class KMeansQuantizer implements Quantizer {
+
+	private static final int CHUNK = 1024;
+
+	private final int iterations;
+
+	public KMeansQuantizer(int iterations) {
+		this.iterations = iterations;
+	}
+
+	public KMeansQuantizer() {
+		this(8);
+	}
+
+	@Override
+	public Type getType() {
+		return Type.KMEANS;
+	}
+
+	@Override
+	public IndexColorModel createColorModel(int[] hist, int maxColors) {
+		final IndexColorModel initial = new MedianCutQuantizer().createColorModel(hist, maxColors);
+		final int k = initial.getTransparentPixel();
+		final int[] cr = new int[k];
+		final int[] cg = new int[k];
+		final int[] cb = new int[k];
+		for (int i = 0; i < k; i++) {
+			cr[i] = initial.getRed(i);
+			cg[i] = initial.getGreen(i);
+			cb[i] = initial.getBlue(i);
+		}
+		final int[] colors = IntStream.range(0, hist.length).filter(c -> hist[c] != 0).toArray();
+		final int nchunks = (colors.length + CHUNK - 1) / CHUNK;
+		for (int it = 0; it < iterations; it++) {
+			final long[] sums = IntStream.range(0, nchunks).parallel().mapToObj(chunk -> {
+				final long[] s = new long[k * 4];
+				final int end = Math.min(colors.length, (chunk + 1) * CHUNK);
+				for (int j = chunk * CHUNK; j < end; j++) {
+					final int c = colors[j];
+					final int r = (c & 31) << 3;
+					final int g = (c >> 2) & 0xf8;
+					final int b = (c >> 7) & 0xf8;
+					final int best = nearest(cr, cg, cb, r, g, b);
+					final int n = hist[c];
+					s[best * 4] += (long) r * n;
+					s[best * 4 + 1] += (long) g * n;
+					s[best * 4 + 2] += (long) b * n;
+					s[best * 4 + 3] += n;
+				}
+				return s;
+			}).reduce((a, b) -> {
+				for (int i = 0; i < a.length; i++) {
+					a[i] += b[i];
+				}
+				return a;
+			}).orElse(new long[k * 4]);
+			boolean moved = false;
+			for (int i = 0; i < k; i++) {
+				final long n = sums[i * 4 + 3];
+				if (n == 0) {
+					continue;
+				}
+				final int r = (int) ((sums[i * 4] + n / 2) / n);
+				final int g = (int) ((sums[i * 4 + 1] + n / 2) / n);
+				final int b = (int) ((sums[i * 4 + 2] + n / 2) / n);
+				if (r != cr[i] || g != cg[i] || b != cb[i]) {
+					cr[i] = r;
+					cg[i] = g;
+					cb[i] = b;
+					moved = true;
+				}
+			}
+			if (!moved) {
+				break;
+			}
+		}
+		final byte[] rs = new byte[k + 1];
+		final byte[] gs = new byte[k + 1];
+		final byte[] bs = new byte[k + 1];
+		for (int i = 0; i < k; i++) {
+			rs[i] = (byte) cr[i];
+			gs[i] = (byte) cg[i];
+			bs[i] = (byte) cb[i];
+		}
+		return new IndexColorModel(8, k + 1, rs, gs, bs, k);
+	}
+
+	private static int nearest(int[] cr, int[] cg, int[] cb, int r, int g, int b) {
+		int best = 0;
+		int bestDist = Integer.MAX_VALUE;
+		for (int i = 0; i < cr.length; i++) {
+			final int dr = cr[i] - r;
+			final int dg = cg[i] - g;
+			final int db = cb[i] - b;
+			final int dist = dr * dr + dg * dg + db * db;
+			if (dist < bestDist) {
+				bestDist = dist;
+				best = i;
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,17 @@
+package com.bzsoft.oworld.assets.tools;
+
+import java.awt.image.IndexColorModel;
+
+public final class MedianCutQuantizer implements Quantizer {
+
+	@Override
+	public Type getType() {
+		return Type.MEDIANCUT;
+	}
+
+	@Override
+	public IndexColorModel createColorModel(int[] hist, int maxColors) {
+		return new IndexColorModelProcessor(hist.clone()).createColorModel(maxColors);
+	}
+
+}
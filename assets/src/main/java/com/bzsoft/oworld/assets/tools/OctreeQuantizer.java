@@ -0,0 +1,144 @@
+package com.bzsoft.oworld.assets.tools;
+
+import java.awt.image.IndexColorModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Octree quantizer over a 15-bit histogram. Every color is inserted down to
+ * depth 5, then the nodes of the deepest level with the smallest population
+ * are folded into their parent until at most maxColors leaves remain.
+ */
+public final class OctreeQuantizer implements Quantizer {
+
+	private static final int DEPTH = 5;
+
+	private static final class Node {
+		final Node[] children = new Node[8];
+		long r, g, b, count, population;
+		int nchildren;
+		boolean leaf;
+	}
+
+	@Override
+	public Type getType() {
+		return Type.OCTREE;
+	}
+
+	@Override
+	public IndexColorModel createColorModel(int[] hist, int maxColors) {
+		final Node root = new Node();
+		final List<List<Node>> levels = new ArrayList<>(DEPTH);
+		for (int i = 0; i < DEPTH; i++) {
+			levels.add(new ArrayList<>());
+		}
+		int leaves = 0;
+		for (int c = 0; c < hist.length; c++) {
+			final int n = hist[c];
+			if (n == 0) {
+				continue;
+			}
+			final int r = c & 31;
+			final int g = (c >> 5) & 31;
+			final int b = c >> 10;
+			Node node = root;
+			for (int level = 0; level < DEPTH; level++) {
+				final int shift = DEPTH - 1 - level;
+				final int i = (((r >> shift) & 1) << 2) | (((g >> shift) & 1) << 1) | ((b >> shift) & 1);
+				Node child = node.children[i];
+				if (child == null) {
+					child = new Node();
+					node.children[i] = child;
+					node.nchildren++;
+					if (level < DEPTH - 1) {
+						levels.get(level).add(child);
+					}
+				}
+				node = child;
+			}
+			if (!node.leaf) {
+				node.leaf = true;
+				leaves++;
+			}
+			node.r += (long) (r << 3) * n;
+			node.g += (long) (g << 3) * n;
+			node.b += (long) (b << 3) * n;
+			node.count += n;
+		}
+		// fold deepest interior nodes with the fewest pixels first
+		for (int level = DEPTH - 2; level >= 0 && leaves > maxColors; level--) {
+			final List<Node> nodes = levels.get(level);
+			for (final Node node : nodes) {
+				node.population = subtreeCount(node);
+			}
+			nodes.sort((a, b) -> Long.compare(a.population, b.population));
+			for (final Node node : nodes) {
+				if (leaves <= maxColors) {
+					break;
+				}
+				leaves -= fold(node) - 1;
+			}
+		}
+		if (leaves > maxColors) {
+			leaves -= fold(root) - 1;
+		}
+		final byte[] rs = new byte[leaves + 1];
+		final byte[] gs = new byte[leaves + 1];
+		final byte[] bs = new byte[leaves + 1];
+		final int n = collect(root, rs, gs, bs, 0);
+		return new IndexColorModel(8, n + 1, rs, gs, bs, n);
+	}
+
+	private static long subtreeCount(Node node) {
+		if (node.leaf) {
+			return node.count;
+		}
+		long n = 0;
+		for (final Node child : node.children) {
+			if (child != null) {
+				n += subtreeCount(child);
+			}
+		}
+		return n;
+	}
+
+	/** Makes node a leaf with the sums of its subtree, returns the leaves removed. */
+	private static int fold(Node node) {
+		if (node.leaf) {
+			return 1;
+		}
+		int removed = 0;
+		for (int i = 0; i < 8; i++) {
+			final Node child = node.children[i];
+			if (child != null) {
+				removed += fold(child);
+				node.r += child.r;
+				node.g += child.g;
+				node.b += child.b;
+				node.count += child.count;
+				node.children[i] = null;
+			}
+		}
+		node.nchildren = 0;
+		node.leaf = true;
+		return removed;
+	}
+
+	private static int collect(Node node, byte[] rs, byte[] gs, byte[] bs, int n) {
+		if (node.leaf) {
+			if (node.count > 0) {
+				rs[n] = (byte) (node.r / node.count);
+				gs[n] = (byte) (node.g / node.count);
+				bs[n] = (byte) (node.b / node.count);
+				return n + 1;
+			}
+			return n;
+		}
+		for (final Node child : node.children) {
+			if (child != null) {
+				n = collect(child, rs, gs, bs, n);
+			}
+		}
+		return n;
+	}
+}
@@ -0,0 +1,27 @@
+package com.bzsoft.oworld.assets.tools;
+
+import java.awt.image.IndexColorModel;
+
+/**
+ * Builds a palette from a 15-bit histogram, see
+ * {@link IndexColorModelProcessor#accumulate(int[], int[], int, int)}. The
+ * palette holds at most maxColors opaque colors followed by one fully
+ * transparent entry, which is the transparent pixel of the model.
+ */
+public interface Quantizer {
+
+	public static enum Type {
+		/** Heckbert median cut, {@link IndexColorModelProcessor}. */
+		MEDIANCUT,
+		/** Octree reduction of the deepest, least populated nodes. */
+		OCTREE,
+		/** Median cut refined with weighted k-means, slowest and best. */
+		KMEANS
+	}
+
+	public Type getType();
+
+	/** Must not modify hist. */
+	public IndexColorModel createColorModel(int[] hist, int maxColors);
+
+}
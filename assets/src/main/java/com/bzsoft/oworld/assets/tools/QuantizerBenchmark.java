@@ -0,0 +1,82 @@
+package com.bzsoft.oworld.assets.tools;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import com.bzsoft.oworld.R;
+
+/**
+ * Runs every {@link Quantizer} on the frames of each bundled character, one
+ * shared palette per character, and prints PSNR and time. Also compares the
+ * serial histogram with the banded parallel one and reports the quantizer
+ * {@link Quantizers#select} picks for the given quality bar.
+ * <p>
+ * Usage: QuantizerBenchmark [maxColors] [minPsnr]
+ */
+public final class QuantizerBenchmark {
+
+	private QuantizerBenchmark() {
+		// empty
+	}
+
+	private static int[] loadPixels(int c) throws IOException {
+		final int first = R.CharInfo.characterFirstFrame(c);
+		final int count = R.CharInfo.characterFrameCount(c);
+		final List<int[]> frames = new ArrayList<>();
+		int total = 0;
+		for (int f = first; f < first + count; f++) {
+			try (InputStream is = QuantizerBenchmark.class.getClassLoader()
+					.getResourceAsStream(R.CharInfo.frameUrl(f))) {
+				final BufferedImage img = ImageIO.read(is);
+				final int[] argb = RasterKernels.toArgb(img);
+				frames.add(argb);
+				total += argb.length;
+			}
+		}
+		final int[] all = new int[total];
+		int off = 0;
+		for (final int[] argb : frames) {
+			System.arraycopy(argb, 0, all, off, argb.length);
+			off += argb.length;
+		}
+		return all;
+	}
+
+	public static void main(String[] args) throws Exception {
+		final int maxColors = args.length > 0 ? Integer.parseInt(args[0]) : 255;
+		final double minPsnr = args.length > 1 ? Double.parseDouble(args[1]) : 36;
+		final int bands = Runtime.getRuntime().availableProcessors();
+		final List<Quantizer> candidates = Arrays.asList(new OctreeQuantizer(), new MedianCutQuantizer(),
+				new KMeansQuantizer());
+		for (int c = 0; c < R.CharInfo.characterCount(); c++) {
+			final int[] pixels = loadPixels(c);
+			// warm up
+			Quantizers.histogram(pixels, 1, bands);
+			long t = System.nanoTime();
+			final int[] serial = IndexColorModelProcessor.createHistogram();
+			IndexColorModelProcessor.accumulate(serial, pixels, 0, pixels.length);
+			final long serialTime = System.nanoTime() - t;
+			t = System.nanoTime();
+			// one pixel wide rows, the bands split the concatenated frames evenly
+			final int[] hist = Quantizers.histogram(pixels, 1, bands);
+			final long parallelTime = System.nanoTime() - t;
+			if (!Arrays.equals(serial, hist)) {
+				throw new IllegalStateException("Parallel histogram mismatch");
+			}
+			System.out.printf("%s: %d pixels, histogram serial %.2f ms, %d bands %.2f ms%n",
+					R.CharInfo.characterName(c), pixels.length, serialTime / 1e6, bands, parallelTime / 1e6);
+			for (final Quantizer q : candidates) {
+				Quantizers.run(q, hist, maxColors, pixels);
+				System.out.println("  " + Quantizers.run(q, hist, maxColors, pixels));
+			}
+			System.out.println("  selected for " + minPsnr + " dB: "
+					+ Quantizers.select(candidates, hist, maxColors, pixels, minPsnr));
+		}
+	}
+}
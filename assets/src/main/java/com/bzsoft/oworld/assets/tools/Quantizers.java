@@ -0,0 +1,159 @@
+package com.bzsoft.oworld.assets.tools;
+
+import java.awt.image.IndexColorModel;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Quantizer factory plus the parallel histogram, the quality metric and the
+ * selection of the fastest quantizer meeting a PSNR bar.
+ */
+public final class Quantizers {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(Quantizers.class);
+
+	/** System property naming the default {@link Quantizer.Type}. */
+	public static final String PROPERTY = "oworld.quantizer";
+
+	private Quantizers() {
+		// empty
+	}
+
+	public static final Quantizer create(Quantizer.Type type) {
+		switch (type) {
+		case OCTREE:
+			return new OctreeQuantizer();
+		case KMEANS:
+			return new KMeansQuantizer();
+		case MEDIANCUT:
+		default:
+			return new MedianCutQuantizer();
+		}
+	}
+
+	/** The quantizer named by {@link #PROPERTY}, median cut by default. */
+	public static final Quantizer create() {
+		final String s = System.getProperty(PROPERTY);
+		if (s == null) {
+			return create(Quantizer.Type.MEDIANCUT);
+		}
+		try {
+			return create(Quantizer.Type.valueOf(s.trim().toUpperCase()));
+		} catch (final IllegalArgumentException e) {
+			LOGGER.warn("Unknown quantizer {}, using median cut", s);
+			return create(Quantizer.Type.MEDIANCUT);
+		}
+	}
+
+	/**
+	 * 15-bit histogram of an image, one histogram per horizontal band built in
+	 * parallel and merged.
+	 */
+	public static final int[] histogram(int[] argb, int width, int bands) {
+		final int height = argb.length / width;
+		final int rows = Math.max(1, (height + bands - 1) / bands);
+		final int nbands = (height + rows - 1) / rows;
+		return IntStream.range(0, nbands).parallel().mapToObj(band -> {
+			final int[] h = IndexColorModelProcessor.createHistogram();
+			final int y0 = band * rows;
+			final int y1 = Math.min(height, y0 + rows);
+			IndexColorModelProcessor.accumulate(h, argb, y0 * width, (y1 - y0) * width);
+			return h;
+		}).reduce(IndexColorModelProcessor::merge).orElseGet(IndexColorModelProcessor::createHistogram);
+	}
+
+	/**
+	 * Peak signal to noise ratio in dB of the indexed pixels against the
+	 * original over the opaque pixels, infinite when identical.
+	 */
+	public static final double psnr(int[] argb, byte[] indices, IndexColorModel cm) {
+		final int size = cm.getMapSize();
+		final int[] rgbs = new int[size];
+		cm.getRGBs(rgbs);
+		long se = 0;
+		long n = 0;
+		for (int i = 0; i < argb.length; i++) {
+			final int c = argb[i];
+			if ((c >>> 24) == 0) {
+				continue;
+			}
+			final int q = rgbs[indices[i] & 0xff];
+			final int dr = ((c >> 16) & 0xff) - ((q >> 16) & 0xff);
+			final int dg = ((c >> 8) & 0xff) - ((q >> 8) & 0xff);
+			final int db = (c & 0xff) - (q & 0xff);
+			se += dr * dr + dg * dg + db * db;
+			n += 3;
+		}
+		if (se == 0 || n == 0) {
+			return Double.POSITIVE_INFINITY;
+		}
+		final double mse = (double) se / n;
+		return 10 * Math.log10(255.0 * 255.0 / mse);
+	}
+
+	/** Outcome of one quantizer run. */
+	public static final class Result {
+		public final Quantizer.Type type;
+		public final IndexColorModel colorModel;
+		public final double psnr;
+		public final long nanos;
+
+		private Result(Quantizer.Type type, IndexColorModel colorModel, double psnr, long nanos) {
+			this.type = type;
+			this.colorModel = colorModel;
+			this.psnr = psnr;
+			this.nanos = nanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d colors, %.2f dB, %.1f ms", type, colorModel.getMapSize() - 1, psnr,
+					nanos / 1e6);
+		}
+	}
+
+	/**
+	 * Runs q on hist and measures the palette build plus the remap of sample,
+	 * which should be the pixels the histogram was built from.
+	 */
+	public static final Result run(Quantizer q, int[] hist, int maxColors, int[] sample) {
+		final long t0 = System.nanoTime();
+		final IndexColorModel cm;
+		final IndexColorModelProcessor icmp;
+		if (q.getType() == Quantizer.Type.MEDIANCUT) {
+			// the median cut leaves its own inverse map in the histogram
+			icmp = new IndexColorModelProcessor(hist.clone());
+			cm = icmp.createColorModel(maxColors);
+		} else {
+			cm = q.createColorModel(hist, maxColors);
+			icmp = IndexColorModelProcessor.ofColorModel(cm);
+		}
+		final byte[] indices = icmp.map(sample, new byte[sample.length]);
+		final long nanos = System.nanoTime() - t0;
+		return new Result(q.getType(), cm, psnr(sample, indices, cm), nanos);
+	}
+
+	/**
+	 * Runs every candidate and returns the fastest whose PSNR on sample reaches
+	 * minPsnr, or the best scoring one when none does.
+	 */
+	public static final Result select(List<Quantizer> candidates, int[] hist, int maxColors, int[] sample,
+			double minPsnr) {
+		Result fastest = null;
+		Result best = null;
+		for (final Quantizer q : candidates) {
+			final Result r = run(q, hist, maxColors, sample);
+			LOGGER.debug("{}", r);
+			if (r.psnr >= minPsnr && (fastest == null || r.nanos < fastest.nanos)) {
+				fastest = r;
+			}
+			if (best == null || r.psnr > best.psnr) {
+				best = r;
+			}
+		}
+		return fastest != null ? fastest : best;
+	}
+}
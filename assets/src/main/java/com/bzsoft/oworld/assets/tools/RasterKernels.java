@@ -0,0 +1,271 @@
+package com.bzsoft.oworld.assets.tools;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Image kernels working on the backing arrays of {@link DataBufferInt} and
+ * {@link DataBufferByte} rasters instead of per pixel getRGB/setRGB calls. Used
+ * by the offline tools and by the runtime loader.
+ */
+public final class RasterKernels {
+
+	private static final int[] ARGB_MASKS = { 0xff0000, 0xff00, 0xff, 0xff000000 };
+	private static final DirectColorModel ARGB = new DirectColorModel(32, ARGB_MASKS[0], ARGB_MASKS[1],
+			ARGB_MASKS[2], ARGB_MASKS[3]);
+
+	private RasterKernels() {
+		// empty
+	}
+
+	/** Wraps an ARGB array, row stride w, as a TYPE_INT_ARGB image without copying. */
+	public static final BufferedImage wrap(int[] argb, int w, int h) {
+		final DataBuffer db = new DataBufferInt(argb, w * h);
+		final WritableRaster r = Raster.createPackedRaster(db, w, h, w, ARGB_MASKS, null);
+		return new BufferedImage(ARGB, r, false, null);
+	}
+
+	/**
+	 * Returns the ARGB pixels of img, row stride width. The backing array itself
+	 * is returned when img is an unshared TYPE_INT_ARGB image, otherwise the
+	 * pixels are converted with one bulk call.
+	 */
+	public static final int[] toArgb(BufferedImage img) {
+		final int w = img.getWidth();
+		final int h = img.getHeight();
+		if (img.getType() == BufferedImage.TYPE_INT_ARGB) {
+			final Raster r = img.getRaster();
+			if (r.getDataBuffer() instanceof DataBufferInt && r.getParent() == null
+					&& r.getSampleModel() instanceof SinglePixelPackedSampleModel
+					&& ((SinglePixelPackedSampleModel) r.getSampleModel()).getScanlineStride() == w) {
+				final int[] data = ((DataBufferInt) r.getDataBuffer()).getData();
+				if (data.length == w * h) {
+					return data;
+				}
+			}
+		}
+		return img.getRGB(0, 0, w, h, null, 0, w);
+	}
+
+	/**
+	 * Returns the indices of an 8-bit indexed image with row stride width, or
+	 * null when img is not a plain TYPE_BYTE_INDEXED image.
+	 */
+	public static final byte[] toIndices(BufferedImage img) {
+		if (img.getType() != BufferedImage.TYPE_BYTE_INDEXED) {
+			return null;
+		}
+		final Raster r = img.getRaster();
+		if (!(r.getDataBuffer() instanceof DataBufferByte) || r.getParent() != null) {
+			return null;
+		}
+		final byte[] data = ((DataBufferByte) r.getDataBuffer()).getData();
+		return data.length == img.getWidth() * img.getHeight() ? data : null;
+	}
+
+	/**
+	 * In place color key: pixels equal to key, ignoring alpha, become 0 (fully
+	 * transparent), the others become opaque.
+	 */
+	public static final void colorKeyToAlpha(int[] argb, int key) {
+		final int k = key & 0xffffff;
+		for (int i = 0; i < argb.length; i++) {
+			final int c = argb[i] & 0xffffff;
+			argb[i] = c == k ? 0 : 0xff000000 | c;
+		}
+	}
+
+	/** 256 bin histogram of palette indices. */
+	public static final int[] histogram(byte[] indices, int[] hist) {
+		if (hist == null) {
+			hist = new int[256];
+		}
+		for (int i = 0; i < indices.length; i++) {
+			hist[indices[i] & 0xff]++;
+		}
+		return hist;
+	}
+
+	/**
+	 * Most frequent ARGB value, counted with an open addressing primitive hash
+	 * table. Ties keep the first color reached in the table.
+	 */
+	public static final int mostFrequent(int[] argb) {
+		if (argb.length == 0) {
+			return 0;
+		}
+		int cap = 1024;
+		int[] keys = new int[cap];
+		int[] counts = new int[cap];
+		int size = 0;
+		int best = argb[0];
+		int bestCount = 0;
+		for (int i = 0; i < argb.length; i++) {
+			final int c = argb[i];
+			int mask = cap - 1;
+			int slot = mix(c) & mask;
+			while (counts[slot] != 0 && keys[slot] != c) {
+				slot = (slot + 1) & mask;
+			}
+			if (counts[slot] == 0) {
+				keys[slot] = c;
+				if (++size * 2 > cap) {
+					// grow, then look the color up again
+					final int[] okeys = keys;
+					final int[] ocounts = counts;
+					cap <<= 1;
+					mask = cap - 1;
+					keys = new int[cap];
+					counts = new int[cap];
+					for (int j = 0; j < okeys.length; j++) {
+						if (ocounts[j] != 0) {
+							int s = mix(okeys[j]) & mask;
+							while (counts[s] != 0) {
+								s = (s + 1) & mask;
+							}
+							keys[s] = okeys[j];
+							counts[s] = ocounts[j];
+						}
+					}
+					slot = mix(c) & mask;
+					while (counts[slot] != 0) {
+						slot = (slot + 1) & mask;
+					}
+					keys[slot] = c;
+				}
+			}
+			final int n = ++counts[slot];
+			if (n > bestCount) {
+				bestCount = n;
+				best = c;
+			}
+		}
+		return best;
+	}
+
+	private static final int mix(int h) {
+		h *= 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Smallest rectangle holding every pixel different from 0, null when there is
+	 * none.
+	 */
+	public static final Rectangle opaqueBounds(int[] argb, int w, int h) {
+		int y0 = 0;
+		while (y0 < h && rowEmpty(argb, y0 * w, w)) {
+			y0++;
+		}
+		if (y0 == h) {
+			return null;
+		}
+		int y1 = h - 1;
+		while (rowEmpty(argb, y1 * w, w)) {
+			y1--;
+		}
+		int x0 = w;
+		int x1 = -1;
+		for (int y = y0; y <= y1; y++) {
+			final int off = y * w;
+			int x = 0;
+			while (x < x0 && argb[off + x] == 0) {
+				x++;
+			}
+			if (x < x0) {
+				x0 = x;
+			}
+			x = w - 1;
+			while (x > x1 && argb[off + x] == 0) {
+				x--;
+			}
+			if (x > x1) {
+				x1 = x;
+			}
+		}
+		return new Rectangle(x0, y0, x1 - x0 + 1, y1 - y0 + 1);
+	}
+
+	private static final boolean rowEmpty(int[] argb, int off, int w) {
+		for (int i = off, end = off + w; i < end; i++) {
+			if (argb[i] != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Smallest rectangle holding every index different from transparent, null
+	 * when there is none.
+	 */
+	public static final Rectangle opaqueBounds(byte[] indices, int w, int h, int transparent) {
+		final byte t = (byte) transparent;
+		int y0 = 0;
+		while (y0 < h && rowEmpty(indices, y0 * w, w, t)) {
+			y0++;
+		}
+		if (y0 == h) {
+			return null;
+		}
+		int y1 = h - 1;
+		while (rowEmpty(indices, y1 * w, w, t)) {
+			y1--;
+		}
+		int x0 = w;
+		int x1 = -1;
+		for (int y = y0; y <= y1; y++) {
+			final int off = y * w;
+			int x = 0;
+			while (x < x0 && indices[off + x] == t) {
+				x++;
+			}
+			if (x < x0) {
+				x0 = x;
+			}
+			x = w - 1;
+			while (x > x1 && indices[off + x] == t) {
+				x--;
+			}
+			if (x > x1) {
+				x1 = x;
+			}
+		}
+		return new Rectangle(x0, y0, x1 - x0 + 1, y1 - y0 + 1);
+	}
+
+	private static final boolean rowEmpty(byte[] indices, int off, int w, byte t) {
+		for (int i = off, end = off + w; i < end; i++) {
+			if (indices[i] != t) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Bounds of the non transparent pixels of any image, using the byte kernel
+	 * for indexed images with a transparent index and the int kernel otherwise.
+	 */
+	public static final Rectangle opaqueBounds(BufferedImage img) {
+		final int w = img.getWidth();
+		final int h = img.getHeight();
+		final byte[] indices = toIndices(img);
+		if (indices != null && img.getColorModel() instanceof IndexColorModel) {
+			final IndexColorModel cm = (IndexColorModel) img.getColorModel();
+			final int transparent = cm.getTransparentPixel();
+			if (transparent >= 0) {
+				return opaqueBounds(indices, w, h, transparent);
+			}
+		}
+		return opaqueBounds(toArgb(img), w, h);
+	}
+}
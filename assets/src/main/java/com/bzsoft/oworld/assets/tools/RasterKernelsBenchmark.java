@@ -0,0 +1,167 @@
+package com.bzsoft.oworld.assets.tools;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import com.bzsoft.oworld.R;
+
+/**
+ * Compares {@link RasterKernels} with the per pixel getRGB/setRGB code they
+ * replaced, over the bundled character frames drawn on a color key
+ * background.
+ * <p>
+ * Usage: RasterKernelsBenchmark [rounds]
+ */
+public final class RasterKernelsBenchmark {
+
+	private static final int KEY = 0xff00ff;
+
+	private RasterKernelsBenchmark() {
+		// empty
+	}
+
+	// legacy per pixel versions, kept here as the baseline
+
+	private static BufferedImage legacyColorKey(BufferedImage input) {
+		final int width = input.getWidth();
+		final int height = input.getHeight();
+		final BufferedImage output = new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
+		final int p = legacyMostFrequent(input, width, height);
+		final WritableRaster wra = output.getAlphaRaster();
+		for (int i = 0; i < width; i++) {
+			for (int j = 0; j < height; j++) {
+				if (input.getRGB(i, j) == p) {
+					wra.setSample(i, j, 0, 0);
+				}
+			}
+		}
+		for (int i = 0; i < width; i++) {
+			for (int j = 0; j < height; j++) {
+				final int po = input.getRGB(i, j);
+				output.setRGB(i, j, po != p ? po : 0);
+			}
+		}
+		return output;
+	}
+
+	private static int legacyMostFrequent(BufferedImage input, int width, int height) {
+		final Map<Integer, Integer> mHisto = new HashMap<>();
+		for (int i = 0; i < width; i++) {
+			for (int j = 0; j < height; j++) {
+				mHisto.merge(input.getRGB(i, j), 1, Integer::sum);
+			}
+		}
+		int best = 0;
+		int count = -1;
+		for (final Map.Entry<Integer, Integer> e : mHisto.entrySet()) {
+			if (e.getValue() > count) {
+				count = e.getValue();
+				best = e.getKey();
+			}
+		}
+		return best;
+	}
+
+	private static Rectangle legacyBounds(BufferedImage input) {
+		final int width = input.getWidth();
+		final int height = input.getHeight();
+		int x = 0, y = 0, x2 = width - 1, y2 = height - 1;
+		while (x < width && columnEmpty(input, x)) {
+			x++;
+		}
+		while (y < height && rowEmpty(input, y)) {
+			y++;
+		}
+		while (x2 > x && columnEmpty(input, x2)) {
+			x2--;
+		}
+		while (y2 > y && rowEmpty(input, y2)) {
+			y2--;
+		}
+		return new Rectangle(x, y, x2 - x + 1, y2 - y + 1);
+	}
+
+	private static boolean columnEmpty(BufferedImage img, int x) {
+		for (int j = 0; j < img.getHeight(); j++) {
+			if (img.getRGB(x, j) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean rowEmpty(BufferedImage img, int y) {
+		for (int i = 0; i < img.getWidth(); i++) {
+			if (img.getRGB(i, y) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static List<BufferedImage> loadFrames() throws Exception {
+		final List<BufferedImage> frames = new ArrayList<>();
+		for (int i = 0; i < R.CharInfo.frameCount(); i++) {
+			try (InputStream is = RasterKernelsBenchmark.class.getClassLoader()
+					.getResourceAsStream(R.CharInfo.frameUrl(i))) {
+				final BufferedImage src = ImageIO.read(is);
+				final BufferedImage img = new BufferedImage(src.getWidth() + 32, src.getHeight() + 32,
+						BufferedImage.TYPE_INT_RGB);
+				final Graphics2D g = img.createGraphics();
+				g.setColor(new Color(KEY));
+				g.fillRect(0, 0, img.getWidth(), img.getHeight());
+				g.drawImage(src, 16, 16, null);
+				g.dispose();
+				frames.add(img);
+			}
+		}
+		return frames;
+	}
+
+	public static void main(String[] args) throws Exception {
+		final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+		final List<BufferedImage> frames = loadFrames();
+		long pixels = 0;
+		for (final BufferedImage img : frames) {
+			pixels += (long) img.getWidth() * img.getHeight();
+		}
+		System.out.println("Frames: " + frames.size() + ", pixels: " + pixels + ", rounds: " + rounds);
+		final ImageProcessor ip = new ImageProcessor();
+		for (int r = 0; r <= rounds; r++) {
+			long legacyKey = 0, kernelKey = 0, legacyTrim = 0, kernelTrim = 0;
+			for (final BufferedImage img : frames) {
+				long t = System.nanoTime();
+				final BufferedImage a = legacyColorKey(img);
+				legacyKey += System.nanoTime() - t;
+				t = System.nanoTime();
+				final BufferedImage b = ip.processImage(img);
+				kernelKey += System.nanoTime() - t;
+				t = System.nanoTime();
+				final Rectangle ra = legacyBounds(a);
+				legacyTrim += System.nanoTime() - t;
+				t = System.nanoTime();
+				final Rectangle rb = RasterKernels.opaqueBounds(b);
+				kernelTrim += System.nanoTime() - t;
+				if (!ra.equals(rb)) {
+					throw new IllegalStateException("Bounds mismatch " + ra + " " + rb);
+				}
+			}
+			if (r == 0) {
+				continue; // warm up
+			}
+			System.out.printf("color key: legacy %8.1f ms, kernels %7.1f ms (x%.1f)   "
+					+ "trim: legacy %7.1f ms, kernels %6.1f ms (x%.1f)%n", legacyKey / 1e6, kernelKey / 1e6, (double) legacyKey / kernelKey, legacyTrim / 1e6,
+					kernelTrim / 1e6, (double) legacyTrim / kernelTrim);
+		}
+	}
+}
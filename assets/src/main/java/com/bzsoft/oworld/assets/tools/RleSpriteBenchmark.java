@@ -0,0 +1,107 @@
+package com.bzsoft.oworld.assets.tools;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.InputStream;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import com.bzsoft.oworld.R;
+import com.bzsoft.oworld.assets.impl.RleSprite;
+
+/**
+ * Draws the bundled character frames at random positions into a TYPE_INT_RGB
+ * back buffer with drawImage and with {@link RleSprite#blit}, counts the
+ * pixels where they differ and prints the time of each.
+ * <p>
+ * Usage: RleSpriteBenchmark [sprites per round] [rounds]
+ */
+public final class RleSpriteBenchmark {
+
+	private static final int WIDTH = 1280;
+	private static final int HEIGHT = 800;
+
+	private RleSpriteBenchmark() {
+		// empty
+	}
+
+	private static BufferedImage toIntArgbPre(BufferedImage img) {
+		final BufferedImage out = new BufferedImage(img.getWidth(), img.getHeight(),
+				BufferedImage.TYPE_INT_ARGB_PRE);
+		final Graphics2D g = out.createGraphics();
+		g.setComposite(AlphaComposite.Src);
+		g.drawImage(img, 0, 0, null);
+		g.dispose();
+		return out;
+	}
+
+	public static void main(String[] args) throws Exception {
+		final int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		final int nframes = R.CharInfo.frameCount();
+		final BufferedImage[] images = new BufferedImage[nframes];
+		final RleSprite[] sprites = new RleSprite[nframes];
+		long pixels = 0;
+		long opaque = 0;
+		long spans = 0;
+		for (int f = 0; f < nframes; f++) {
+			try (InputStream is = RleSpriteBenchmark.class.getClassLoader()
+					.getResourceAsStream(R.CharInfo.frameUrl(f))) {
+				images[f] = toIntArgbPre(ImageIO.read(is));
+			}
+			sprites[f] = RleSprite.of(ImageIO.read(RleSpriteBenchmark.class.getClassLoader()
+					.getResourceAsStream(R.CharInfo.frameUrl(f))));
+			pixels += (long) images[f].getWidth() * images[f].getHeight();
+			opaque += sprites[f].getPixelCount();
+			spans += sprites[f].getSpanCount();
+		}
+		System.out.printf("Frames: %d, %.1f%% non transparent pixels, %.1f spans per frame%n", nframes,
+				100.0 * opaque / pixels, (double) spans / nframes);
+		final Random rnd = new Random(1);
+		final int[] xs = new int[count];
+		final int[] ys = new int[count];
+		final int[] fs = new int[count];
+		for (int i = 0; i < count; i++) {
+			xs[i] = rnd.nextInt(WIDTH + 100) - 100;
+			ys[i] = rnd.nextInt(HEIGHT + 100) - 100;
+			fs[i] = rnd.nextInt(nframes);
+		}
+		final BufferedImage a = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		final BufferedImage b = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		final int[] bpixels = ((DataBufferInt) b.getRaster().getDataBuffer()).getData();
+		long tDraw = 0;
+		long tBlit = 0;
+		for (int r = -2; r < rounds; r++) {
+			final Graphics2D g = a.createGraphics();
+			long t = System.nanoTime();
+			for (int i = 0; i < count; i++) {
+				g.drawImage(images[fs[i]], xs[i], ys[i], null);
+			}
+			g.dispose();
+			final long t1 = System.nanoTime();
+			for (int i = 0; i < count; i++) {
+				sprites[fs[i]].blit(bpixels, WIDTH, HEIGHT, xs[i], ys[i]);
+			}
+			final long t2 = System.nanoTime();
+			// warm up rounds are not counted
+			if (r >= 0) {
+				tDraw += t1 - t;
+				tBlit += t2 - t1;
+			}
+		}
+		final int[] apixels = ((DataBufferInt) a.getRaster().getDataBuffer()).getData();
+		int diff = 0;
+		for (int i = 0; i < apixels.length; i++) {
+			// the unused top byte of TYPE_INT_RGB may differ
+			if (((apixels[i] ^ bpixels[i]) & 0xffffff) != 0) {
+				diff++;
+			}
+		}
+		System.out.println("Different pixels: " + diff);
+		System.out.printf("drawImage %8.2f ms/round%nRLE blit  %8.2f ms/round%n", tDraw / 1e6 / rounds,
+				tBlit / 1e6 / rounds);
+	}
+}
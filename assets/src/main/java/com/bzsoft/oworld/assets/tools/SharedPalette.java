@@ -0,0 +1,147 @@
+package com.bzsoft.oworld.assets.tools;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.imageio.ImageIO;
+
+/**
+ * One palette for a whole character or tileset: a single histogram is
+ * accumulated over every frame, the {@link Quantizer} runs once and every
+ * frame is remapped to the result. Frames sharing a color model can be
+ * palette swapped at runtime, see IndexedCharacterSheet.
+ * <p>
+ * The palette is stored as a one row indexed PNG whose pixel i is index i.
+ */
+public final class SharedPalette {
+
+	public static final String PALETTEFILE = "palette.png";
+
+	private SharedPalette() {
+		// empty
+	}
+
+	private static final BufferedImage read(File f) {
+		try {
+			final BufferedImage img = ImageIO.read(f);
+			if (img == null) {
+				throw new IOException("Unsupported image format " + f);
+			}
+			return img;
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Accumulates the histogram of every file in parallel, one histogram per
+	 * worker merged at the end, and builds the palette with the quantizer named
+	 * by {@link Quantizers#PROPERTY}.
+	 */
+	public static final IndexColorModelProcessor build(File[] files, int maxColors) {
+		return build(files, maxColors, Quantizers.create());
+	}
+
+	public static final IndexColorModelProcessor build(File[] files, int maxColors, Quantizer quantizer) {
+		final int[] hist = Arrays.stream(files).parallel().map(f -> {
+			final int[] argb = RasterKernels.toArgb(read(f));
+			final int[] h = IndexColorModelProcessor.createHistogram();
+			IndexColorModelProcessor.accumulate(h, argb, 0, argb.length);
+			return h;
+		}).reduce(IndexColorModelProcessor::merge).orElseGet(IndexColorModelProcessor::createHistogram);
+		return build(hist, maxColors, quantizer);
+	}
+
+	/** Builds the palette of a histogram accumulated by the caller. */
+	public static final IndexColorModelProcessor build(int[] hist, int maxColors, Quantizer quantizer) {
+		if (quantizer.getType() != Quantizer.Type.MEDIANCUT) {
+			return IndexColorModelProcessor.ofColorModel(quantizer.createColorModel(hist, maxColors));
+		}
+		final IndexColorModelProcessor icmp = new IndexColorModelProcessor(hist);
+		icmp.createColorModel(maxColors);
+		return icmp;
+	}
+
+	/** Indexed image of img in the palette of icmp. */
+	public static final BufferedImage remap(BufferedImage img, IndexColorModelProcessor icmp) {
+		final int w = img.getWidth();
+		final int h = img.getHeight();
+		final int[] argb = RasterKernels.toArgb(img);
+		final byte[] pixels = icmp.map(argb, new byte[argb.length]);
+		final WritableRaster r = Raster.createInterleavedRaster(new DataBufferByte(pixels, pixels.length), w, h, w, 1,
+				new int[] { 0 }, null);
+		return new BufferedImage(icmp.getColorModel(), r, false, null);
+	}
+
+	private static final byte[] encode(IndexColorModel cm) throws IOException {
+		final int size = cm.getMapSize();
+		final BufferedImage img = new BufferedImage(size, 1, BufferedImage.TYPE_BYTE_INDEXED, cm);
+		final byte[] pixels = ((DataBufferByte) img.getRaster().getDataBuffer()).getData();
+		for (int i = 0; i < size; i++) {
+			pixels[i] = (byte) i;
+		}
+		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ImageIO.write(img, "PNG", baos);
+		return baos.toByteArray();
+	}
+
+	public static final void write(IndexColorModel cm, File f) throws IOException {
+		Files.write(f.toPath(), encode(cm));
+	}
+
+	/**
+	 * Writes cm to f unless f already holds it, returns whether f changed. The
+	 * png does not keep the alpha of trailing opaque entries, so the encoded
+	 * bytes are compared rather than the color model read back.
+	 */
+	public static final boolean update(IndexColorModel cm, File f) throws IOException {
+		final byte[] data = encode(cm);
+		if (f.isFile() && Arrays.equals(data, Files.readAllBytes(f.toPath()))) {
+			return false;
+		}
+		Files.write(f.toPath(), data);
+		return true;
+	}
+
+	/** Reads a palette written by {@link #write(IndexColorModel, File)}. */
+	public static final IndexColorModel read(InputStream is) throws IOException {
+		final BufferedImage img = ImageIO.read(is);
+		if (img == null || !(img.getColorModel() instanceof IndexColorModel)) {
+			throw new IOException("Bad palette format");
+		}
+		return (IndexColorModel) img.getColorModel();
+	}
+
+	/**
+	 * Quantizes every png of fDirInput to one shared palette, writes the
+	 * indexed frames and {@link #PALETTEFILE} to fDirOutput.
+	 */
+	public static final IndexColorModel process(File fDirInput, File fDirOutput, int maxColors)
+			throws IOException {
+		if (!fDirOutput.exists()) {
+			fDirOutput.mkdirs();
+		}
+		final File[] flist = Arrays.stream(fDirInput.listFiles(new ImageProcessor.SuffixFileFilter("png")))
+				.filter(f -> !PALETTEFILE.equals(f.getName())).toArray(File[]::new);
+		final IndexColorModelProcessor icmp = build(flist, maxColors);
+		Arrays.stream(flist).parallel().forEach(f -> {
+			try {
+				ImageIO.write(remap(read(f), icmp), "PNG", new File(fDirOutput, f.getName()));
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+		write(icmp.getColorModel(), new File(fDirOutput, PALETTEFILE));
+		return icmp.getColorModel();
+	}
+}
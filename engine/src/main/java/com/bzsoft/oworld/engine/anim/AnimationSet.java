@@ -0,0 +1,227 @@
+package com.bzsoft.oworld.engine.anim;
+
+import java.util.Arrays;
+
+import com.bzsoft.oworld.R;
+import com.bzsoft.oworld.engine.Direction;
+import com.bzsoft.oworld.engine.Status;
+
+/**
+ * The clips of one character, one per {@link Status} and {@link Direction},
+ * as runs of consecutive {@link R.CharInfo} frames. Missing clips are filled
+ * at build time: first from the nearest direction of the same status, then
+ * from the first idle status the character has (STOPPED, PAUSED, LOOKING,
+ * WALKING), so every lookup is two array reads. Looping clips
+ * repeat; one-shot clips play once and then hand over to their next status,
+ * or hold their last frame when that is themselves, like TIPPINGOVER.
+ */
+public final class AnimationSet {
+
+	private static final int DIRECTIONS = Direction.values().length;
+	private static final Status[] STATUSES = Status.values();
+	private static final Status[] IDLE = { Status.STOPPED, Status.PAUSED, Status.LOOKING, Status.WALKING };
+	/** Directions from closest to farthest, by ordinal. */
+	private static final int[][] NEAREST = new int[DIRECTIONS][];
+
+	static {
+		// compass angle of each direction, N = 0, clockwise
+		final int[] angle = new int[DIRECTIONS];
+		angle[Direction.N.ordinal()] = 0;
+		angle[Direction.NE.ordinal()] = 1;
+		angle[Direction.E.ordinal()] = 2;
+		angle[Direction.SE.ordinal()] = 3;
+		angle[Direction.S.ordinal()] = 4;
+		angle[Direction.SW.ordinal()] = 5;
+		angle[Direction.W.ordinal()] = 6;
+		angle[Direction.NW.ordinal()] = 7;
+		for (int d = 0; d < DIRECTIONS; d++) {
+			final Integer[] order = new Integer[DIRECTIONS];
+			for (int o = 0; o < DIRECTIONS; o++) {
+				order[o] = o;
+			}
+			final int from = angle[d];
+			Arrays.sort(order, (a, b) -> Integer.compare(distance(from, angle[a]), distance(from, angle[b])));
+			NEAREST[d] = new int[DIRECTIONS];
+			for (int o = 0; o < DIRECTIONS; o++) {
+				NEAREST[d][o] = order[o];
+			}
+		}
+	}
+
+	private final int frameMillis;
+	private final int[] first;
+	private final int[] count;
+	private final boolean[] looping;
+	private final byte[] next;
+
+	private AnimationSet(int frameMillis, int[] first, int[] count) {
+		this.frameMillis = frameMillis;
+		this.first = first;
+		this.count = count;
+		this.looping = new boolean[STATUSES.length];
+		this.next = new byte[STATUSES.length];
+		for (final Status s : STATUSES) {
+			looping[s.ordinal()] = isLooping(s);
+			next[s.ordinal()] = (byte) nextStatus(s).ordinal();
+		}
+	}
+
+	private static final int distance(int a, int b) {
+		final int d = Math.abs(a - b);
+		return Math.min(d, DIRECTIONS - d);
+	}
+
+	/**
+	 * Builds a set from clips indexed by status ordinal * 8 + direction
+	 * ordinal, a count of 0 marking a missing clip.
+	 */
+	public static final AnimationSet of(int frameMillis, int[] first, int[] count) {
+		final int[] f = first.clone();
+		final int[] c = count.clone();
+		fillDirections(f, c);
+		final int[] idleFirst = new int[DIRECTIONS];
+		final int[] idleCount = new int[DIRECTIONS];
+		for (int d = 0; d < DIRECTIONS; d++) {
+			for (final Status idle : IDLE) {
+				final int clip = idle.ordinal() * DIRECTIONS + d;
+				if (c[clip] > 0) {
+					idleFirst[d] = f[clip];
+					idleCount[d] = c[clip];
+					break;
+				}
+			}
+		}
+		for (int s = 0; s < STATUSES.length; s++) {
+			for (int d = 0; d < DIRECTIONS; d++) {
+				final int clip = s * DIRECTIONS + d;
+				if (c[clip] == 0) {
+					f[clip] = idleFirst[d];
+					c[clip] = idleCount[d];
+				}
+			}
+		}
+		return new AnimationSet(frameMillis, f, c);
+	}
+
+	private static final void fillDirections(int[] f, int[] c) {
+		for (int s = 0; s < STATUSES.length; s++) {
+			final int base = s * DIRECTIONS;
+			for (int d = 0; d < DIRECTIONS; d++) {
+				if (c[base + d] > 0) {
+					continue;
+				}
+				for (final int o : NEAREST[d]) {
+					if (c[base + o] > 0) {
+						f[base + d] = f[base + o];
+						c[base + d] = c[base + o];
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	/** Builds the set of a character from the tables generated into {@link R.CharInfo}. */
+	public static final AnimationSet fromCharInfo(String character, int frameMillis) {
+		final int id = R.CharInfo.characterId(character);
+		if (id < 0) {
+			throw new IllegalArgumentException("Unknown character " + character);
+		}
+		final int[] first = new int[STATUSES.length * DIRECTIONS];
+		final int[] count = new int[first.length];
+		for (int state = 0; state < R.CharInfo.stateCount(); state++) {
+			final Status s = parseState(R.CharInfo.stateName(state));
+			if (s == null) {
+				continue;
+			}
+			for (int d = 0; d < DIRECTIONS; d++) {
+				final int clip = R.CharInfo.clip(id, state, d);
+				if (R.CharInfo.clipFirstFrame(clip) >= 0) {
+					first[s.ordinal() * DIRECTIONS + d] = R.CharInfo.clipFirstFrame(clip);
+					count[s.ordinal() * DIRECTIONS + d] = R.CharInfo.clipFrameCount(clip);
+				}
+			}
+		}
+		return of(frameMillis, first, count);
+	}
+
+	private static final Status parseState(String name) {
+		final String upper = name.toUpperCase();
+		for (final Status s : STATUSES) {
+			// the sprite sheets name ATTACKING "attack"
+			if (s.name().equals(upper) || s.name().equals(upper + "ING")) {
+				return s;
+			}
+		}
+		return null;
+	}
+
+	/** One-shot statuses play once, the others repeat. */
+	public static final boolean isLooping(Status s) {
+		switch (s) {
+		case BEENHIT:
+		case GREETING:
+		case SHOOTING:
+		case THROWING:
+		case TIPPINGOVER:
+		case ATTACKING:
+			return false;
+		default:
+			return true;
+		}
+	}
+
+	/** Status entered when a one-shot clip ends, itself to hold the last frame. */
+	public static final Status nextStatus(Status s) {
+		switch (s) {
+		case BEENHIT:
+		case GREETING:
+		case SHOOTING:
+		case THROWING:
+		case ATTACKING:
+			return Status.STOPPED;
+		default:
+			return s;
+		}
+	}
+
+	public int getFrameMillis() {
+		return frameMillis;
+	}
+
+	public int getFirstFrame(int status, int direction) {
+		return first[status * DIRECTIONS + direction];
+	}
+
+	public int getFrameCount(int status, int direction) {
+		return count[status * DIRECTIONS + direction];
+	}
+
+	public boolean isLooping(int status) {
+		return looping[status];
+	}
+
+	public int getNextStatus(int status) {
+		return next[status];
+	}
+
+	/**
+	 * Frame shown elapsed millis into the clip, -1 when the character has no
+	 * frame at all. One-shot clips stay on their last frame once done.
+	 */
+	public int frameAt(int status, int direction, int elapsed) {
+		final int clip = status * DIRECTIONS + direction;
+		final int n = count[clip];
+		if (n == 0) {
+			return -1;
+		}
+		final int step = Math.max(0, elapsed) / frameMillis;
+		return first[clip] + (looping[status] ? step % n : Math.min(step, n - 1));
+	}
+
+	/** True when a one-shot clip has shown all its frames for their time. */
+	public boolean isDone(int status, int direction, int elapsed) {
+		return !looping[status] && elapsed >= count[status * DIRECTIONS + direction] * frameMillis;
+	}
+
+}
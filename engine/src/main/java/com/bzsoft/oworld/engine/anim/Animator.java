@@ -0,0 +1,82 @@
+package com.bzsoft.oworld.engine.anim;
+
+import com.bzsoft.oworld.engine.ecs.Archetype;
+import com.bzsoft.oworld.engine.ecs.Component;
+import com.bzsoft.oworld.engine.ecs.EntitySystem;
+import com.bzsoft.oworld.engine.ecs.LodSystem;
+
+/**
+ * Sets the ANIMATION frame of every entity from its status and direction.
+ * A clip restarts when the status changes; a direction change keeps the
+ * phase, so turning while walking does not reset the step. The frame is
+ * computed from the millis elapsed since the clip started, nothing is
+ * stepped per tick. A finished one-shot clip switches the entity to the next
+ * status of its {@link AnimationSet}. With LOD, frames are only computed for
+ * entities on screen; off screen only one-shot clips are ended, so the frame
+ * is right again on the first tick the entity is visible.
+ */
+public final class Animator implements EntitySystem {
+
+	private final AnimationSet[] sets;
+	private volatile int now;
+
+	/** @param sets animation set per character id, see ANIMATION */
+	public Animator(AnimationSet[] sets) {
+		this.sets = sets.clone();
+	}
+
+	/** Simulation millis of the next update, set before each tick. */
+	public void setTime(int millis) {
+		this.now = millis;
+	}
+
+	@Override
+	public int getQuery() {
+		return Component.mask(Component.STATUS, Component.DIRECTION, Component.ANIMATION);
+	}
+
+	@Override
+	public int getReads() {
+		return Component.mask(Component.STATUS, Component.DIRECTION, Component.LOD);
+	}
+
+	@Override
+	public int getWrites() {
+		return Component.mask(Component.ANIMATION, Component.STATUS);
+	}
+
+	@Override
+	public void update(Archetype a, int from, int to, float dt) {
+		final int t = now;
+		final byte[] status = a.getStatus();
+		final byte[] direction = a.getDirection();
+		final int[] frame = a.getFrame();
+		final int[] character = a.getCharacter();
+		final int[] start = a.getClipStart();
+		final byte[] playing = a.getClipStatus();
+		final byte[] tier = a.getLodTier();
+		for (int r = from; r < to; r++) {
+			final AnimationSet set = sets[character[r]];
+			int s = status[r];
+			if (s != playing[r]) {
+				playing[r] = (byte) s;
+				start[r] = t;
+			}
+			final int d = direction[r];
+			if (set.isDone(s, d, t - start[r])) {
+				final int next = set.getNextStatus(s);
+				if (next != s) {
+					// carries the overshoot so the next clip keeps the cadence
+					start[r] += set.getFrameCount(s, d) * set.getFrameMillis();
+					s = next;
+					status[r] = (byte) s;
+					playing[r] = (byte) s;
+				}
+			}
+			if (tier == null || tier[r] == LodSystem.VISIBLE) {
+				frame[r] = set.frameAt(s, d, t - start[r]);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.bzsoft.oworld.engine.anim;
+
+import com.bzsoft.oworld.engine.Direction;
+import com.bzsoft.oworld.engine.ecs.Archetype;
+import com.bzsoft.oworld.engine.ecs.Component;
+import com.bzsoft.oworld.engine.ecs.EntitySystem;
+import com.bzsoft.oworld.engine.ecs.LodSystem;
+import com.bzsoft.oworld.util.math.MathUtils;
+
+/**
+ * Turns entities to the 8-way direction of their velocity, screen y pointing
+ * south. Entities slower than minSpeed keep their direction, and so do
+ * entities not due this tick with LOD.
+ */
+public final class FacingSystem implements EntitySystem {
+
+	private static final byte[] OCTANTS = { (byte) Direction.E.ordinal(), (byte) Direction.SE.ordinal(),
+			(byte) Direction.S.ordinal(), (byte) Direction.SW.ordinal(), (byte) Direction.W.ordinal(),
+			(byte) Direction.NW.ordinal(), (byte) Direction.N.ordinal(), (byte) Direction.NE.ordinal() };
+
+	private final float minSpeed2;
+
+	public FacingSystem(float minSpeed) {
+		this.minSpeed2 = minSpeed * minSpeed;
+	}
+
+	/** Direction of velocity (vx, vy). */
+	public static final Direction toDirection(float vx, float vy) {
+		return Direction.values()[octant(vx, vy)];
+	}
+
+	private static final int octant(float vx, float vy) {
+		return OCTANTS[Math.round(MathUtils.atan2(vy, vx) / (MathUtils.PI / 4)) + 8 & 7];
+	}
+
+	@Override
+	public int getQuery() {
+		return Component.mask(Component.VELOCITY, Component.DIRECTION);
+	}
+
+	@Override
+	public int getReads() {
+		return Component.mask(Component.VELOCITY, Component.LOD);
+	}
+
+	@Override
+	public int getWrites() {
+		return Component.DIRECTION.mask();
+	}
+
+	@Override
+	public void update(Archetype a, int from, int to, float dt) {
+		final float[] vx = a.getVx();
+		final float[] vy = a.getVy();
+		final byte[] direction = a.getDirection();
+		for (int r = from; r < to; r++) {
+			if (LodSystem.isDue(a, r) && vx[r] * vx[r] + vy[r] * vy[r] >= minSpeed2) {
+				direction[r] = (byte) octant(vx[r], vy[r]);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,271 @@
+package com.bzsoft.oworld.engine.ecs;
+
+import java.util.Arrays;
+
+/**
+ * The entities having exactly one set of components, stored column by column
+ * in dense arrays: row r of every column belongs to {@link #getEntity(int)}.
+ * Columns of components outside the set are null. Removing a row moves the
+ * last one into it, so rows [0, size) stay contiguous. Column arrays may be
+ * replaced when the archetype grows, read them again after structural
+ * changes.
+ */
+public final class Archetype {
+
+	private final int id;
+	private final int mask;
+	private int size;
+	private int[] entities;
+	private float[] x;
+	private float[] y;
+	private float[] vx;
+	private float[] vy;
+	private byte[] status;
+	private byte[] direction;
+	private int[] frame;
+	private int[] character;
+	private int[] clipStart;
+	private byte[] clipStatus;
+	private byte[] lodTier;
+	private boolean[] lodDue;
+	private int[] lodLast;
+	private float[] lodElapsed;
+
+	Archetype(int id, int mask, int capacity) {
+		this.id = id;
+		this.mask = mask;
+		entities = new int[capacity];
+		if (Component.POSITION.in(mask)) {
+			x = new float[capacity];
+			y = new float[capacity];
+		}
+		if (Component.VELOCITY.in(mask)) {
+			vx = new float[capacity];
+			vy = new float[capacity];
+		}
+		if (Component.STATUS.in(mask)) {
+			status = new byte[capacity];
+		}
+		if (Component.DIRECTION.in(mask)) {
+			direction = new byte[capacity];
+		}
+		if (Component.ANIMATION.in(mask)) {
+			frame = new int[capacity];
+			character = new int[capacity];
+			clipStart = new int[capacity];
+			clipStatus = new byte[capacity];
+			Arrays.fill(clipStatus, (byte) -1);
+		}
+		if (Component.LOD.in(mask)) {
+			lodTier = new byte[capacity];
+			lodDue = new boolean[capacity];
+			lodLast = new int[capacity];
+			lodElapsed = new float[capacity];
+			Arrays.fill(lodLast, -1);
+		}
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public int getMask() {
+		return mask;
+	}
+
+	public boolean has(Component c) {
+		return c.in(mask);
+	}
+
+	/** True when this archetype has every component of mask. */
+	public boolean matches(int required) {
+		return (mask & required) == required;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getEntity(int row) {
+		return entities[row];
+	}
+
+	public float[] getX() {
+		return x;
+	}
+
+	public float[] getY() {
+		return y;
+	}
+
+	public float[] getVx() {
+		return vx;
+	}
+
+	public float[] getVy() {
+		return vy;
+	}
+
+	public byte[] getStatus() {
+		return status;
+	}
+
+	public byte[] getDirection() {
+		return direction;
+	}
+
+	public int[] getFrame() {
+		return frame;
+	}
+
+	public int[] getCharacter() {
+		return character;
+	}
+
+	/** Millis at which the clip being played started. */
+	public int[] getClipStart() {
+		return clipStart;
+	}
+
+	/** Status whose clip is being played, -1 before the first update. */
+	public byte[] getClipStatus() {
+		return clipStatus;
+	}
+
+	/** Detail tier, 0 on screen. */
+	public byte[] getLodTier() {
+		return lodTier;
+	}
+
+	/** True when the row is updated this tick. */
+	public boolean[] getLodDue() {
+		return lodDue;
+	}
+
+	/** Tick of the last update, -1 before the first one. */
+	public int[] getLodLast() {
+		return lodLast;
+	}
+
+	/** Seconds to advance by when due, the ticks skipped included. */
+	public float[] getLodElapsed() {
+		return lodElapsed;
+	}
+
+	/** Appends a cleared row for entity, returns the row. */
+	int add(int entity) {
+		if (size == entities.length) {
+			grow(size * 2);
+		}
+		entities[size] = entity;
+		return size++;
+	}
+
+	/**
+	 * Removes row by moving the last row into it, returns false when row was
+	 * the last one and nothing moved. Ids use all 32 bits, so the moved entity
+	 * is read back with {@link #getEntity(int)} rather than returned.
+	 */
+	boolean remove(int row) {
+		final int last = --size;
+		final boolean moved = row != last;
+		if (moved) {
+			entities[row] = entities[last];
+			copyRow(this, last, this, row);
+		}
+		clearRow(last);
+		return moved;
+	}
+
+	/** Copies the components both archetypes have from src row to dst row. */
+	static final void copyRow(Archetype src, int srcRow, Archetype dst, int dstRow) {
+		if (src.x != null && dst.x != null) {
+			dst.x[dstRow] = src.x[srcRow];
+			dst.y[dstRow] = src.y[srcRow];
+		}
+		if (src.vx != null && dst.vx != null) {
+			dst.vx[dstRow] = src.vx[srcRow];
+			dst.vy[dstRow] = src.vy[srcRow];
+		}
+		if (src.status != null && dst.status != null) {
+			dst.status[dstRow] = src.status[srcRow];
+		}
+		if (src.direction != null && dst.direction != null) {
+			dst.direction[dstRow] = src.direction[srcRow];
+		}
+		if (src.frame != null && dst.frame != null) {
+			dst.frame[dstRow] = src.frame[srcRow];
+			dst.character[dstRow] = src.character[srcRow];
+			dst.clipStart[dstRow] = src.clipStart[srcRow];
+			dst.clipStatus[dstRow] = src.clipStatus[srcRow];
+		}
+		if (src.lodTier != null && dst.lodTier != null) {
+			dst.lodTier[dstRow] = src.lodTier[srcRow];
+			dst.lodDue[dstRow] = src.lodDue[srcRow];
+			dst.lodLast[dstRow] = src.lodLast[srcRow];
+			dst.lodElapsed[dstRow] = src.lodElapsed[srcRow];
+		}
+	}
+
+	private void clearRow(int row) {
+		if (x != null) {
+			x[row] = 0;
+			y[row] = 0;
+		}
+		if (vx != null) {
+			vx[row] = 0;
+			vy[row] = 0;
+		}
+		if (status != null) {
+			status[row] = 0;
+		}
+		if (direction != null) {
+			direction[row] = 0;
+		}
+		if (frame != null) {
+			frame[row] = 0;
+			character[row] = 0;
+			clipStart[row] = 0;
+			clipStatus[row] = -1;
+		}
+		if (lodTier != null) {
+			lodTier[row] = 0;
+			lodDue[row] = false;
+			lodLast[row] = -1;
+			lodElapsed[row] = 0;
+		}
+	}
+
+	private void grow(int capacity) {
+		entities = Arrays.copyOf(entities, capacity);
+		if (x != null) {
+			x = Arrays.copyOf(x, capacity);
+			y = Arrays.copyOf(y, capacity);
+		}
+		if (vx != null) {
+			vx = Arrays.copyOf(vx, capacity);
+			vy = Arrays.copyOf(vy, capacity);
+		}
+		if (status != null) {
+			status = Arrays.copyOf(status, capacity);
+		}
+		if (direction != null) {
+			direction = Arrays.copyOf(direction, capacity);
+		}
+		if (frame != null) {
+			frame = Arrays.copyOf(frame, capacity);
+			character = Arrays.copyOf(character, capacity);
+			clipStart = Arrays.copyOf(clipStart, capacity);
+			clipStatus = Arrays.copyOf(clipStatus, capacity);
+			Arrays.fill(clipStatus, size, capacity, (byte) -1);
+		}
+		if (lodTier != null) {
+			lodTier = Arrays.copyOf(lodTier, capacity);
+			lodDue = Arrays.copyOf(lodDue, capacity);
+			lodLast = Arrays.copyOf(lodLast, capacity);
+			lodElapsed = Arrays.copyOf(lodElapsed, capacity);
+			Arrays.fill(lodLast, size, capacity, -1);
+		}
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.bzsoft.oworld.engine.ecs;
+
+/**
+ * Component types of the {@link EntityWorld}, each stored as primitive columns
+ * in the {@link Archetype}s that have it.
+ */
+public enum Component {
+
+	/** float x, y. */
+	POSITION,
+	/** float vx, vy, units per second. */
+	VELOCITY,
+	/** byte ordinal of {@link com.bzsoft.oworld.engine.Status}. */
+	STATUS,
+	/** byte ordinal of {@link com.bzsoft.oworld.engine.Direction}. */
+	DIRECTION,
+	/**
+	 * int frame, int character, plus the clip being played: int start millis
+	 * and byte status.
+	 */
+	ANIMATION,
+	/**
+	 * byte tier, boolean due, int last tick and float elapsed seconds, see
+	 * {@link LodSystem}.
+	 */
+	LOD;
+
+	public int mask() {
+		return 1 << ordinal();
+	}
+
+	public static final int mask(Component... components) {
+		int mask = 0;
+		for (final Component c : components) {
+			mask |= c.mask();
+		}
+		return mask;
+	}
+
+	public boolean in(int mask) {
+		return (mask & mask()) != 0;
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.bzsoft.oworld.engine.ecs;
+
+import java.util.Random;
+
+/**
+ * Moves and animates entities over their archetype columns, with one percent
+ * of them destroyed and created again every tick.
+ * <p>
+ * Usage: EcsBenchmark [entities] [ticks]
+ */
+public final class EcsBenchmark {
+
+	private EcsBenchmark() {
+		// empty
+	}
+
+	public static void main(String[] args) {
+		final int count = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		final int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		final Random rnd = new Random(1);
+		final EntityWorld world = new EntityWorld();
+		final int moving = Component.mask(Component.POSITION, Component.VELOCITY, Component.DIRECTION,
+				Component.ANIMATION);
+		final int still = Component.mask(Component.POSITION, Component.STATUS, Component.ANIMATION);
+		final int[] ids = new int[count];
+		for (int i = 0; i < count; i++) {
+			ids[i] = world.create(i % 4 == 0 ? still : moving);
+			world.setPosition(ids[i], rnd.nextFloat() * 10000, rnd.nextFloat() * 10000);
+			if (i % 4 != 0) {
+				world.setVelocity(ids[i], rnd.nextFloat() * 2 - 1, rnd.nextFloat() * 2 - 1);
+			}
+		}
+		final int move = Component.mask(Component.POSITION, Component.VELOCITY);
+		final int animate = Component.ANIMATION.mask();
+		final float dt = 1f / 30;
+		long update = 0;
+		long churn = 0;
+		for (int t = -10; t < ticks; t++) {
+			final long t0 = System.nanoTime();
+			for (final Archetype a : world.query(move)) {
+				final float[] x = a.getX();
+				final float[] y = a.getY();
+				final float[] vx = a.getVx();
+				final float[] vy = a.getVy();
+				for (int r = 0, n = a.size(); r < n; r++) {
+					x[r] += vx[r] * dt;
+					y[r] += vy[r] * dt;
+				}
+			}
+			for (final Archetype a : world.query(animate)) {
+				final int[] frame = a.getFrame();
+				for (int r = 0, n = a.size(); r < n; r++) {
+					frame[r] = frame[r] + 1 & 7;
+				}
+			}
+			final long t1 = System.nanoTime();
+			for (int k = 0; k < count / 100; k++) {
+				final int i = rnd.nextInt(count);
+				world.destroy(ids[i]);
+				ids[i] = world.create(i % 4 == 0 ? still : moving);
+			}
+			final long t2 = System.nanoTime();
+			if (t >= 0) {
+				update += t1 - t0;
+				churn += t2 - t1;
+			}
+		}
+		System.out.printf("%d entities, %d archetypes matching move%n", world.size(), world.query(move).size());
+		System.out.printf("update %8.3f ms/tick, %.2f ns/entity%n", update / 1e6 / ticks,
+				(double) update / ticks / count);
+		System.out.printf("churn  %8.3f ms/tick for %d destroy+create%n", churn / 1e6 / ticks, count / 100);
+	}
+}
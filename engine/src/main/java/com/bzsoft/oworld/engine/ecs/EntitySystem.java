@@ -0,0 +1,35 @@
+package com.bzsoft.oworld.engine.ecs;
+
+/**
+ * Logic run every tick over the rows of the archetypes matching
+ * {@link #getQuery()}. The components read and written are declared so the
+ * {@link SystemScheduler} can run systems that do not conflict at the same
+ * time. Systems must not make structural changes to the world while updating.
+ */
+public interface EntitySystem {
+
+	/** Components an entity must have to be updated. */
+	public int getQuery();
+
+	/** Components read, see {@link Component#mask(Component...)}. */
+	public int getReads();
+
+	/** Components written. */
+	public int getWrites();
+
+	/**
+	 * Updates rows [from, to) of archetype a. For a splittable system several
+	 * ranges of the same archetype may be updated at once by different
+	 * threads.
+	 */
+	public void update(Archetype a, int from, int to, float dt);
+
+	/**
+	 * False when a row depends on other rows, e.g. collisions; the system then
+	 * gets every matching archetype whole, one after the other, on one thread.
+	 */
+	public default boolean isSplittable() {
+		return true;
+	}
+
+}
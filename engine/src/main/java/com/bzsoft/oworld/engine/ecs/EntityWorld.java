@@ -0,0 +1,239 @@
+package com.bzsoft.oworld.engine.ecs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.bzsoft.oworld.engine.Direction;
+import com.bzsoft.oworld.engine.Status;
+
+/**
+ * Entities as int ids whose components live in {@link Archetype} columns.
+ * An id packs a slot index and the generation of the slot; destroying an
+ * entity bumps the generation, so stale ids are detected when the slot is
+ * recycled. Systems iterate the rows of {@link #query(int)} directly, no
+ * object exists per entity.
+ * <p>
+ * Not thread safe: structural changes (create, destroy, adding or removing
+ * components) must not run while systems iterate.
+ */
+public final class EntityWorld {
+
+	public static final int INDEX_BITS = 22;
+	public static final int MAX_ENTITIES = 1 << INDEX_BITS;
+	private static final int INDEX_MASK = MAX_ENTITIES - 1;
+	private static final int GENERATION_MASK = (1 << 32 - INDEX_BITS) - 1;
+	private static final int ARCHETYPE_CAPACITY = 64;
+
+	private final Archetype[] byMask;
+	private final List<Archetype> archetypes;
+	private final List<List<Archetype>> queries;
+	private int[] generations;
+	private int[] archetypeOf;
+	private int[] rowOf;
+	private int[] free;
+	private int freeCount;
+	private int slots;
+	private int size;
+
+	public EntityWorld() {
+		this(1024);
+	}
+
+	public EntityWorld(int capacity) {
+		byMask = new Archetype[1 << Component.values().length];
+		archetypes = new ArrayList<>();
+		queries = new ArrayList<>(Collections.nCopies(byMask.length, (List<Archetype>) null));
+		generations = new int[capacity];
+		archetypeOf = new int[capacity];
+		rowOf = new int[capacity];
+		free = new int[capacity];
+	}
+
+	public static final int index(int entity) {
+		return entity & INDEX_MASK;
+	}
+
+	public static final int generation(int entity) {
+		return entity >>> INDEX_BITS;
+	}
+
+	/** Live entities. */
+	public int size() {
+		return size;
+	}
+
+	/** Creates an entity with the components of mask, zeroed. */
+	public int create(int mask) {
+		final int index;
+		if (freeCount > 0) {
+			index = free[--freeCount];
+		} else {
+			if (slots == MAX_ENTITIES) {
+				throw new IllegalStateException("Too many entities");
+			}
+			if (slots == generations.length) {
+				final int capacity = Math.min(MAX_ENTITIES, slots * 2);
+				generations = Arrays.copyOf(generations, capacity);
+				archetypeOf = Arrays.copyOf(archetypeOf, capacity);
+				rowOf = Arrays.copyOf(rowOf, capacity);
+				free = Arrays.copyOf(free, capacity);
+			}
+			index = slots++;
+		}
+		final int entity = generations[index] << INDEX_BITS | index;
+		final Archetype a = archetype(mask);
+		archetypeOf[index] = a.getId();
+		rowOf[index] = a.add(entity);
+		size++;
+		return entity;
+	}
+
+	public boolean isAlive(int entity) {
+		final int index = index(entity);
+		return index < slots && generations[index] == generation(entity) && archetypeOf[index] >= 0;
+	}
+
+	public void destroy(int entity) {
+		final int index = check(entity);
+		removeRow(archetypes.get(archetypeOf[index]), rowOf[index]);
+		archetypeOf[index] = -1;
+		generations[index] = generations[index] + 1 & GENERATION_MASK;
+		free[freeCount++] = index;
+		size--;
+	}
+
+	/** Moves entity to the archetype with the components of mask added. */
+	public void addComponents(int entity, int mask) {
+		final int index = check(entity);
+		move(index, archetypes.get(archetypeOf[index]).getMask() | mask);
+	}
+
+	/** Moves entity to the archetype with the components of mask removed. */
+	public void removeComponents(int entity, int mask) {
+		final int index = check(entity);
+		move(index, archetypes.get(archetypeOf[index]).getMask() & ~mask);
+	}
+
+	public Archetype getArchetype(int entity) {
+		return archetypes.get(archetypeOf[check(entity)]);
+	}
+
+	public int getRow(int entity) {
+		return rowOf[check(entity)];
+	}
+
+	/**
+	 * The archetypes having every component of required, possibly empty ones.
+	 * The list is cached until a new archetype appears.
+	 */
+	public List<Archetype> query(int required) {
+		List<Archetype> q = queries.get(required);
+		if (q == null) {
+			q = new ArrayList<>();
+			for (final Archetype a : archetypes) {
+				if (a.matches(required)) {
+					q.add(a);
+				}
+			}
+			q = Collections.unmodifiableList(q);
+			queries.set(required, q);
+		}
+		return q;
+	}
+
+	/** Live entities having every component of required. */
+	public int count(int required) {
+		int n = 0;
+		for (final Archetype a : query(required)) {
+			n += a.size();
+		}
+		return n;
+	}
+
+	public void setPosition(int entity, float x, float y) {
+		final Archetype a = getArchetype(entity);
+		final int row = rowOf[index(entity)];
+		a.getX()[row] = x;
+		a.getY()[row] = y;
+	}
+
+	public void setVelocity(int entity, float vx, float vy) {
+		final Archetype a = getArchetype(entity);
+		final int row = rowOf[index(entity)];
+		a.getVx()[row] = vx;
+		a.getVy()[row] = vy;
+	}
+
+	public Status getStatus(int entity) {
+		return Status.values()[getArchetype(entity).getStatus()[rowOf[index(entity)]]];
+	}
+
+	public void setStatus(int entity, Status status) {
+		getArchetype(entity).getStatus()[rowOf[index(entity)]] = (byte) status.ordinal();
+	}
+
+	public Direction getDirection(int entity) {
+		return Direction.values()[getArchetype(entity).getDirection()[rowOf[index(entity)]]];
+	}
+
+	public void setDirection(int entity, Direction direction) {
+		getArchetype(entity).getDirection()[rowOf[index(entity)]] = (byte) direction.ordinal();
+	}
+
+	public void setFrame(int entity, int frame) {
+		getArchetype(entity).getFrame()[rowOf[index(entity)]] = frame;
+	}
+
+	public int getFrame(int entity) {
+		return getArchetype(entity).getFrame()[rowOf[index(entity)]];
+	}
+
+	public void setCharacter(int entity, int character) {
+		getArchetype(entity).getCharacter()[rowOf[index(entity)]] = character;
+	}
+
+	private int check(int entity) {
+		if (!isAlive(entity)) {
+			throw new IllegalArgumentException("Dead entity " + entity);
+		}
+		return index(entity);
+	}
+
+	private Archetype archetype(int mask) {
+		Archetype a = byMask[mask];
+		if (a == null) {
+			a = new Archetype(archetypes.size(), mask, ARCHETYPE_CAPACITY);
+			archetypes.add(a);
+			byMask[mask] = a;
+			for (int q = 0; q < queries.size(); q++) {
+				if (queries.get(q) != null && a.matches(q)) {
+					queries.set(q, null);
+				}
+			}
+		}
+		return a;
+	}
+
+	private void move(int index, int mask) {
+		final Archetype from = archetypes.get(archetypeOf[index]);
+		if (from.getMask() == mask) {
+			return;
+		}
+		final Archetype to = archetype(mask);
+		final int row = rowOf[index];
+		final int newRow = to.add(from.getEntity(row));
+		Archetype.copyRow(from, row, to, newRow);
+		removeRow(from, row);
+		archetypeOf[index] = to.getId();
+		rowOf[index] = newRow;
+	}
+
+	private void removeRow(Archetype a, int row) {
+		if (a.remove(row)) {
+			rowOf[index(a.getEntity(row))] = row;
+		}
+	}
+
+}
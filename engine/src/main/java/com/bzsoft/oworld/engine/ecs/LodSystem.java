@@ -0,0 +1,111 @@
+package com.bzsoft.oworld.engine.ecs;
+
+/**
+ * Decides each tick which entities are updated, by distance to the viewport:
+ * tier 0 inside it is updated every tick, tier 1 within the near margin every
+ * nearPeriod ticks, tier 2 beyond every farPeriod ticks. Updates of slower
+ * tiers are spread over the ticks by entity index. A due row gets the seconds
+ * since its last update, so systems advance it by the skipped ticks at once;
+ * an entity entering the viewport is due on that tick. Everything depends on
+ * tick numbers only, two runs with the same ticks update the same rows.
+ * Rows off screen are only classified again when due or when the viewport
+ * moved; LOD aware systems do not move them in between.
+ * <p>
+ * Add it to the scheduler before the systems reading LOD.
+ */
+public final class LodSystem implements EntitySystem {
+
+	public static final int VISIBLE = 0;
+	public static final int NEAR = 1;
+	public static final int FAR = 2;
+
+	private final float tickSeconds;
+	private final float nearMargin;
+	private final int nearMask;
+	private final int farMask;
+	private volatile boolean viewMoved;
+	private volatile int tick;
+	private volatile float x0;
+	private volatile float y0;
+	private volatile float x1;
+	private volatile float y1;
+
+	/** @param nearPeriod ticks between updates near the viewport, a power of 2 */
+	public LodSystem(float tickSeconds, float nearMargin, int nearPeriod, int farPeriod) {
+		if (Integer.bitCount(nearPeriod) != 1 || Integer.bitCount(farPeriod) != 1) {
+			throw new IllegalArgumentException("Periods must be powers of 2");
+		}
+		this.tickSeconds = tickSeconds;
+		this.nearMargin = nearMargin;
+		this.nearMask = nearPeriod - 1;
+		this.farMask = farPeriod - 1;
+		this.viewMoved = true;
+	}
+
+	/** Tick number and viewport in world units of the next update. */
+	public void setTick(int tick, float x0, float y0, float x1, float y1) {
+		this.viewMoved = x0 != this.x0 || y0 != this.y0 || x1 != this.x1 || y1 != this.y1;
+		this.x0 = x0;
+		this.y0 = y0;
+		this.x1 = x1;
+		this.y1 = y1;
+		this.tick = tick;
+	}
+
+	@Override
+	public int getQuery() {
+		return Component.mask(Component.POSITION, Component.LOD);
+	}
+
+	@Override
+	public int getReads() {
+		return Component.POSITION.mask();
+	}
+
+	@Override
+	public int getWrites() {
+		return Component.LOD.mask();
+	}
+
+	@Override
+	public void update(Archetype a, int from, int to, float dt) {
+		final int t = tick;
+		final boolean moved = viewMoved;
+		final float vx0 = x0;
+		final float vy0 = y0;
+		final float vx1 = x1;
+		final float vy1 = y1;
+		final float[] x = a.getX();
+		final float[] y = a.getY();
+		final byte[] tier = a.getLodTier();
+		final boolean[] due = a.getLodDue();
+		final int[] last = a.getLodLast();
+		final float[] elapsed = a.getLodElapsed();
+		for (int r = from; r < to; r++) {
+			final int stagger = t + EntityWorld.index(a.getEntity(r));
+			if (!moved && tier[r] != VISIBLE && last[r] >= 0
+					&& (stagger & (tier[r] == NEAR ? nearMask : farMask)) != 0) {
+				due[r] = false;
+				continue;
+			}
+			final float dx = Math.max(0, Math.max(vx0 - x[r], x[r] - vx1));
+			final float dy = Math.max(0, Math.max(vy0 - y[r], y[r] - vy1));
+			final int newTier = dx == 0 && dy == 0 ? VISIBLE : dx <= nearMargin && dy <= nearMargin ? NEAR : FAR;
+			final boolean d = newTier == VISIBLE || last[r] < 0
+					|| (stagger & (newTier == NEAR ? nearMask : farMask)) == 0;
+			tier[r] = (byte) newTier;
+			due[r] = d;
+			if (d) {
+				elapsed[r] = last[r] < 0 ? tickSeconds : (t - last[r]) * tickSeconds;
+				last[r] = t;
+			}
+		}
+	}
+
+	/** Rows of a updated this tick, every row when a has no LOD. */
+	public static final boolean isDue(Archetype a, int row) {
+		final boolean[] due = a.getLodDue();
+		return due == null || due[row];
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.bzsoft.oworld.engine.ecs;
+
+/**
+ * Moves entities by their velocity. With LOD only due rows move, by the
+ * seconds since their last update, so a slow tier ends where it would have
+ * been at full rate.
+ */
+public final class MovementSystem implements EntitySystem {
+
+	@Override
+	public int getQuery() {
+		return Component.mask(Component.POSITION, Component.VELOCITY);
+	}
+
+	@Override
+	public int getReads() {
+		return Component.mask(Component.VELOCITY, Component.LOD);
+	}
+
+	@Override
+	public int getWrites() {
+		return Component.POSITION.mask();
+	}
+
+	@Override
+	public void update(Archetype a, int from, int to, float dt) {
+		final float[] x = a.getX();
+		final float[] y = a.getY();
+		final float[] vx = a.getVx();
+		final float[] vy = a.getVy();
+		final boolean[] due = a.getLodDue();
+		if (due == null) {
+			for (int r = from; r < to; r++) {
+				x[r] += vx[r] * dt;
+				y[r] += vy[r] * dt;
+			}
+			return;
+		}
+		final float[] elapsed = a.getLodElapsed();
+		for (int r = from; r < to; r++) {
+			if (due[r]) {
+				x[r] += vx[r] * elapsed[r];
+				y[r] += vy[r] * elapsed[r];
+			}
+		}
+	}
+
+}
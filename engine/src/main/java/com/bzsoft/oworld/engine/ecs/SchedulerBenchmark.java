@@ -0,0 +1,120 @@
+package com.bzsoft.oworld.engine.ecs;
+
+import java.util.Random;
+
+import com.bzsoft.oworld.engine.Status;
+import com.bzsoft.oworld.engine.anim.AnimationSet;
+import com.bzsoft.oworld.engine.anim.Animator;
+import com.bzsoft.oworld.engine.anim.FacingSystem;
+import com.bzsoft.oworld.util.concurrent.ThreadPool;
+import com.bzsoft.oworld.util.concurrent.impl.ThreadPoolImpl;
+
+/**
+ * Ticks movement, facing, a status rule and the animator over moving entities
+ * with a {@link SystemScheduler} on 1 thread and on the given threads, then
+ * on 1 thread with a {@link LodSystem}.
+ * <p>
+ * Usage: SchedulerBenchmark [entities] [ticks] [threads]
+ */
+public final class SchedulerBenchmark {
+
+	private static final int ALL = Component.mask(Component.POSITION, Component.VELOCITY, Component.STATUS,
+			Component.DIRECTION, Component.ANIMATION);
+
+	private SchedulerBenchmark() {
+		// empty
+	}
+
+	/** Stops whatever left the map, runs after movement since it reads position. */
+	private static final class Bounds implements EntitySystem {
+
+		@Override
+		public int getQuery() {
+			return Component.mask(Component.POSITION, Component.STATUS);
+		}
+
+		@Override
+		public int getReads() {
+			return Component.POSITION.mask();
+		}
+
+		@Override
+		public int getWrites() {
+			return Component.STATUS.mask();
+		}
+
+		@Override
+		public void update(Archetype a, int from, int to, float dt) {
+			final float[] x = a.getX();
+			final float[] y = a.getY();
+			final byte[] status = a.getStatus();
+			final byte stopped = (byte) Status.STOPPED.ordinal();
+			final byte walking = (byte) Status.WALKING.ordinal();
+			for (int r = from; r < to; r++) {
+				status[r] = x[r] < 0 || y[r] < 0 || x[r] > 10000 || y[r] > 10000 ? stopped : walking;
+			}
+		}
+	}
+
+	private static long run(EntityWorld world, int threads, int ticks, boolean lod) {
+		final ThreadPool pool = new ThreadPoolImpl(threads);
+		try {
+			final SystemScheduler scheduler = new SystemScheduler(pool, 16384);
+			// a 1280x800 view in the middle of the map, tiers of 4 and 16 ticks
+			final LodSystem lodSystem = new LodSystem(1f / 30, 1000, 4, 16);
+			if (lod) {
+				scheduler.add(lodSystem);
+			}
+			scheduler.add(new MovementSystem());
+			scheduler.add(new FacingSystem(0.01f));
+			final int[] first = new int[Status.values().length * 8];
+			final int[] count = new int[first.length];
+			for (int c = 0; c < first.length; c++) {
+				first[c] = c * 8;
+				count[c] = 8;
+			}
+			final Animator animator = new Animator(new AnimationSet[] { AnimationSet.of(100, first, count) });
+			scheduler.add(animator);
+			scheduler.add(new Bounds());
+			long total = 0;
+			for (int t = -10; t < ticks; t++) {
+				final long t0 = System.nanoTime();
+				animator.setTime((t + 10) * 33);
+				lodSystem.setTick(t + 10, 4360, 4600, 5640, 5400);
+				scheduler.tick(world, 1f / 30);
+				if (t >= 0) {
+					total += System.nanoTime() - t0;
+				}
+			}
+			System.out.printf("%d threads, %d stages%s: %8.3f ms/tick%n", threads, scheduler.getStageCount(),
+					lod ? ", lod" : "", total / 1e6 / ticks);
+			return total;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	public static void main(String[] args) {
+		final int count = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+		final int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		final int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		final long single = run(createWorld(count, ALL), 1, ticks, false);
+		if (threads > 1) {
+			final long parallel = run(createWorld(count, ALL), threads, ticks, false);
+			System.out.printf("speedup %.2f%n", (double) single / parallel);
+		}
+		final long lod = run(createWorld(count, ALL | Component.LOD.mask()), 1, ticks, true);
+		System.out.printf("lod speedup %.2f%n", (double) single / lod);
+	}
+
+	private static EntityWorld createWorld(int count, int mask) {
+		final Random rnd = new Random(1);
+		final EntityWorld world = new EntityWorld(count);
+		for (int i = 0; i < count; i++) {
+			final int e = world.create(mask);
+			world.setPosition(e, rnd.nextFloat() * 10000, rnd.nextFloat() * 10000);
+			world.setVelocity(e, rnd.nextFloat() * 60 - 30, rnd.nextFloat() * 60 - 30);
+		}
+		return world;
+	}
+}
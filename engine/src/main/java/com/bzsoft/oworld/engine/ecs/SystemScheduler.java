@@ -0,0 +1,118 @@
+package com.bzsoft.oworld.engine.ecs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.bzsoft.oworld.util.concurrent.ThreadPool;
+
+/**
+ * Runs {@link EntitySystem}s on a {@link ThreadPool}. Systems are grouped in
+ * stages in the order they were added: a system joins the stage after the
+ * last one holding a system it conflicts with, two systems conflicting when
+ * one writes a component the other reads or writes. The systems of a stage
+ * run at the same time and splittable systems are cut in row ranges of at
+ * most chunkRows, so one large system also spreads over the workers. Stages
+ * run one after the other, so a system sees the writes of the conflicting
+ * systems added before it.
+ */
+public final class SystemScheduler {
+
+	private final ThreadPool pool;
+	private final int chunkRows;
+	private final List<List<EntitySystem>> stages;
+	private EntitySystem[] itemSystem;
+	private Archetype[] itemArchetype;
+	private int[] itemFrom;
+	private int[] itemTo;
+	private int items;
+
+	public SystemScheduler(ThreadPool pool, int chunkRows) {
+		this.pool = pool;
+		this.chunkRows = chunkRows;
+		this.stages = new ArrayList<>();
+		this.itemSystem = new EntitySystem[64];
+		this.itemArchetype = new Archetype[64];
+		this.itemFrom = new int[64];
+		this.itemTo = new int[64];
+	}
+
+	private static final boolean conflicts(EntitySystem a, EntitySystem b) {
+		return (a.getWrites() & (b.getReads() | b.getWrites())) != 0 || (b.getWrites() & a.getReads()) != 0;
+	}
+
+	public void add(EntitySystem system) {
+		int stage = 0;
+		for (int s = stages.size() - 1; s >= 0; s--) {
+			boolean conflict = false;
+			for (final EntitySystem other : stages.get(s)) {
+				conflict |= conflicts(system, other);
+			}
+			if (conflict) {
+				stage = s + 1;
+				break;
+			}
+		}
+		if (stage == stages.size()) {
+			stages.add(new ArrayList<>());
+		}
+		stages.get(stage).add(system);
+	}
+
+	public int getStageCount() {
+		return stages.size();
+	}
+
+	/** Runs every stage once, returns when all systems are done. */
+	public void tick(EntityWorld world, float dt) {
+		for (final List<EntitySystem> stage : stages) {
+			items = 0;
+			for (final EntitySystem system : stage) {
+				if (!system.isSplittable()) {
+					// fills the query cache before the workers read it
+					world.query(system.getQuery());
+					addItem(system, null, 0, 0);
+					continue;
+				}
+				for (final Archetype a : world.query(system.getQuery())) {
+					for (int from = 0; from < a.size(); from += chunkRows) {
+						addItem(system, a, from, Math.min(a.size(), from + chunkRows));
+					}
+				}
+			}
+			if (items == 1) {
+				run(world, 0, dt);
+			} else if (items > 1) {
+				pool.invokeAll(items, i -> run(world, i, dt));
+			}
+		}
+	}
+
+	private void run(EntityWorld world, int item, float dt) {
+		final EntitySystem system = itemSystem[item];
+		final Archetype a = itemArchetype[item];
+		if (a != null) {
+			system.update(a, itemFrom[item], itemTo[item], dt);
+			return;
+		}
+		for (final Archetype whole : world.query(system.getQuery())) {
+			system.update(whole, 0, whole.size(), dt);
+		}
+	}
+
+	private void addItem(EntitySystem system, Archetype a, int from, int to) {
+		if (items == itemSystem.length) {
+			final int capacity = items * 2;
+			itemSystem = Arrays.copyOf(itemSystem, capacity);
+			itemArchetype = Arrays.copyOf(itemArchetype, capacity);
+			itemFrom = Arrays.copyOf(itemFrom, capacity);
+			itemTo = Arrays.copyOf(itemTo, capacity);
+		}
+		itemSystem[items] = system;
+		itemArchetype[items] = a;
+		itemFrom[items] = from;
+		itemTo[items] = to;
+		items++;
+	}
+
+}
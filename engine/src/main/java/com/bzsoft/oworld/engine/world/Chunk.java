@@ -0,0 +1,144 @@
+package com.bzsoft.oworld.engine.world;
+
+import java.util.Arrays;
+
+import com.bzsoft.oworld.engine.ecs.Component;
+
+/**
+ * A square of {@link #SIZE} x {@link #SIZE} tiles plus the entities standing
+ * on it while the chunk is not in the {@link com.bzsoft.oworld.engine.ecs.EntityWorld}.
+ * Detached entities are kept column by column: component mask, position,
+ * velocity, status, direction and character. A chunk is owned by one thread
+ * at a time, handed over through the {@link ChunkManager} queues.
+ */
+public final class Chunk {
+
+	public static final int SIZE = 32;
+
+	private final int cx;
+	private final int cy;
+	private final int[] tiles;
+	private int entityCount;
+	private int[] masks;
+	private float[] x;
+	private float[] y;
+	private float[] vx;
+	private float[] vy;
+	private byte[] status;
+	private byte[] direction;
+	private int[] character;
+
+	public Chunk(int cx, int cy) {
+		this.cx = cx;
+		this.cy = cy;
+		this.tiles = new int[SIZE * SIZE];
+		ensureCapacity(16);
+	}
+
+	public static final long key(int cx, int cy) {
+		return (long) cx << 32 | cy & 0xffffffffL;
+	}
+
+	public static final int keyX(long key) {
+		return (int) (key >> 32);
+	}
+
+	public static final int keyY(long key) {
+		return (int) key;
+	}
+
+	public int getX() {
+		return cx;
+	}
+
+	public int getY() {
+		return cy;
+	}
+
+	public long getKey() {
+		return key(cx, cy);
+	}
+
+	/** Tiles row by row, tile (i, j) of the chunk at j * SIZE + i. */
+	public int[] getTiles() {
+		return tiles;
+	}
+
+	public int getEntityCount() {
+		return entityCount;
+	}
+
+	/**
+	 * Keeps an entity detached in this chunk. Components outside mask are
+	 * ignored; a missing POSITION is not allowed.
+	 */
+	public void addEntity(int mask, float ex, float ey, float evx, float evy, byte estatus, byte edirection,
+			int echaracter) {
+		if (!Component.POSITION.in(mask)) {
+			throw new IllegalArgumentException("Entity without position");
+		}
+		ensureCapacity(entityCount + 1);
+		final int e = entityCount++;
+		masks[e] = mask;
+		x[e] = ex;
+		y[e] = ey;
+		vx[e] = evx;
+		vy[e] = evy;
+		status[e] = estatus;
+		direction[e] = edirection;
+		character[e] = echaracter;
+	}
+
+	/** Drops the detached entities, after they were attached to the world. */
+	public void clearEntities() {
+		entityCount = 0;
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (masks != null && masks.length >= capacity) {
+			return;
+		}
+		final int n = Math.max(capacity, masks == null ? 0 : masks.length * 2);
+		masks = masks == null ? new int[n] : Arrays.copyOf(masks, n);
+		x = x == null ? new float[n] : Arrays.copyOf(x, n);
+		y = y == null ? new float[n] : Arrays.copyOf(y, n);
+		vx = vx == null ? new float[n] : Arrays.copyOf(vx, n);
+		vy = vy == null ? new float[n] : Arrays.copyOf(vy, n);
+		status = status == null ? new byte[n] : Arrays.copyOf(status, n);
+		direction = direction == null ? new byte[n] : Arrays.copyOf(direction, n);
+		character = character == null ? new int[n] : Arrays.copyOf(character, n);
+	}
+
+	public int getMask(int e) {
+		return masks[e];
+	}
+
+	public float getEntityX(int e) {
+		return x[e];
+	}
+
+	public float getEntityY(int e) {
+		return y[e];
+	}
+
+	public float getEntityVx(int e) {
+		return vx[e];
+	}
+
+	public float getEntityVy(int e) {
+		return vy[e];
+	}
+
+	public byte getEntityStatus(int e) {
+		return status[e];
+	}
+
+	public byte getEntityDirection(int e) {
+		return direction[e];
+	}
+
+	public int getEntityCharacter(int e) {
+		return character[e];
+	}
+
+}
@@ -0,0 +1,12 @@
+package com.bzsoft.oworld.engine.world;
+
+/**
+ * Fills a chunk never stored before. Runs on I/O threads, so it must only
+ * touch the chunk, and must return the same content for the same chunk
+ * coordinates.
+ */
+public interface ChunkGenerator {
+
+	public void generate(Chunk chunk);
+
+}
@@ -0,0 +1,454 @@
+package com.bzsoft.oworld.engine.world;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bzsoft.oworld.engine.ecs.Archetype;
+import com.bzsoft.oworld.engine.ecs.Component;
+import com.bzsoft.oworld.engine.ecs.EntityWorld;
+
+/**
+ * Streams the world in {@link Chunk}s around a set of anchors, the camera and
+ * the players. Chunks within loadRadius of an anchor are loaded from the
+ * {@link ChunkStore}, or generated the first time, on a few I/O threads of
+ * its own, so disk waits never hold the CPU workers of the simulation and
+ * the renderer. Chunks beyond loadRadius + 1 are evicted, their entities
+ * detached from the {@link EntityWorld} and saved in the background; over
+ * maxLoaded the farthest chunks outside loadRadius go first. Entities
+ * wandering into a chunk that is not loaded are merged into its stored copy
+ * the same way, so the world only holds the entities of loaded chunks and
+ * memory is bounded by maxLoaded whatever the size of the world. maxLoaded
+ * must hold the squares of every anchor, {@link #update(int, float[], int)}
+ * fails otherwise.
+ * <p>
+ * I/O threads never touch the world: finished loads wait in a queue and are
+ * attached by {@link #update(int, float[], int)}, which must be called by the
+ * simulation between ticks. Attached entities get new ids, so ids must not be
+ * kept across an eviction. A chunk is never loaded while it is being saved.
+ * <p>
+ * A chunk whose stored copy fails to load is neither generated nor saved
+ * over: it stays unloaded, the entities standing on it stay in the world and
+ * it is tried again RETRY_PERIOD ticks later.
+ */
+public final class ChunkManager {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ChunkManager.class);
+	private static final int SWEEP_PERIOD = 16;
+	private static final int RETRY_PERIOD = 256;
+
+	private final EntityWorld world;
+	private final ChunkStore store;
+	private final ChunkGenerator generator;
+	private final ExecutorService io;
+	private final float span;
+	private final int loadRadius;
+	private final int maxLoaded;
+	private final Map<Long, Chunk> loaded;
+	private final Map<Long, Future<?>> loading;
+	private final Map<Long, Future<?>> saving;
+	private final ConcurrentLinkedQueue<Chunk> ready;
+	private final ConcurrentLinkedQueue<Long> saved;
+	private final ConcurrentLinkedQueue<Long> unreadable;
+	private final ConcurrentLinkedQueue<Chunk> returned;
+	private final Map<Long, Integer> retryAt;
+	private int[] detached;
+	private int generated;
+	private int loads;
+	private int saves;
+
+	/**
+	 * @param tileSize   world units per tile
+	 * @param loadRadius chunks loaded around each anchor in every direction
+	 * @param maxLoaded  chunks kept in memory, at least the squares of the
+	 *                   anchors with one chunk of margin
+	 * @param ioThreads  threads loading, generating and saving chunks
+	 */
+	public ChunkManager(EntityWorld world, ChunkStore store, ChunkGenerator generator, float tileSize,
+			int loadRadius, int maxLoaded, int ioThreads) {
+		final int side = 2 * loadRadius + 3;
+		if (maxLoaded < side * side) {
+			throw new IllegalArgumentException("maxLoaded below " + side * side);
+		}
+		this.world = world;
+		this.store = store;
+		this.generator = generator;
+		final AtomicInteger threads = new AtomicInteger();
+		this.io = Executors.newFixedThreadPool(ioThreads, r -> {
+			final Thread t = new Thread(r, "chunk-io-" + threads.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+		this.span = tileSize * Chunk.SIZE;
+		this.loadRadius = loadRadius;
+		this.maxLoaded = maxLoaded;
+		this.loaded = new HashMap<>();
+		this.loading = new HashMap<>();
+		this.saving = new HashMap<>();
+		this.ready = new ConcurrentLinkedQueue<>();
+		this.saved = new ConcurrentLinkedQueue<>();
+		this.unreadable = new ConcurrentLinkedQueue<>();
+		this.returned = new ConcurrentLinkedQueue<>();
+		this.retryAt = new HashMap<>();
+		this.detached = new int[256];
+	}
+
+	public int chunkOf(float v) {
+		return (int) Math.floor(v / span);
+	}
+
+	public boolean isLoaded(int cx, int cy) {
+		return loaded.containsKey(Chunk.key(cx, cy));
+	}
+
+	/** The tile at tile coordinates (i, j), -1 when its chunk is not loaded. */
+	public int getTile(int i, int j) {
+		final Chunk c = loaded.get(Chunk.key(Math.floorDiv(i, Chunk.SIZE), Math.floorDiv(j, Chunk.SIZE)));
+		return c == null ? -1 : c.getTiles()[Math.floorMod(j, Chunk.SIZE) * Chunk.SIZE + Math.floorMod(i, Chunk.SIZE)];
+	}
+
+	public int getLoadedCount() {
+		return loaded.size();
+	}
+
+	/** Chunks being loaded or saved by the I/O threads. */
+	public int getPendingCount() {
+		return loading.size() + saving.size();
+	}
+
+	public int getGeneratedCount() {
+		return generated;
+	}
+
+	public int getLoadCount() {
+		return loads;
+	}
+
+	public int getSaveCount() {
+		return saves;
+	}
+
+	public void update(int tick, float x, float y) {
+		update(tick, new float[] { x, y }, 1);
+	}
+
+	/**
+	 * Attaches the chunks loaded since the last call, requests the chunks
+	 * around the count anchors stored as x, y pairs, and evicts the far ones.
+	 */
+	public void update(int tick, float[] anchors, int count) {
+		final int side = 2 * loadRadius + 1;
+		if (count * side * side > maxLoaded) {
+			throw new IllegalArgumentException(
+					"maxLoaded " + maxLoaded + " below " + count * side * side + " for " + count + " anchors");
+		}
+		for (Long key; (key = saved.poll()) != null;) {
+			saving.remove(key);
+		}
+		for (Chunk c; (c = ready.poll()) != null;) {
+			loading.remove(c.getKey());
+			attach(c);
+		}
+		for (Long key; (key = unreadable.poll()) != null;) {
+			loading.remove(key);
+			retryAt.put(key, tick + RETRY_PERIOD);
+		}
+		for (Chunk s; (s = returned.poll()) != null;) {
+			attachEntities(s);
+		}
+		final int[] acx = new int[count];
+		final int[] acy = new int[count];
+		for (int a = 0; a < count; a++) {
+			acx[a] = chunkOf(anchors[2 * a]);
+			acy[a] = chunkOf(anchors[2 * a + 1]);
+		}
+		for (int r = 0; r <= loadRadius; r++) {
+			// nearest rings first, the I/O threads run them in that order
+			for (int a = 0; a < count; a++) {
+				for (int cy = acy[a] - r; cy <= acy[a] + r; cy++) {
+					for (int cx = acx[a] - r; cx <= acx[a] + r; cx++) {
+						if (Math.max(Math.abs(cx - acx[a]), Math.abs(cy - acy[a])) == r) {
+							request(tick, cx, cy);
+						}
+					}
+				}
+			}
+		}
+		final Map<Long, Chunk> evicted = evict(acx, acy, count);
+		if (!evicted.isEmpty() || tick % SWEEP_PERIOD == 0) {
+			sweep(tick, evicted);
+		}
+	}
+
+	/** True while a chunk that failed to load waits for its next attempt. */
+	private boolean isRetrying(Long key, int tick) {
+		final Integer at = retryAt.get(key);
+		if (at == null) {
+			return false;
+		}
+		if (tick - at < 0) {
+			return true;
+		}
+		retryAt.remove(key);
+		return false;
+	}
+
+	private void request(int tick, int cx, int cy) {
+		final Long key = Chunk.key(cx, cy);
+		if (loaded.containsKey(key) || loading.containsKey(key) || saving.containsKey(key)
+				|| isRetrying(key, tick)) {
+			// a chunk being saved is requested again once the save is done
+			return;
+		}
+		loading.put(key, io.submit(() -> {
+			final Chunk c = new Chunk(cx, cy);
+			boolean ok = false;
+			try {
+				ok = read(c);
+			} finally {
+				if (ok) {
+					ready.add(c);
+				} else {
+					unreadable.add(key);
+				}
+			}
+		}));
+	}
+
+	/**
+	 * Loads c from the store or generates it when it was never stored, on an
+	 * I/O thread. False when the stored copy could not be read.
+	 */
+	private boolean read(Chunk c) {
+		final boolean found;
+		try {
+			found = store.load(c);
+		} catch (final IOException e) {
+			LOGGER.warn("Error loading chunk {},{}, retrying later", c.getX(), c.getY(), e);
+			return false;
+		}
+		if (!found) {
+			generator.generate(c);
+		}
+		synchronized (this) {
+			if (found) {
+				loads++;
+			} else {
+				generated++;
+			}
+		}
+		return true;
+	}
+
+	private void attach(Chunk c) {
+		attachEntities(c);
+		loaded.put(c.getKey(), c);
+	}
+
+	private void attachEntities(Chunk c) {
+		for (int e = 0, n = c.getEntityCount(); e < n; e++) {
+			final int mask = c.getMask(e);
+			final int id = world.create(mask);
+			final Archetype a = world.getArchetype(id);
+			final int row = world.getRow(id);
+			a.getX()[row] = c.getEntityX(e);
+			a.getY()[row] = c.getEntityY(e);
+			if (Component.VELOCITY.in(mask)) {
+				a.getVx()[row] = c.getEntityVx(e);
+				a.getVy()[row] = c.getEntityVy(e);
+			}
+			if (Component.STATUS.in(mask)) {
+				a.getStatus()[row] = c.getEntityStatus(e);
+			}
+			if (Component.DIRECTION.in(mask)) {
+				a.getDirection()[row] = c.getEntityDirection(e);
+			}
+			if (Component.ANIMATION.in(mask)) {
+				a.getCharacter()[row] = c.getEntityCharacter(e);
+			}
+		}
+		c.clearEntities();
+	}
+
+	private int distance(long key, int[] acx, int[] acy, int count) {
+		int d = Integer.MAX_VALUE;
+		for (int a = 0; a < count; a++) {
+			d = Math.min(d, Math.max(Math.abs(Chunk.keyX(key) - acx[a]), Math.abs(Chunk.keyY(key) - acy[a])));
+		}
+		return d;
+	}
+
+	private Map<Long, Chunk> evict(int[] acx, int[] acy, int count) {
+		final Map<Long, Chunk> evicted = new HashMap<>();
+		for (final Iterator<Chunk> it = loaded.values().iterator(); it.hasNext();) {
+			final Chunk c = it.next();
+			if (distance(c.getKey(), acx, acy, count) > loadRadius + 1) {
+				it.remove();
+				evicted.put(c.getKey(), c);
+			}
+		}
+		if (loaded.size() > maxLoaded) {
+			final List<Chunk> chunks = new ArrayList<>(loaded.values());
+			chunks.sort((c0, c1) -> Integer.compare(distance(c1.getKey(), acx, acy, count),
+					distance(c0.getKey(), acx, acy, count)));
+			// chunks within loadRadius stay, update checked they fit
+			for (int i = 0, n = loaded.size() - maxLoaded; i < n
+					&& distance(chunks.get(i).getKey(), acx, acy, count) > loadRadius; i++) {
+				loaded.remove(chunks.get(i).getKey());
+				evicted.put(chunks.get(i).getKey(), chunks.get(i));
+			}
+		}
+		return evicted;
+	}
+
+	/**
+	 * Detaches the entities standing on evicted chunks into them and the ones
+	 * standing on chunks not loaded into strays, then saves both. Strays whose
+	 * chunk fails to load are returned to the world.
+	 */
+	private void sweep(int tick, Map<Long, Chunk> evicted) {
+		final Map<Long, Chunk> strays = new HashMap<>();
+		int[] ids = detached;
+		int n = 0;
+		for (final Archetype a : world.query(Component.POSITION.mask())) {
+			final float[] x = a.getX();
+			final float[] y = a.getY();
+			for (int r = 0, size = a.size(); r < size; r++) {
+				final int cx = chunkOf(x[r]);
+				final int cy = chunkOf(y[r]);
+				final Long key = Chunk.key(cx, cy);
+				Chunk c = evicted.get(key);
+				if (c == null) {
+					if (loaded.containsKey(key) || loading.containsKey(key) || saving.containsKey(key)
+							|| isRetrying(key, tick)) {
+						continue;
+					}
+					c = strays.get(key);
+					if (c == null) {
+						c = new Chunk(cx, cy);
+						strays.put(key, c);
+					}
+				}
+				detach(a, r, c);
+				if (n == ids.length) {
+					ids = Arrays.copyOf(ids, n * 2);
+					detached = ids;
+				}
+				ids[n++] = a.getEntity(r);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			world.destroy(ids[i]);
+		}
+		for (final Chunk c : evicted.values()) {
+			saving.put(c.getKey(), io.submit(() -> {
+				try {
+					write(c);
+				} finally {
+					saved.add(c.getKey());
+				}
+			}));
+		}
+		for (final Chunk s : strays.values()) {
+			saving.put(s.getKey(), io.submit(() -> {
+				try {
+					final Chunk c = new Chunk(s.getX(), s.getY());
+					if (!read(c)) {
+						// never save over a stored copy that could not be read
+						unreadable.add(s.getKey());
+						returned.add(s);
+						return;
+					}
+					for (int e = 0; e < s.getEntityCount(); e++) {
+						c.addEntity(s.getMask(e), s.getEntityX(e), s.getEntityY(e), s.getEntityVx(e),
+								s.getEntityVy(e), s.getEntityStatus(e), s.getEntityDirection(e),
+								s.getEntityCharacter(e));
+					}
+					write(c);
+				} finally {
+					saved.add(s.getKey());
+				}
+			}));
+		}
+		if (!evicted.isEmpty() || !strays.isEmpty()) {
+			LOGGER.debug("Evicted {} chunks, {} strays, {} entities detached", evicted.size(), strays.size(), n);
+		}
+	}
+
+	private static final void detach(Archetype a, int r, Chunk c) {
+		final int mask = a.getMask();
+		c.addEntity(mask, a.getX()[r], a.getY()[r], a.has(Component.VELOCITY) ? a.getVx()[r] : 0,
+				a.has(Component.VELOCITY) ? a.getVy()[r] : 0, a.has(Component.STATUS) ? a.getStatus()[r] : 0,
+				a.has(Component.DIRECTION) ? a.getDirection()[r] : 0,
+				a.has(Component.ANIMATION) ? a.getCharacter()[r] : 0);
+	}
+
+	private void write(Chunk c) {
+		try {
+			store.save(c);
+			synchronized (this) {
+				saves++;
+			}
+		} catch (final IOException e) {
+			LOGGER.warn("Error saving chunk {},{}", c.getX(), c.getY(), e);
+		}
+	}
+
+	/**
+	 * Waits for the pending loads, then evicts every chunk and waits until all
+	 * of them are saved. Used on exit. Entities standing on chunks that still
+	 * fail to load are left in the world.
+	 */
+	public void unloadAll() {
+		await(loading);
+		for (Chunk c; (c = ready.poll()) != null;) {
+			loading.remove(c.getKey());
+			attach(c);
+		}
+		loading.clear();
+		retryAt.clear();
+		final Map<Long, Chunk> evicted = new HashMap<>(loaded);
+		loaded.clear();
+		sweep(0, evicted);
+		await(saving);
+		saved.clear();
+		saving.clear();
+		unreadable.clear();
+		for (Chunk s; (s = returned.poll()) != null;) {
+			LOGGER.warn("Chunk {},{} failed to load, {} entities not saved", s.getX(), s.getY(), s.getEntityCount());
+			attachEntities(s);
+		}
+	}
+
+	/** Stops the I/O threads, after {@link #unloadAll()} to keep the world. */
+	public void shutdown() {
+		io.shutdown();
+	}
+
+	private static final void await(Map<Long, Future<?>> futures) {
+		for (final Future<?> f : new ArrayList<>(futures.values())) {
+			try {
+				f.get();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (final ExecutionException e) {
+				LOGGER.warn("Chunk job failed", e.getCause());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,16 @@
+package com.bzsoft.oworld.engine.world;
+
+import java.io.IOException;
+
+/**
+ * Persists chunks evicted from memory. Called from I/O threads, never twice
+ * at the same time for the same chunk.
+ */
+public interface ChunkStore {
+
+	/** Loads the chunk at its coordinates, false when it was never saved. */
+	public boolean load(Chunk chunk) throws IOException;
+
+	public void save(Chunk chunk) throws IOException;
+
+}
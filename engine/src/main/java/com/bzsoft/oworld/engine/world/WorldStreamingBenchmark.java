@@ -0,0 +1,70 @@
+package com.bzsoft.oworld.engine.world;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import com.bzsoft.oworld.engine.ecs.Archetype;
+import com.bzsoft.oworld.engine.ecs.Component;
+import com.bzsoft.oworld.engine.ecs.EntityWorld;
+import com.bzsoft.oworld.engine.world.impl.FileChunkStore;
+import com.bzsoft.oworld.engine.world.impl.RandomChunkGenerator;
+
+/**
+ * Moves a camera straight across the world and back while the entities
+ * wander, printing the chunks and entities in memory, which must stay bounded
+ * however long the walk.
+ * <p>
+ * Usage: WorldStreamingBenchmark [chunks walked] [store dir]
+ */
+public final class WorldStreamingBenchmark {
+
+	private static final float TILE = 32;
+	private static final int RADIUS = 2;
+	private static final float DT = 1f / 30;
+
+	private WorldStreamingBenchmark() {
+		// empty
+	}
+
+	public static void main(String[] args) throws IOException {
+		final int walk = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		final File dir = args.length > 1 ? new File(args[1])
+				: Files.createTempDirectory("oworld-chunks").toFile();
+		final EntityWorld world = new EntityWorld();
+		final ChunkManager chunks = new ChunkManager(world, new FileChunkStore(dir),
+				new RandomChunkGenerator(1, 64, TILE, 40, 0), TILE, RADIUS, 64, 2);
+		final float span = TILE * Chunk.SIZE;
+		// a quarter chunk per tick, out and back
+		final int ticks = walk * 8;
+		int maxLoaded = 0;
+		int maxEntities = 0;
+		long update = 0;
+		for (int t = 0; t < ticks; t++) {
+			final float cam = (t < ticks / 2 ? t : ticks - t) * span / 4;
+			final long t0 = System.nanoTime();
+			chunks.update(t, cam, 0);
+			update += System.nanoTime() - t0;
+			for (final Archetype a : world.query(Component.mask(Component.POSITION, Component.VELOCITY))) {
+				final float[] x = a.getX();
+				final float[] y = a.getY();
+				final float[] vx = a.getVx();
+				final float[] vy = a.getVy();
+				for (int r = 0, n = a.size(); r < n; r++) {
+					x[r] += vx[r] * DT;
+					y[r] += vy[r] * DT;
+				}
+			}
+			maxLoaded = Math.max(maxLoaded, chunks.getLoadedCount());
+			maxEntities = Math.max(maxEntities, world.size());
+		}
+		chunks.unloadAll();
+		System.out.printf("%d ticks, update %.3f ms/tick%n", ticks, update / 1e6 / ticks);
+		System.out.printf("chunks: %d generated, %d loaded, %d saved, at most %d in memory%n",
+				chunks.getGeneratedCount(), chunks.getLoadCount(), chunks.getSaveCount(), maxLoaded);
+		System.out.printf("entities: at most %d in memory, %d after unloading%n", maxEntities, world.size());
+		System.out.println("store: " + dir);
+		chunks.shutdown();
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.bzsoft.oworld.engine.world.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.bzsoft.oworld.engine.world.Chunk;
+import com.bzsoft.oworld.engine.world.ChunkStore;
+
+/**
+ * One deflated file per chunk, c_cx_cy.chunk in a directory. A chunk is
+ * written to a temporary file first and renamed, so a crash never leaves a
+ * half written chunk behind.
+ */
+public final class FileChunkStore implements ChunkStore {
+
+	private static final int MAGIC = 0x4f57434b;
+	private static final int VERSION = 1;
+
+	private final File dir;
+
+	public FileChunkStore(File dir) {
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IllegalArgumentException("Cannot create " + dir);
+		}
+		this.dir = dir;
+	}
+
+	private File file(Chunk chunk) {
+		return new File(dir, "c_" + chunk.getX() + "_" + chunk.getY() + ".chunk");
+	}
+
+	@Override
+	public boolean load(Chunk chunk) throws IOException {
+		final File f = file(chunk);
+		if (!f.isFile()) {
+			return false;
+		}
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new InflaterInputStream(new FileInputStream(f))))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException("Bad chunk file " + f);
+			}
+			if (in.readInt() != chunk.getX() || in.readInt() != chunk.getY()) {
+				throw new IOException("Chunk mismatch in " + f);
+			}
+			final int[] tiles = chunk.getTiles();
+			for (int i = 0; i < tiles.length; i++) {
+				tiles[i] = in.readInt();
+			}
+			chunk.clearEntities();
+			for (int e = 0, n = in.readInt(); e < n; e++) {
+				chunk.addEntity(in.readInt(), in.readFloat(), in.readFloat(), in.readFloat(), in.readFloat(),
+						in.readByte(), in.readByte(), in.readInt());
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void save(Chunk chunk) throws IOException {
+		final File f = file(chunk);
+		final File tmp = new File(dir, f.getName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new DeflaterOutputStream(new FileOutputStream(tmp))))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(chunk.getX());
+			out.writeInt(chunk.getY());
+			for (final int tile : chunk.getTiles()) {
+				out.writeInt(tile);
+			}
+			out.writeInt(chunk.getEntityCount());
+			for (int e = 0; e < chunk.getEntityCount(); e++) {
+				out.writeInt(chunk.getMask(e));
+				out.writeFloat(chunk.getEntityX(e));
+				out.writeFloat(chunk.getEntityY(e));
+				out.writeFloat(chunk.getEntityVx(e));
+				out.writeFloat(chunk.getEntityVy(e));
+				out.writeByte(chunk.getEntityStatus(e));
+				out.writeByte(chunk.getEntityDirection(e));
+				out.writeInt(chunk.getEntityCharacter(e));
+			}
+		}
+		Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+}
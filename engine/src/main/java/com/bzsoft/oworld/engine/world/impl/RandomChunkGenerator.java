@@ -0,0 +1,53 @@
+package com.bzsoft.oworld.engine.world.impl;
+
+import java.util.Random;
+
+import com.bzsoft.oworld.engine.Direction;
+import com.bzsoft.oworld.engine.Status;
+import com.bzsoft.oworld.engine.ecs.Component;
+import com.bzsoft.oworld.engine.world.Chunk;
+import com.bzsoft.oworld.engine.world.ChunkGenerator;
+
+/**
+ * Random tiles and wandering entities, seeded by the world seed and the chunk
+ * coordinates so a chunk always comes out the same.
+ */
+public final class RandomChunkGenerator implements ChunkGenerator {
+
+	private static final int ENTITY_MASK = Component.mask(Component.POSITION, Component.VELOCITY,
+			Component.STATUS, Component.DIRECTION, Component.ANIMATION, Component.LOD);
+
+	private final long seed;
+	private final int tileCount;
+	private final float tileSize;
+	private final int maxEntities;
+	private final int character;
+
+	public RandomChunkGenerator(long seed, int tileCount, float tileSize, int maxEntities, int character) {
+		this.seed = seed;
+		this.tileCount = tileCount;
+		this.tileSize = tileSize;
+		this.maxEntities = maxEntities;
+		this.character = character;
+	}
+
+	@Override
+	public void generate(Chunk chunk) {
+		final Random rnd = new Random(seed ^ chunk.getKey() * 0x9e3779b97f4a7c15L);
+		final int[] tiles = chunk.getTiles();
+		for (int i = 0; i < tiles.length; i++) {
+			tiles[i] = rnd.nextInt(tileCount);
+		}
+		final float span = tileSize * Chunk.SIZE;
+		final float x0 = chunk.getX() * span;
+		final float y0 = chunk.getY() * span;
+		final Direction[] directions = Direction.values();
+		for (int e = 0, n = rnd.nextInt(maxEntities + 1); e < n; e++) {
+			chunk.addEntity(ENTITY_MASK, x0 + rnd.nextFloat() * span, y0 + rnd.nextFloat() * span,
+					(rnd.nextFloat() * 2 - 1) * tileSize, (rnd.nextFloat() * 2 - 1) * tileSize,
+					(byte) Status.WALKING.ordinal(),
+					(byte) directions[rnd.nextInt(directions.length)].ordinal(), character);
+		}
+	}
+
+}
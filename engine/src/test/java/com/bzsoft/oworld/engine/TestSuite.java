@@ -0,0 +1,12 @@
+package com.bzsoft.oworld.engine;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+import com.bzsoft.oworld.engine.ecs.EntityWorldTest;
+
+@RunWith(Suite.class)
+@Suite.SuiteClasses({ EntityWorldTest.class })
+public class TestSuite {
+
+}
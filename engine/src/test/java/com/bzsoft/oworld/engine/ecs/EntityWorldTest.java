@@ -0,0 +1,79 @@
+package com.bzsoft.oworld.engine.ecs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class EntityWorldTest {
+
+	private static final int MASK = Component.mask(Component.POSITION, Component.VELOCITY);
+
+	private static final void assertRows(EntityWorld world, int... entities) {
+		for (final int e : entities) {
+			final Archetype a = world.getArchetype(e);
+			final int row = world.getRow(e);
+			assertTrue(row < a.size());
+			assertEquals(e, a.getEntity(row));
+		}
+	}
+
+	@Test
+	public void staleIdsAreDead() {
+		final EntityWorld world = new EntityWorld();
+		final int e = world.create(MASK);
+		world.destroy(e);
+		final int f = world.create(MASK);
+		assertEquals(EntityWorld.index(e), EntityWorld.index(f));
+		assertFalse(world.isAlive(e));
+		assertTrue(world.isAlive(f));
+	}
+
+	@Test
+	public void swapRemoveKeepsRows() {
+		final EntityWorld world = new EntityWorld();
+		final int a = world.create(MASK);
+		final int b = world.create(MASK);
+		final int c = world.create(MASK);
+		world.setPosition(c, 3, 4);
+		world.destroy(a);
+		assertRows(world, b, c);
+		assertEquals(3, world.getArchetype(c).getX()[world.getRow(c)], 0);
+		world.addComponents(b, Component.STATUS.mask());
+		assertRows(world, b, c);
+		assertEquals(2, world.size());
+	}
+
+	@Test
+	public void slotReuseBeyondSignBit() {
+		final EntityWorld world = new EntityWorld();
+		final int other = world.create(MASK);
+		int e = world.create(MASK);
+		// generations of 512 and more set the sign bit of the id
+		for (int i = 0; i < 600; i++) {
+			world.destroy(e);
+			e = world.create(MASK);
+		}
+		assertTrue(e < 0);
+		world.destroy(other);
+		assertRows(world, e);
+		assertEquals(0, world.getRow(e));
+		world.setPosition(e, 5, 6);
+		assertEquals(5, world.getArchetype(e).getX()[0], 0);
+	}
+
+	@Test
+	public void generationWrapsAround() {
+		final EntityWorld world = new EntityWorld();
+		final int first = world.create(MASK);
+		int e = first;
+		for (int i = 0; i < 1 << 32 - EntityWorld.INDEX_BITS; i++) {
+			world.destroy(e);
+			e = world.create(MASK);
+		}
+		assertEquals(first, e);
+		assertRows(world, e);
+	}
+
+}
@@ -1,16 +1,16 @@
 package com.bzsoft.oworld.ui;
 
 import java.awt.Color;
-import java.awt.DisplayMode;
 import java.awt.EventQueue;
 import java.awt.Frame;
 import java.awt.Graphics2D;
-import java.awt.GraphicsDevice;
 import java.awt.GraphicsEnvironment;
 import java.awt.Image;
 import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.Toolkit;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferStrategy;
@@ -21,6 +21,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,17 +34,41 @@ import com.bzsoft.oworld.ui.components.Drawable;
 import com.bzsoft.oworld.ui.components.impl.UIFpsCounter;
 import com.bzsoft.oworld.ui.components.impl.UIPanel;
 import com.bzsoft.oworld.ui.components.impl.UIProgress;
+import com.bzsoft.oworld.ui.components.impl.UIScrollingViewport;
+import com.bzsoft.oworld.ui.components.impl.UISnapshotLayer;
+import com.bzsoft.oworld.ui.render.Camera;
+import com.bzsoft.oworld.ui.render.DisplayConfiguration;
+import com.bzsoft.oworld.ui.render.DisplaySetup;
+import com.bzsoft.oworld.ui.render.RenderPolicy;
+import com.bzsoft.oworld.ui.render.Renderer;
+import com.bzsoft.oworld.ui.render.Simulation;
+import com.bzsoft.oworld.ui.render.WorldLayer;
+import com.bzsoft.oworld.ui.render.impl.DefaultDisplaySetup;
+import com.bzsoft.oworld.ui.render.impl.OnDemandRenderPolicy;
+import com.bzsoft.oworld.ui.render.impl.RendererFactory;
+import com.bzsoft.oworld.ui.render.impl.SimulationThread;
 import com.bzsoft.oworld.ui.util.I18nManager;
 import com.bzsoft.oworld.ui.util.I18nNaming;
 import com.bzsoft.oworld.ui.util.event.EventLoop;
 import com.bzsoft.oworld.ui.util.event.impl.EventLoopImpl;
 import com.bzsoft.oworld.ui.util.impl.I18nManagerImpl;
+import com.bzsoft.oworld.util.concurrent.ThreadPool;
+import com.bzsoft.oworld.util.concurrent.TripleBuffer;
+import com.bzsoft.oworld.util.concurrent.impl.ThreadPoolImpl;
+import com.bzsoft.oworld.util.render.RenderSnapshot;
 
 public final class Launcher {
 
 	protected static final Logger LOGGER = LoggerFactory.getLogger(Launcher.class);
 	protected static final long MILLIS = 1000 / 12;
 	protected static final int IMGCACHESIZE = 2048;
+	protected static final int TICKS_PER_SECOND = 30;
+	protected static final long BACKGROUND_MILLIS = 500;
+	protected static final long HIDDEN_MILLIS = 1000;
+	protected static final int DISPLAY_WIDTH = 1280;
+	protected static final int DISPLAY_HEIGHT = 800;
+	protected static final int DISPLAY_BITDEPTH = 8;
+	protected static final int DISPLAY_REFRESH = 60;
 
 	protected final Frame frame;
 	protected final I18nManager i18nManager;
@@ -52,6 +77,18 @@ public final class Launcher {
 	protected final EventLoop el;
 	protected final SortedMap<Integer, List<Drawable>> drawables;
 	protected final ResourceManager resourceManager;
+	protected final ThreadPool threadPool;
+	protected final Renderer renderer;
+	protected final TripleBuffer<RenderSnapshot> snapshots;
+	protected final Camera camera;
+	protected final UISnapshotLayer snapshotLayer;
+	protected SimulationThread simulationThread;
+	protected UIScrollingViewport worldViewport;
+	protected final RenderPolicy renderPolicy;
+	protected final AtomicInteger animGeneration;
+	protected final DisplaySetup displaySetup;
+	protected volatile DisplayConfiguration displayConfiguration;
+	protected volatile BufferStrategy bufferStrategy;
 	protected volatile boolean running;
 
 	protected Launcher() {
@@ -62,15 +99,59 @@ public final class Launcher {
 		drawables = new TreeMap<>();
 		el = new EventLoopImpl(null);
 		resourceManager = new BaseResourceManager(frame, IMGCACHESIZE);
+		threadPool = new ThreadPoolImpl();
+		renderer = RendererFactory.create(threadPool, renderingHints, MILLIS);
+		LOGGER.info("Renderer: {}", renderer.getType());
+		snapshots = new TripleBuffer<>(RenderSnapshot::new);
+		camera = new Camera();
+		snapshotLayer = new UISnapshotLayer(el, resourceManager, snapshots, camera);
+		renderPolicy = new OnDemandRenderPolicy(MILLIS, BACKGROUND_MILLIS, HIDDEN_MILLIS);
+		animGeneration = new AtomicInteger();
+		displaySetup = new DefaultDisplaySetup(DISPLAY_WIDTH, DISPLAY_HEIGHT, DISPLAY_BITDEPTH, DISPLAY_REFRESH);
 		animThread = new Thread(createGameLoop(frame), "AnimationThread");
 	}
 
 	protected final void initUI() {
-		frame.addWindowListener(new WindowAdapter() {
+		final WindowAdapter windowListener = new WindowAdapter() {
 			@Override
 			public void windowClosing(WindowEvent e) {
 				exit();
 			}
+
+			@Override
+			public void windowIconified(WindowEvent e) {
+				renderPolicy.setIconified(true);
+			}
+
+			@Override
+			public void windowDeiconified(WindowEvent e) {
+				renderPolicy.setIconified(false);
+				wake();
+			}
+
+			@Override
+			public void windowGainedFocus(WindowEvent e) {
+				renderPolicy.setFocused(true);
+				wake();
+			}
+
+			@Override
+			public void windowLostFocus(WindowEvent e) {
+				renderPolicy.setFocused(false);
+			}
+		};
+		frame.addWindowListener(windowListener);
+		frame.addWindowFocusListener(windowListener);
+		frame.addComponentListener(new ComponentAdapter() {
+			@Override
+			public void componentResized(ComponentEvent e) {
+				wake();
+			}
+
+			@Override
+			public void componentShown(ComponentEvent e) {
+				wake();
+			}
 		});
 		frame.setIconImage(resourceManager.getImage(R.Resources.icon));
 		frame.setIgnoreRepaint(true);
@@ -84,8 +165,7 @@ public final class Launcher {
 		final Rectangle rec = ge.getMaximumWindowBounds();
 		frame.setSize((int) rec.getWidth(), (int) rec.getHeight());
 		frame.setLocationRelativeTo(null);
-		final boolean fullScreen = tryFullScreen(frame);
-		LOGGER.info("Trying fullscreen: {}", fullScreen);
+		displayConfiguration = displaySetup.configure(frame);
 		frame.setVisible(true);
 		EventQueue.invokeLater(() -> {
 			running = true;
@@ -93,40 +173,14 @@ public final class Launcher {
 		});
 	}
 
-	private static boolean tryFullScreen(Frame frame) {
-		final GraphicsEnvironment ge = GraphicsEnvironment.getLocalGraphicsEnvironment();
-		final GraphicsDevice gs = ge.getDefaultScreenDevice();
-		if (gs.isFullScreenSupported()) {
-			final DisplayMode dm = gs.getDisplayMode();
-			try {
-				gs.setFullScreenWindow(frame);
-				final DisplayMode sdm = getPreferredDisplayMode(gs.getDisplayModes(), 1280, 800, 8, 60);
-				gs.setDisplayMode(sdm != null ? sdm : dm);
-				return true;
-			} catch (final Exception e) {
-				gs.setFullScreenWindow(null);
-				gs.setDisplayMode(dm);
-				return false;
-			}
-		}
-		return false;
-	}
-
-	private static final DisplayMode getPreferredDisplayMode(DisplayMode[] dms, int w, int h, int bitDepth, int hz) {
-		DisplayMode selected = null;
-		for (final DisplayMode dm : dms) {
-			if (dm.getHeight() == h && dm.getWidth() == w && dm.getBitDepth() == bitDepth
-					&& dm.getRefreshRate() == hz) {
-				selected = dm;
-				break;
-			}
-		}
-		return selected;
-	}
-
 	protected void exit() {
 		LOGGER.info("Exiting ...");
 		running = false;
+		if (simulationThread != null) {
+			simulationThread.stop();
+		}
+		threadPool.shutdown();
+		displaySetup.restore(frame);
 		System.exit(0);
 	}
 
@@ -136,25 +190,25 @@ public final class Launcher {
 
 	protected final Runnable createGameLoop(final Frame f) {
 		return () -> {
-			f.createBufferStrategy(3);
-			final BufferStrategy bstg = f.getBufferStrategy();
+			final BufferStrategy bstg = displaySetup.createBufferStrategy(f, displayConfiguration);
+			bufferStrategy = bstg;
 			createGame(f.getWidth(), f.getHeight());
 			el.addListener(DrawEvent.class, e -> {
 				final long now = System.currentTimeMillis();
-				for (final List<Drawable> list : drawables.values()) {
-					for (final Drawable d : list) {
-						d.onDraw(e.getGraphics(), e.getWidth(), e.getHeight(), now);
-					}
+				camera.latch();
+				snapshotLayer.latch();
+				final List<Drawable> frame = snapshotDrawables();
+				for (final Drawable d : frame) {
+					d.onFrame(now);
 				}
+				renderer.render(e.getGraphics(), e.getWidth(), e.getHeight(), now, frame);
 			});
 			el.addListener(BufferStrategy.class, e -> {
 				do {
 					do {
 						final Graphics2D g2d = (Graphics2D) e.getDrawGraphics();
-						g2d.setRenderingHints(renderingHints);
 						final int w = f.getWidth();
 						final int h = f.getHeight();
-						g2d.clearRect(0, 0, w, h);
 						el.runEvent(DrawEvent.class, new DrawEvent(g2d, w, h));
 						Toolkit.getDefaultToolkit().sync();
 						g2d.dispose();
@@ -162,20 +216,69 @@ public final class Launcher {
 					bstg.show();
 				} while (bstg.contentsLost());
 			});
-			final Runnable anim = new Runnable() {
-				@Override
-				public void run() {
-					el.pushEvent(BufferStrategy.class, bstg);
-					el.submit(this, MILLIS);
-				}
-			};
-			el.submit(anim, MILLIS);
+			el.submit(new AnimTick(animGeneration.get()), MILLIS);
 			while (!el.isClosed()) {
 				el.readAndDispatch();
 			}
 		};
 	}
 
+	/**
+	 * One check of the render policy, reschedules itself until a newer
+	 * generation is started by {@link #wake()}.
+	 */
+	private final class AnimTick implements Runnable {
+
+		private final int generation;
+
+		AnimTick(int generation) {
+			this.generation = generation;
+		}
+
+		@Override
+		public void run() {
+			if (generation != animGeneration.get()) {
+				return;
+			}
+			final long now = System.currentTimeMillis();
+			if (renderPolicy.shouldRender(now, needsRedraw(now))) {
+				el.pushEvent(BufferStrategy.class, bufferStrategy);
+			}
+			el.submit(this, renderPolicy.getDelay());
+		}
+	}
+
+	/**
+	 * Forces a frame and restarts the animation loop at once, so a long
+	 * background or hidden delay is not waited out.
+	 */
+	protected final void wake() {
+		renderPolicy.invalidate();
+		if (bufferStrategy != null) {
+			el.submit(new AnimTick(animGeneration.incrementAndGet()));
+		}
+	}
+
+	protected final boolean needsRedraw(long now) {
+		for (final Drawable d : snapshotDrawables()) {
+			if (d.needsRedraw(now)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** The drawables in z order, copied so the loaders can add or remove while drawing. */
+	protected final List<Drawable> snapshotDrawables() {
+		final List<Drawable> snapshot = new ArrayList<>();
+		synchronized (drawables) {
+			for (final List<Drawable> list : drawables.values()) {
+				snapshot.addAll(list);
+			}
+		}
+		return snapshot;
+	}
+
 	protected final void addDrawable(int zeta, Drawable d) {
 		synchronized (drawables) {
 			List<Drawable> l = drawables.get(zeta);
@@ -195,6 +298,31 @@ public final class Launcher {
 		}
 	}
 
+	/**
+	 * Runs the game logic on its own thread, its snapshots are drawn by
+	 * {@link #snapshotLayer} on the animation thread.
+	 */
+	protected final synchronized void startSimulation(Simulation simulation) {
+		if (simulationThread != null) {
+			simulationThread.stop();
+		}
+		simulationThread = new SimulationThread(simulation, snapshots, TICKS_PER_SECOND);
+		simulationThread.start();
+	}
+
+	/**
+	 * Shows a world layer below the sprites, scrolled by {@link #camera}.
+	 * Replaces the layer shown before.
+	 */
+	protected final synchronized UIScrollingViewport showWorld(WorldLayer layer) {
+		if (worldViewport != null) {
+			removeDrawable(worldViewport);
+		}
+		worldViewport = new UIScrollingViewport(el, camera, layer);
+		addDrawable(10, worldViewport);
+		return worldViewport;
+	}
+
 	protected final void createGame(int w, int h) {
 		final int maxProgress = 100;
 		final Rectangle rect = new Rectangle(w / 4, h / 2 - h / 32, w / 2, h / 16);
@@ -213,6 +341,7 @@ public final class Launcher {
 				progress.incrProgress(90);
 				removeDrawable(progress);
 				addDrawable(0, panel);
+				addDrawable(50, snapshotLayer);
 			} catch (final Exception e) {
 				// TODO: error loading game
 			}
@@ -220,7 +349,7 @@ public final class Launcher {
 		backgroundLoader.start();
 	}
 
-	protected static final Map<RenderingHints.Key, Object> createRenderingHints() {
+	public static final Map<RenderingHints.Key, Object> createRenderingHints() {
 		final Map<RenderingHints.Key, Object> hints = new HashMap<>();
 		hints.put(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 		hints.put(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_QUALITY);
@@ -6,4 +6,22 @@ public interface Drawable {
 
 	public void onDraw(Graphics2D g, int w, int h, long now);
 
+	/**
+	 * True when the next frame would differ from the last one drawn, because
+	 * the state changed or an animation runs. Must not clear any state, a
+	 * frame may be skipped after the call. Always true by default.
+	 */
+	public default boolean needsRedraw(long now) {
+		return true;
+	}
+
+	/**
+	 * Called once on the render thread before a frame is drawn, before any
+	 * band of the software renderer starts. Change flags are cleared here,
+	 * never while drawing.
+	 */
+	public default void onFrame(long now) {
+		// empty
+	}
+
 }
@@ -0,0 +1,13 @@
+package com.bzsoft.oworld.ui.components;
+
+/**
+ * A {@link Drawable} that can also paint straight into the int[] back buffer
+ * of the software renderer. The frame is split in horizontal bands drawn
+ * concurrently, so implementations must only write the rows [y0, y1) and
+ * must not change state while drawing.
+ */
+public interface PixelDrawable extends Drawable {
+
+	public void onDraw(int[] pixels, int w, int h, int y0, int y1, long now);
+
+}
@@ -17,6 +17,12 @@ public class UIFpsCounter extends UIComponent {
 		last = System.currentTimeMillis();
 	}
 
+	@Override
+	public boolean needsRedraw(long now) {
+		// only counts the frames drawn for other reasons
+		return false;
+	}
+
 	@Override
 	public void onDraw(Graphics2D g, int w, int h, long now) {
 		final float time = now - last;
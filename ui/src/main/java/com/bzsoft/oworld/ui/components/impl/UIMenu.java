@@ -15,6 +15,11 @@ public class UIMenu extends UIComponent {
 		this.rect = rect;
 	}
 
+	@Override
+	public boolean needsRedraw(long now) {
+		return false;
+	}
+
 	@Override
 	public void onDraw(Graphics2D g, int w, int h, long now) {
 		try {
@@ -3,18 +3,26 @@ package com.bzsoft.oworld.ui.components.impl;
 import java.awt.Graphics2D;
 import java.awt.Image;
 import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.awt.image.ImageObserver;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.bzsoft.oworld.assets.ResourceManager;
+import com.bzsoft.oworld.ui.components.PixelDrawable;
 import com.bzsoft.oworld.ui.components.UIComponent;
 import com.bzsoft.oworld.ui.util.event.EventManager;
 
-public class UIPanel extends UIComponent {
+public class UIPanel extends UIComponent implements PixelDrawable {
 
 	private final Rectangle rect;
 	private final ResourceManager rm;
 	private final ImageObserver o;
-	private Image background;
+	private volatile Image background;
+	private volatile int[] backgroundPixels;
+	private int backgroundWidth;
+	private int backgroundHeight;
+	private final AtomicBoolean changed = new AtomicBoolean(true);
 
 	public UIPanel(EventManager em, ResourceManager rm, Rectangle rect, ImageObserver o) {
 		super(em);
@@ -24,7 +32,63 @@ public class UIPanel extends UIComponent {
 	}
 
 	public void setBackground(Image background) {
+		this.backgroundPixels = null;
 		this.background = background;
+		changed.set(true);
+	}
+
+	@Override
+	public boolean needsRedraw(long now) {
+		return changed.get();
+	}
+
+	@Override
+	public void onFrame(long now) {
+		// cleared before the content is read, a later change is drawn next frame
+		changed.set(false);
+	}
+
+	/** The background as TYPE_INT_RGB rows, converted once. */
+	private int[] getBackgroundPixels() {
+		int[] px = backgroundPixels;
+		final Image img = background;
+		if (px == null && img != null) {
+			synchronized (this) {
+				px = backgroundPixels;
+				if (px == null) {
+					final int bw = img.getWidth(o);
+					final int bh = img.getHeight(o);
+					if (bw <= 0 || bh <= 0) {
+						return null;
+					}
+					final BufferedImage rgb = new BufferedImage(bw, bh, BufferedImage.TYPE_INT_RGB);
+					final Graphics2D g = rgb.createGraphics();
+					try {
+						g.drawImage(img, 0, 0, o);
+					} finally {
+						g.dispose();
+					}
+					backgroundWidth = bw;
+					backgroundHeight = bh;
+					px = ((DataBufferInt) rgb.getRaster().getDataBuffer()).getData();
+					backgroundPixels = px;
+				}
+			}
+		}
+		return px;
+	}
+
+	@Override
+	public void onDraw(int[] pixels, int w, int h, int y0, int y1, long now) {
+		final int[] px = getBackgroundPixels();
+		if (px == null) {
+			return;
+		}
+		final int cw = Math.min(w, backgroundWidth);
+		final int ye = Math.min(y1, backgroundHeight);
+		for (int y = y0; y < ye; y++) {
+			System.arraycopy(px, y * backgroundWidth, pixels, y * w, cw);
+		}
 	}
 
 	@Override
@@ -9,7 +9,8 @@ import com.bzsoft.oworld.ui.util.event.EventManager;
 
 public class UIProgress extends UIComponent {
 
-	private int progress;
+	private volatile int progress;
+	private volatile int drawn = -1;
 	private final int max;
 	private final Rectangle rect;
 
@@ -27,9 +28,15 @@ public class UIProgress extends UIComponent {
 		this.progress += progress;
 	}
 
+	@Override
+	public boolean needsRedraw(long now) {
+		return drawn != progress;
+	}
+
 	@Override
 	public void onDraw(Graphics2D g, int w, int h, long now) {
 		final Color c = g.getColor();
+		drawn = progress;
 		try {
 			g.setColor(Color.white);
 			g.drawRoundRect(rect.x, rect.y, rect.width, rect.height, 10, 10);
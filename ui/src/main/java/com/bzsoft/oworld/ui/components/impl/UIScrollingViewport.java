@@ -0,0 +1,118 @@
+package com.bzsoft.oworld.ui.components.impl;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Transparency;
+import java.awt.image.VolatileImage;
+
+import com.bzsoft.oworld.ui.components.UIComponent;
+import com.bzsoft.oworld.ui.render.Camera;
+import com.bzsoft.oworld.ui.render.WorldLayer;
+import com.bzsoft.oworld.ui.util.event.EventManager;
+
+/**
+ * Draws a {@link WorldLayer} through the {@link Camera}. The last frame is
+ * kept offscreen; when the camera moves by less than the screen it is shifted
+ * with copyArea and only the revealed strips are asked from the layer, so a
+ * scroll costs the pixels revealed instead of the whole screen. A jump, a
+ * resize, lost contents or {@link #invalidate()} redraw everything.
+ */
+public class UIScrollingViewport extends UIComponent {
+
+	private final Camera camera;
+	private final WorldLayer layer;
+	private VolatileImage cache;
+	private boolean valid;
+	private int cacheX;
+	private int cacheY;
+	private long paintedPixels;
+	private volatile boolean invalid;
+
+	public UIScrollingViewport(EventManager em, Camera camera, WorldLayer layer) {
+		super(em);
+		this.camera = camera;
+		this.layer = layer;
+	}
+
+	/** Forces a full redraw, e.g. after the layer content changed. */
+	public void invalidate() {
+		invalid = true;
+	}
+
+	@Override
+	public boolean needsRedraw(long now) {
+		return invalid || !valid || camera.hasMoved() || camera.getX() != cacheX || camera.getY() != cacheY;
+	}
+
+	/** Pixels asked from the layer so far. */
+	public long getPaintedPixels() {
+		return paintedPixels;
+	}
+
+	@Override
+	public void onDraw(Graphics2D g, int w, int h, long now) {
+		final int x = camera.getX();
+		final int y = camera.getY();
+		final GraphicsConfiguration gc = g.getDeviceConfiguration();
+		do {
+			final int status = cache == null || cache.getWidth() != w || cache.getHeight() != h
+					? VolatileImage.IMAGE_INCOMPATIBLE
+					: cache.validate(gc);
+			if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+				if (cache != null) {
+					cache.flush();
+				}
+				cache = gc.createCompatibleVolatileImage(w, h, Transparency.OPAQUE);
+				valid = false;
+			} else if (status == VolatileImage.IMAGE_RESTORED) {
+				valid = false;
+			}
+			final Graphics2D cg = cache.createGraphics();
+			try {
+				update(cg, x, y, w, h);
+			} finally {
+				cg.dispose();
+			}
+			if (cache.contentsLost()) {
+				valid = false;
+			}
+		} while (!valid);
+		g.drawImage(cache, 0, 0, null);
+	}
+
+	private void update(Graphics2D cg, int x, int y, int w, int h) {
+		final int dx = x - cacheX;
+		final int dy = y - cacheY;
+		if (!valid || invalid || Math.abs(dx) >= w || Math.abs(dy) >= h) {
+			invalid = false;
+			paint(cg, x, y, 0, 0, w, h);
+		} else if (dx != 0 || dy != 0) {
+			cg.copyArea(0, 0, w, h, -dx, -dy);
+			final int adx = Math.abs(dx);
+			if (dx != 0) {
+				paint(cg, x, y, dx > 0 ? w - dx : 0, 0, adx, h);
+			}
+			if (dy != 0) {
+				// the corner was painted with the columns
+				paint(cg, x, y, dx < 0 ? adx : 0, dy > 0 ? h - dy : 0, w - adx, Math.abs(dy));
+			}
+		}
+		cacheX = x;
+		cacheY = y;
+		valid = true;
+	}
+
+	private void paint(Graphics2D cg, int x, int y, int sx, int sy, int sw, int sh) {
+		if (sw <= 0 || sh <= 0) {
+			return;
+		}
+		final Graphics2D sg = (Graphics2D) cg.create(sx, sy, sw, sh);
+		try {
+			layer.drawRegion(sg, x + sx, y + sy, sw, sh);
+		} finally {
+			sg.dispose();
+		}
+		paintedPixels += (long) sw * sh;
+	}
+
+}
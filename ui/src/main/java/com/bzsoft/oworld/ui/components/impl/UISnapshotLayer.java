@@ -0,0 +1,95 @@
+package com.bzsoft.oworld.ui.components.impl;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+
+import com.bzsoft.oworld.assets.ResourceManager;
+import com.bzsoft.oworld.assets.Sprite;
+import com.bzsoft.oworld.ui.components.PixelDrawable;
+import com.bzsoft.oworld.ui.components.UIComponent;
+import com.bzsoft.oworld.ui.render.Camera;
+import com.bzsoft.oworld.ui.util.event.EventManager;
+import com.bzsoft.oworld.util.concurrent.TripleBuffer;
+import com.bzsoft.oworld.util.render.RenderSnapshot;
+
+/**
+ * Draws the newest {@link RenderSnapshot} published by the simulation thread.
+ * {@link #latch()} must be called once per frame on the render thread before
+ * drawing; it takes the newest snapshot and resolves its frames, so the band
+ * threads of the software renderer only blit. Snapshot positions are world
+ * coordinates, drawn relative to the {@link Camera}.
+ */
+public class UISnapshotLayer extends UIComponent implements PixelDrawable {
+
+	private final ResourceManager rm;
+	private final TripleBuffer<RenderSnapshot> snapshots;
+	private final Camera camera;
+	private RenderSnapshot current;
+	private Sprite[] sprites;
+
+	public UISnapshotLayer(EventManager em, ResourceManager rm, TripleBuffer<RenderSnapshot> snapshots,
+			Camera camera) {
+		super(em);
+		this.rm = rm;
+		this.snapshots = snapshots;
+		this.camera = camera;
+		this.sprites = new Sprite[0];
+	}
+
+	/**
+	 * True when the simulation published a snapshot not latched yet or the
+	 * camera moved.
+	 */
+	@Override
+	public boolean needsRedraw(long now) {
+		return snapshots.hasFresh() || camera.hasMoved();
+	}
+
+	/** Render thread only, takes the newest snapshot. */
+	public void latch() {
+		final RenderSnapshot s = snapshots.acquire();
+		if (s == current) {
+			return;
+		}
+		current = s;
+		if (sprites.length < s.size()) {
+			sprites = new Sprite[s.size()];
+		}
+		for (int i = 0; i < s.size(); i++) {
+			sprites[i] = rm.getCharacterSprite(s.getFrame(i));
+		}
+	}
+
+	@Override
+	public void onDraw(int[] pixels, int w, int h, int y0, int y1, long now) {
+		final RenderSnapshot s = current;
+		if (s == null) {
+			return;
+		}
+		final int cx = camera.getX();
+		final int cy = camera.getY();
+		for (int i = 0; i < s.size(); i++) {
+			final Sprite sprite = sprites[i];
+			if (sprite != null) {
+				sprite.blit(pixels, w, s.getX(i) - cx, s.getY(i) - cy, y0, y1);
+			}
+		}
+	}
+
+	@Override
+	public void onDraw(Graphics2D g, int w, int h, long now) {
+		final RenderSnapshot s = current;
+		if (s == null) {
+			return;
+		}
+		final int cx = camera.getX();
+		final int cy = camera.getY();
+		for (int i = 0; i < s.size(); i++) {
+			final Image img = rm.getCharacterImage(s.getFrame(i));
+			if (img != null) {
+				g.drawImage(img, s.getX(i) - cx, s.getY(i) - cy, null);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package com.bzsoft.oworld.ui.components.impl;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.bzsoft.oworld.assets.Sprite;
+import com.bzsoft.oworld.ui.components.PixelDrawable;
+import com.bzsoft.oworld.ui.components.UIComponent;
+import com.bzsoft.oworld.ui.util.event.EventManager;
+
+/**
+ * A list of sprites at screen positions, drawn in order. The list is
+ * replaced as a whole with {@link #setSprites(Sprite[], int[], int[], int)},
+ * so a frame never sees a half updated list.
+ */
+public class UISpriteLayer extends UIComponent implements PixelDrawable {
+
+	private static final class Batch {
+		final Sprite[] sprites;
+		final int[] xs;
+		final int[] ys;
+		final int size;
+
+		Batch(Sprite[] sprites, int[] xs, int[] ys, int size) {
+			this.sprites = sprites;
+			this.xs = xs;
+			this.ys = ys;
+			this.size = size;
+		}
+	}
+
+	private volatile Batch batch;
+	private final AtomicBoolean changed = new AtomicBoolean(true);
+	private BufferedImage scratch;
+
+	public UISpriteLayer(EventManager em) {
+		super(em);
+		batch = new Batch(new Sprite[0], new int[0], new int[0], 0);
+	}
+
+	/** The arrays are kept, callers must not modify them afterwards. */
+	public void setSprites(Sprite[] sprites, int[] xs, int[] ys, int size) {
+		batch = new Batch(sprites, xs, ys, size);
+		changed.set(true);
+	}
+
+	@Override
+	public boolean needsRedraw(long now) {
+		return changed.get();
+	}
+
+	@Override
+	public void onFrame(long now) {
+		// cleared before the batch is read, a later change is drawn next frame
+		changed.set(false);
+	}
+
+	@Override
+	public void onDraw(int[] pixels, int w, int h, int y0, int y1, long now) {
+		final Batch b = batch;
+		for (int i = 0; i < b.size; i++) {
+			b.sprites[i].blit(pixels, w, b.xs[i], b.ys[i], y0, y1);
+		}
+	}
+
+	@Override
+	public void onDraw(Graphics2D g, int w, int h, long now) {
+		// Java2D backend: blit into an ARGB scratch image and draw it once,
+		// translucent sprite edges are blended against transparent black here
+		if (scratch == null || scratch.getWidth() != w || scratch.getHeight() != h) {
+			scratch = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+		}
+		final int[] pixels = ((DataBufferInt) scratch.getRaster().getDataBuffer()).getData();
+		Arrays.fill(pixels, 0);
+		onDraw(pixels, w, h, 0, h, now);
+		g.drawImage(scratch, 0, 0, null);
+	}
+
+}
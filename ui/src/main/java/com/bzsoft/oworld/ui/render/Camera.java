@@ -0,0 +1,57 @@
+package com.bzsoft.oworld.ui.render;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * World position of the top left corner of the screen. Any thread may move
+ * the camera; the render thread calls {@link #latch()} once per frame so every
+ * drawable of the frame sees the same position.
+ */
+public final class Camera {
+
+	private final AtomicLong target;
+	private int x;
+	private int y;
+
+	public Camera() {
+		this.target = new AtomicLong();
+	}
+
+	private static final long pack(int x, int y) {
+		return (long) x << 32 | y & 0xffffffffL;
+	}
+
+	public void moveTo(int x, int y) {
+		target.set(pack(x, y));
+	}
+
+	public void moveBy(int dx, int dy) {
+		long t;
+		do {
+			t = target.get();
+		} while (!target.compareAndSet(t, pack((int) (t >> 32) + dx, (int) t + dy)));
+	}
+
+	/** True when the camera was moved after the last {@link #latch()}. */
+	public boolean hasMoved() {
+		return target.get() != pack(x, y);
+	}
+
+	/** Render thread only, takes the newest position. */
+	public void latch() {
+		final long t = target.get();
+		x = (int) (t >> 32);
+		y = (int) t;
+	}
+
+	/** Latched x, render thread only. */
+	public int getX() {
+		return x;
+	}
+
+	/** Latched y, render thread only. */
+	public int getY() {
+		return y;
+	}
+
+}
@@ -0,0 +1,65 @@
+package com.bzsoft.oworld.ui.render;
+
+import java.awt.BufferCapabilities;
+import java.awt.BufferCapabilities.FlipContents;
+import java.awt.DisplayMode;
+
+/**
+ * The display set up by a {@link DisplaySetup}: whether the window is full
+ * screen, the display mode in use and the buffers requested for presenting.
+ */
+public final class DisplayConfiguration {
+
+	private final boolean fullScreen;
+	private final DisplayMode displayMode;
+	private final int bufferCount;
+	private final BufferCapabilities capabilities;
+
+	private DisplayConfiguration(boolean fullScreen, DisplayMode displayMode, int bufferCount,
+			BufferCapabilities capabilities) {
+		this.fullScreen = fullScreen;
+		this.displayMode = displayMode;
+		this.bufferCount = bufferCount;
+		this.capabilities = capabilities;
+	}
+
+	public static final DisplayConfiguration of(boolean fullScreen, DisplayMode displayMode, int bufferCount,
+			BufferCapabilities capabilities) {
+		return new DisplayConfiguration(fullScreen, displayMode, bufferCount, capabilities);
+	}
+
+	public boolean isFullScreen() {
+		return fullScreen;
+	}
+
+	/** The current display mode, null when unknown. */
+	public DisplayMode getDisplayMode() {
+		return displayMode;
+	}
+
+	public int getBufferCount() {
+		return bufferCount;
+	}
+
+	/** The capabilities asked for, null to let AWT choose. */
+	public BufferCapabilities getCapabilities() {
+		return capabilities;
+	}
+
+	public boolean isPageFlipping() {
+		return capabilities != null && capabilities.isPageFlipping();
+	}
+
+	public FlipContents getFlipContents() {
+		return capabilities == null ? null : capabilities.getFlipContents();
+	}
+
+	@Override
+	public String toString() {
+		final String mode = displayMode == null ? "unknown"
+				: displayMode.getWidth() + "x" + displayMode.getHeight() + "x" + displayMode.getBitDepth() + "@"
+						+ displayMode.getRefreshRate();
+		return "fullScreen=" + fullScreen + ", mode=" + mode + ", buffers=" + bufferCount + ", pageFlipping="
+				+ isPageFlipping() + ", flipContents=" + getFlipContents();
+	}
+}
@@ -0,0 +1,28 @@
+package com.bzsoft.oworld.ui.render;
+
+import java.awt.Frame;
+import java.awt.image.BufferStrategy;
+
+/**
+ * Puts a frame on screen: full screen and display mode when the device
+ * allows it, then the buffer strategy that presents fastest on it.
+ */
+public interface DisplaySetup {
+
+	/**
+	 * Enters full screen if supported, switches to the best display mode and
+	 * chooses the buffers from the capabilities of the frame's configuration.
+	 * Called before the frame is shown.
+	 */
+	public DisplayConfiguration configure(Frame frame);
+
+	/**
+	 * Creates the buffer strategy of a shown frame, falling back to what AWT
+	 * offers when the chosen capabilities are refused.
+	 */
+	public BufferStrategy createBufferStrategy(Frame frame, DisplayConfiguration configuration);
+
+	/** Restores the original display mode and leaves full screen. */
+	public void restore(Frame frame);
+
+}
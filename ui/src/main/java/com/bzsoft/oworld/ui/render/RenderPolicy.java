@@ -0,0 +1,26 @@
+package com.bzsoft.oworld.ui.render;
+
+/**
+ * Decides when the animation loop presents a frame and how long it sleeps
+ * between checks. Window state is set from the AWT thread, the other methods
+ * are called by the animation thread.
+ */
+public interface RenderPolicy {
+
+	/**
+	 * True when a frame must be rendered now; changed tells whether a drawable
+	 * or the world reported a change.
+	 */
+	public boolean shouldRender(long now, boolean changed);
+
+	/** Milliseconds until the next check. */
+	public long getDelay();
+
+	/** Forces the next frame, e.g. after the window was exposed or resized. */
+	public void invalidate();
+
+	public void setFocused(boolean focused);
+
+	public void setIconified(boolean iconified);
+
+}
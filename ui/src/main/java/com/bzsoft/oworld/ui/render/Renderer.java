@@ -0,0 +1,35 @@
+package com.bzsoft.oworld.ui.render;
+
+import java.awt.Graphics2D;
+import java.util.List;
+
+import com.bzsoft.oworld.ui.components.Drawable;
+
+/**
+ * Backend drawing the {@link Drawable} stack into the graphics of the buffer
+ * strategy.
+ */
+public interface Renderer {
+
+	/** System property selecting the {@link Type}, java2d by default. */
+	public static final String PROPERTY = "oworld.renderer";
+
+	/**
+	 * System property, a render scale in [0.5, 1] or "dynamic". Only the
+	 * {@link Type#JAVA2D} renderer is scaled, see ScaledRenderer.
+	 */
+	public static final String SCALE_PROPERTY = "oworld.renderscale";
+
+	public static enum Type {
+		/** Graphics2D drawImage with quality rendering hints. */
+		JAVA2D,
+		/** Parallel compositing into an int[] back buffer, one drawImage per frame. */
+		SOFTWARE
+	}
+
+	public Type getType();
+
+	/** Clears g, a w x h surface, and draws drawables in order. */
+	public void render(Graphics2D g, int w, int h, long now, List<Drawable> drawables);
+
+}
@@ -0,0 +1,14 @@
+package com.bzsoft.oworld.ui.render;
+
+import com.bzsoft.oworld.util.render.RenderSnapshot;
+
+/**
+ * Game logic run by the simulation thread at a fixed rate, independent of
+ * the frame rate. Every tick advances the world and writes what has to be
+ * drawn into out, which is then published to the render thread.
+ */
+public interface Simulation {
+
+	public void update(long tick, long now, long dtMillis, RenderSnapshot out);
+
+}
@@ -0,0 +1,15 @@
+package com.bzsoft.oworld.ui.render;
+
+/**
+ * Ground tiles of the world on a width x height grid, each cell holds a tile
+ * id or a negative value when empty.
+ */
+public interface TileMap {
+
+	public int getWidth();
+
+	public int getHeight();
+
+	public int getTile(int i, int j);
+
+}
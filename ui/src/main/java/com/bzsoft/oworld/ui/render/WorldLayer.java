@@ -0,0 +1,17 @@
+package com.bzsoft.oworld.ui.render;
+
+import java.awt.Graphics2D;
+
+/**
+ * Static content of the world, e.g. the ground, drawn by region so a
+ * scrolling viewport only asks for the pixels a scroll reveals.
+ */
+public interface WorldLayer {
+
+	/**
+	 * Draws the world rectangle (x, y, w, h) with its top left corner at the
+	 * origin of g. Every pixel of the rectangle must be painted opaque.
+	 */
+	public void drawRegion(Graphics2D g, int x, int y, int w, int h);
+
+}
@@ -0,0 +1,40 @@
+package com.bzsoft.oworld.ui.render.impl;
+
+import java.util.Arrays;
+
+import com.bzsoft.oworld.ui.render.TileMap;
+
+/** A {@link TileMap} backed by one int per cell, row by row. */
+public final class ArrayTileMap implements TileMap {
+
+	private final int width;
+	private final int height;
+	private final int[] tiles;
+
+	public ArrayTileMap(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.tiles = new int[width * height];
+		Arrays.fill(tiles, -1);
+	}
+
+	@Override
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public int getHeight() {
+		return height;
+	}
+
+	@Override
+	public int getTile(int i, int j) {
+		return tiles[j * width + i];
+	}
+
+	public void setTile(int i, int j, int tile) {
+		tiles[j * width + i] = tile;
+	}
+
+}
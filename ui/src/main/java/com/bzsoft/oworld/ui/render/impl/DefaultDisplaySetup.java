@@ -0,0 +1,182 @@
+package com.bzsoft.oworld.ui.render.impl;
+
+import java.awt.AWTException;
+import java.awt.BufferCapabilities;
+import java.awt.BufferCapabilities.FlipContents;
+import java.awt.DisplayMode;
+import java.awt.Frame;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsDevice;
+import java.awt.ImageCapabilities;
+import java.awt.image.BufferStrategy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bzsoft.oworld.ui.render.DisplayConfiguration;
+import com.bzsoft.oworld.ui.render.DisplaySetup;
+
+/**
+ * Picks the display mode closest to a preferred one and a buffer strategy from
+ * {@link GraphicsConfiguration#getBufferCapabilities()}. With page flipping
+ * available, three flipped buffers with undefined contents are used since the
+ * renderer redraws every frame; otherwise two accelerated buffers are blitted.
+ * Devices without full screen or display changes, like Xvfb, keep the window
+ * and the current mode.
+ */
+public final class DefaultDisplaySetup implements DisplaySetup {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(DefaultDisplaySetup.class);
+
+	private final int width;
+	private final int height;
+	private final int bitDepth;
+	private final int refreshRate;
+	private DisplayMode original;
+
+	/**
+	 * @param bitDepth    lowest acceptable depth, deeper modes are preferred
+	 * @param refreshRate preferred refresh rate, the closest one wins
+	 */
+	public DefaultDisplaySetup(int width, int height, int bitDepth, int refreshRate) {
+		this.width = width;
+		this.height = height;
+		this.bitDepth = bitDepth;
+		this.refreshRate = refreshRate;
+	}
+
+	@Override
+	public DisplayConfiguration configure(Frame frame) {
+		final GraphicsDevice gd = frame.getGraphicsConfiguration().getDevice();
+		final boolean fullScreen = enterFullScreen(frame, gd);
+		final GraphicsConfiguration gc = frame.getGraphicsConfiguration();
+		final BufferCapabilities caps = gc.getBufferCapabilities();
+		LOGGER.info("Buffer capabilities: pageFlipping={}, fullScreenRequired={}, multiBuffer={}, flipContents={}",
+				caps.isPageFlipping(), caps.isFullScreenRequired(), caps.isMultiBufferAvailable(),
+				caps.getFlipContents());
+		final ImageCapabilities accelerated = new ImageCapabilities(true);
+		final DisplayConfiguration dc;
+		if (caps.isPageFlipping() && (fullScreen || !caps.isFullScreenRequired())) {
+			dc = DisplayConfiguration.of(fullScreen, gd.getDisplayMode(), caps.isMultiBufferAvailable() ? 3 : 2,
+					new BufferCapabilities(accelerated, accelerated, FlipContents.UNDEFINED));
+		} else {
+			dc = DisplayConfiguration.of(fullScreen, gd.getDisplayMode(), 2,
+					new BufferCapabilities(accelerated, accelerated, null));
+		}
+		LOGGER.info("Display: {}", dc);
+		return dc;
+	}
+
+	private boolean enterFullScreen(Frame frame, GraphicsDevice gd) {
+		if (!gd.isFullScreenSupported()) {
+			return false;
+		}
+		original = gd.getDisplayMode();
+		try {
+			gd.setFullScreenWindow(frame);
+			if (gd.isDisplayChangeSupported()) {
+				final DisplayMode dm = selectDisplayMode(gd.getDisplayModes(), original);
+				if (dm != null && !dm.equals(original)) {
+					gd.setDisplayMode(dm);
+				}
+			}
+			return true;
+		} catch (final Exception e) {
+			LOGGER.warn("Full screen failed", e);
+			restore(frame);
+			return false;
+		}
+	}
+
+	/**
+	 * Best mode for the preferred one: exact size, else the smallest covering
+	 * it, else the largest; then depth at least the preferred one, deepest
+	 * first; then the refresh rate closest to the preferred one, higher on
+	 * ties. Returns current when no mode is listed.
+	 */
+	final DisplayMode selectDisplayMode(DisplayMode[] modes, DisplayMode current) {
+		DisplayMode best = null;
+		for (final DisplayMode dm : modes) {
+			if (best == null || compare(dm, best) < 0) {
+				best = dm;
+			}
+		}
+		return best == null ? current : best;
+	}
+
+	private int compare(DisplayMode a, DisplayMode b) {
+		int c = Integer.compare(sizeRank(a), sizeRank(b));
+		if (c == 0 && sizeRank(a) > 0) {
+			final long area = (long) a.getWidth() * a.getHeight();
+			final long other = (long) b.getWidth() * b.getHeight();
+			// smallest covering mode or largest otherwise
+			c = sizeRank(a) == 1 ? Long.compare(area, other) : Long.compare(other, area);
+		}
+		if (c == 0) {
+			c = Integer.compare(depthRank(b), depthRank(a));
+		}
+		if (c == 0) {
+			c = Integer.compare(refreshDistance(a), refreshDistance(b));
+		}
+		if (c == 0) {
+			c = Integer.compare(b.getRefreshRate(), a.getRefreshRate());
+		}
+		return c;
+	}
+
+	private int sizeRank(DisplayMode dm) {
+		if (dm.getWidth() == width && dm.getHeight() == height) {
+			return 0;
+		}
+		return dm.getWidth() >= width && dm.getHeight() >= height ? 1 : 2;
+	}
+
+	private int depthRank(DisplayMode dm) {
+		final int depth = dm.getBitDepth();
+		if (depth == DisplayMode.BIT_DEPTH_MULTI) {
+			return Integer.MAX_VALUE;
+		}
+		return depth < bitDepth ? -1 : depth;
+	}
+
+	private int refreshDistance(DisplayMode dm) {
+		final int hz = dm.getRefreshRate();
+		return hz == DisplayMode.REFRESH_RATE_UNKNOWN ? Integer.MAX_VALUE : Math.abs(hz - refreshRate);
+	}
+
+	@Override
+	public BufferStrategy createBufferStrategy(Frame frame, DisplayConfiguration configuration) {
+		boolean created = false;
+		if (configuration.getCapabilities() != null) {
+			try {
+				frame.createBufferStrategy(configuration.getBufferCount(), configuration.getCapabilities());
+				created = true;
+			} catch (final AWTException e) {
+				LOGGER.warn("Buffer capabilities refused, using defaults: {}", e.getMessage());
+			}
+		}
+		if (!created) {
+			frame.createBufferStrategy(configuration.getBufferCount());
+		}
+		final BufferStrategy bs = frame.getBufferStrategy();
+		LOGGER.info("Buffer strategy: {}, pageFlipping={}", bs.getClass().getSimpleName(),
+				bs.getCapabilities().isPageFlipping());
+		return bs;
+	}
+
+	@Override
+	public void restore(Frame frame) {
+		final GraphicsDevice gd = frame.getGraphicsConfiguration().getDevice();
+		try {
+			if (original != null && gd.isDisplayChangeSupported() && !original.equals(gd.getDisplayMode())) {
+				gd.setDisplayMode(original);
+			}
+		} catch (final Exception e) {
+			LOGGER.warn("Display mode not restored", e);
+		}
+		if (gd.getFullScreenWindow() == frame) {
+			gd.setFullScreenWindow(null);
+		}
+	}
+
+}
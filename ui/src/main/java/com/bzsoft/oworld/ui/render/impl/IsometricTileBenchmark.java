@@ -0,0 +1,95 @@
+package com.bzsoft.oworld.ui.render.impl;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Polygon;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Pans over a random isometric map drawing every visible tile with drawImage
+ * and drawing cached chunks with {@link IsometricTileRenderer}.
+ * <p>
+ * Usage: IsometricTileBenchmark [rounds] [chunkSize]
+ */
+public final class IsometricTileBenchmark {
+
+	private static final int WIDTH = 1280;
+	private static final int HEIGHT = 800;
+	private static final int TW = 64;
+	private static final int TH = 32;
+	private static final int MAPSIZE = 256;
+
+	private IsometricTileBenchmark() {
+		// empty
+	}
+
+	public static void main(String[] args) {
+		final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		final int chunkSize = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+		final BufferedImage screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		final Graphics2D sg = screen.createGraphics();
+		final GraphicsConfiguration gc = sg.getDeviceConfiguration();
+		sg.dispose();
+		final Random rnd = new Random(1);
+		final Image[] tiles = new Image[8];
+		for (int t = 0; t < tiles.length; t++) {
+			final BufferedImage img = gc.createCompatibleImage(TW, TH, Transparency.BITMASK);
+			final Graphics2D g = img.createGraphics();
+			g.setColor(new Color(rnd.nextInt(0xffffff)));
+			g.fill(new Polygon(new int[] { TW / 2, TW, TW / 2, 0 }, new int[] { 0, TH / 2, TH, TH / 2 }, 4));
+			g.dispose();
+			tiles[t] = img;
+		}
+		final ArrayTileMap map = new ArrayTileMap(MAPSIZE, MAPSIZE);
+		for (int j = 0; j < MAPSIZE; j++) {
+			for (int i = 0; i < MAPSIZE; i++) {
+				map.setTile(i, j, rnd.nextInt(tiles.length));
+			}
+		}
+		final IsometricTileRenderer renderer = new IsometricTileRenderer(map, t -> tiles[t], TW, TH, chunkSize, 256,
+				Color.BLACK);
+		long perTile = 0;
+		long chunked = 0;
+		long drawn = 0;
+		long blits = 0;
+		for (int r = -10; r < rounds; r++) {
+			// pan across the middle of the map
+			final int x = -WIDTH / 2 + r * 7;
+			final int y = MAPSIZE * TH / 4 + r * 3;
+			Graphics2D g = screen.createGraphics();
+			long t = System.nanoTime();
+			g.setColor(Color.BLACK);
+			g.fillRect(0, 0, WIDTH, HEIGHT);
+			int n = 0;
+			for (int j = 0; j < MAPSIZE; j++) {
+				for (int i = 0; i < MAPSIZE; i++) {
+					final int sx = (i - j) * TW / 2 - x;
+					final int sy = (i + j) * TH / 2 - y;
+					if (sx + TW > 0 && sx < WIDTH && sy + TH > 0 && sy < HEIGHT) {
+						g.drawImage(tiles[map.getTile(i, j)], sx, sy, null);
+						n++;
+					}
+				}
+			}
+			final long t1 = System.nanoTime();
+			g.dispose();
+			g = screen.createGraphics();
+			final long t2 = System.nanoTime();
+			renderer.drawRegion(g, x, y, WIDTH, HEIGHT);
+			final long t3 = System.nanoTime();
+			g.dispose();
+			if (r >= 0) {
+				perTile += t1 - t;
+				chunked += t3 - t2;
+				drawn += n;
+				blits += renderer.getBlits();
+			}
+		}
+		System.out.printf("per tile %8.2f ms/frame, %d drawImage%n", perTile / 1e6 / rounds, drawn / rounds);
+		System.out.printf("chunked  %8.2f ms/frame, %d blits%n", chunked / 1e6 / rounds, blits / rounds);
+	}
+}
@@ -0,0 +1,171 @@
+package com.bzsoft.oworld.ui.render.impl;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import com.bzsoft.oworld.ui.render.TileMap;
+import com.bzsoft.oworld.ui.render.WorldLayer;
+
+/**
+ * Draws a {@link TileMap} of isometric ground tiles. Tile (i, j) has the top
+ * left corner of its image at ((i - j) * tw / 2, (i + j) * th / 2) in world
+ * pixels. Tiles are grouped in chunks of chunkSize x chunkSize, each drawn
+ * once into a compatible image that Java2D keeps accelerated, and chunks
+ * outside the requested region are culled by their bounds. A screen of tiles
+ * takes a few dozen chunk blits. Tile images must fit the tile size.
+ */
+public final class IsometricTileRenderer implements WorldLayer {
+
+	private final TileMap map;
+	private final IntFunction<Image> tiles;
+	private final int tileWidth;
+	private final int tileHeight;
+	private final int chunkSize;
+	private final Color background;
+	private final Map<Long, BufferedImage> chunks;
+	private int blits;
+
+	/**
+	 * @param tiles     image of a tile id
+	 * @param maxChunks chunk images kept, least recently drawn ones are dropped
+	 */
+	public IsometricTileRenderer(TileMap map, IntFunction<Image> tiles, int tileWidth, int tileHeight,
+			int chunkSize, int maxChunks, Color background) {
+		this.map = map;
+		this.tiles = tiles;
+		this.tileWidth = tileWidth;
+		this.tileHeight = tileHeight;
+		this.chunkSize = chunkSize;
+		this.background = background;
+		this.chunks = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+				return size() > maxChunks;
+			}
+		};
+	}
+
+	private static final long key(int ci, int cj) {
+		return (long) ci << 32 | cj & 0xffffffffL;
+	}
+
+	/** Redraws the chunk of a tile the next time it is shown. */
+	public void invalidateTile(int i, int j) {
+		synchronized (chunks) {
+			chunks.remove(key(i / chunkSize, j / chunkSize));
+		}
+	}
+
+	public void invalidateAll() {
+		synchronized (chunks) {
+			chunks.clear();
+		}
+	}
+
+	/** Chunk blits of the last region drawn. */
+	public int getBlits() {
+		return blits;
+	}
+
+	@Override
+	public void drawRegion(Graphics2D g, int x, int y, int w, int h) {
+		g.setColor(background);
+		g.fillRect(0, 0, w, h);
+		blits = 0;
+		final int hw = tileWidth / 2;
+		final int hh = tileHeight / 2;
+		// tile range of the region corners, one tile of margin
+		int imin = Integer.MAX_VALUE;
+		int imax = Integer.MIN_VALUE;
+		int jmin = Integer.MAX_VALUE;
+		int jmax = Integer.MIN_VALUE;
+		for (int c = 0; c < 4; c++) {
+			final double u = (double) (x + ((c & 1) == 0 ? 0 : w)) / hw;
+			final double v = (double) (y + ((c & 2) == 0 ? 0 : h)) / hh;
+			final int i = (int) Math.floor((u + v) / 2);
+			final int j = (int) Math.floor((v - u) / 2);
+			imin = Math.min(imin, i);
+			imax = Math.max(imax, i);
+			jmin = Math.min(jmin, j);
+			jmax = Math.max(jmax, j);
+		}
+		final int ci0 = Math.max(0, imin - 1) / chunkSize;
+		final int ci1 = Math.min(map.getWidth() - 1, imax + 1) / chunkSize;
+		final int cj0 = Math.max(0, jmin - 1) / chunkSize;
+		final int cj1 = Math.min(map.getHeight() - 1, jmax + 1) / chunkSize;
+		if (imax + 1 < 0 || jmax + 1 < 0 || ci0 > ci1 || cj0 > cj1) {
+			return;
+		}
+		final GraphicsConfiguration gc = g.getDeviceConfiguration();
+		// back to front
+		for (int s = ci0 + cj0; s <= ci1 + cj1; s++) {
+			for (int ci = Math.max(ci0, s - cj1); ci <= Math.min(ci1, s - cj0); ci++) {
+				final int cj = s - ci;
+				final int i0 = ci * chunkSize;
+				final int j0 = cj * chunkSize;
+				final int i1 = Math.min(i0 + chunkSize, map.getWidth()) - 1;
+				final int j1 = Math.min(j0 + chunkSize, map.getHeight()) - 1;
+				final int minX = (i0 - j1) * hw;
+				final int minY = (i0 + j0) * hh;
+				final int maxX = (i1 - j0) * hw + tileWidth;
+				final int maxY = (i1 + j1) * hh + tileHeight;
+				if (maxX <= x || minX >= x + w || maxY <= y || minY >= y + h) {
+					continue;
+				}
+				g.drawImage(getChunk(gc, ci, cj, i0, j0, i1, j1, minX, minY, maxX - minX, maxY - minY), minX - x,
+						minY - y, null);
+				blits++;
+			}
+		}
+	}
+
+	private BufferedImage getChunk(GraphicsConfiguration gc, int ci, int cj, int i0, int j0, int i1, int j1,
+			int minX, int minY, int cw, int ch) {
+		final Long k = key(ci, cj);
+		synchronized (chunks) {
+			final BufferedImage img = chunks.get(k);
+			if (img != null) {
+				return img;
+			}
+		}
+		final BufferedImage img = gc.createCompatibleImage(cw, ch, Transparency.BITMASK);
+		final Graphics2D cg = img.createGraphics();
+		try {
+			drawTiles(cg, i0, j0, i1, j1, -minX, -minY);
+		} finally {
+			cg.dispose();
+		}
+		synchronized (chunks) {
+			chunks.put(k, img);
+		}
+		return img;
+	}
+
+	/** Draws tiles [i0, i1] x [j0, j1] back to front, the world origin at (ox, oy). */
+	final void drawTiles(Graphics2D g, int i0, int j0, int i1, int j1, int ox, int oy) {
+		final int hw = tileWidth / 2;
+		final int hh = tileHeight / 2;
+		for (int j = j0; j <= j1; j++) {
+			for (int i = i0; i <= i1; i++) {
+				final int tile = map.getTile(i, j);
+				if (tile < 0) {
+					continue;
+				}
+				final Image img = tiles.apply(tile);
+				if (img != null) {
+					g.drawImage(img, ox + (i - j) * hw, oy + (i + j) * hh, null);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.bzsoft.oworld.ui.render.impl;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.util.List;
+import java.util.Map;
+
+import com.bzsoft.oworld.ui.components.Drawable;
+import com.bzsoft.oworld.ui.render.Renderer;
+
+public final class Java2DRenderer implements Renderer {
+
+	private final Map<RenderingHints.Key, Object> renderingHints;
+
+	public Java2DRenderer(Map<RenderingHints.Key, Object> renderingHints) {
+		this.renderingHints = renderingHints;
+	}
+
+	@Override
+	public Type getType() {
+		return Type.JAVA2D;
+	}
+
+	@Override
+	public void render(Graphics2D g, int w, int h, long now, List<Drawable> drawables) {
+		g.setRenderingHints(renderingHints);
+		g.clearRect(0, 0, w, h);
+		for (final Drawable d : drawables) {
+			d.onDraw(g, w, h, now);
+		}
+	}
+
+}
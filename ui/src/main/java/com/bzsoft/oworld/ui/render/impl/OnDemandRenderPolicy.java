@@ -0,0 +1,61 @@
+package com.bzsoft.oworld.ui.render.impl;
+
+import com.bzsoft.oworld.ui.render.RenderPolicy;
+
+/**
+ * Renders only when something changed. With focus, changes are drawn at the
+ * active rate; without focus, at most once per background interval; while
+ * iconified, never, and the loop only wakes up at the hidden interval.
+ */
+public final class OnDemandRenderPolicy implements RenderPolicy {
+
+	private final long activeMillis;
+	private final long backgroundMillis;
+	private final long hiddenMillis;
+	private volatile boolean focused;
+	private volatile boolean iconified;
+	private volatile boolean invalid;
+	private long lastRender;
+
+	public OnDemandRenderPolicy(long activeMillis, long backgroundMillis, long hiddenMillis) {
+		this.activeMillis = activeMillis;
+		this.backgroundMillis = backgroundMillis;
+		this.hiddenMillis = hiddenMillis;
+		this.focused = true;
+		this.invalid = true;
+	}
+
+	@Override
+	public boolean shouldRender(long now, boolean changed) {
+		if (iconified || !(changed || invalid)) {
+			return false;
+		}
+		if (!focused && now - lastRender < backgroundMillis) {
+			return false;
+		}
+		invalid = false;
+		lastRender = now;
+		return true;
+	}
+
+	@Override
+	public long getDelay() {
+		return iconified ? hiddenMillis : focused ? activeMillis : backgroundMillis;
+	}
+
+	@Override
+	public void invalidate() {
+		invalid = true;
+	}
+
+	@Override
+	public void setFocused(boolean focused) {
+		this.focused = focused;
+	}
+
+	@Override
+	public void setIconified(boolean iconified) {
+		this.iconified = iconified;
+	}
+
+}
@@ -0,0 +1,114 @@
+package com.bzsoft.oworld.ui.render.impl;
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import com.bzsoft.oworld.R;
+import com.bzsoft.oworld.assets.Sprite;
+import com.bzsoft.oworld.assets.impl.CompatibleImageDecoder;
+import com.bzsoft.oworld.assets.impl.RleSprite;
+import com.bzsoft.oworld.ui.Launcher;
+import com.bzsoft.oworld.ui.components.Drawable;
+import com.bzsoft.oworld.ui.components.impl.UIPanel;
+import com.bzsoft.oworld.ui.components.impl.UISpriteLayer;
+import com.bzsoft.oworld.ui.render.Renderer;
+import com.bzsoft.oworld.util.concurrent.ThreadPool;
+import com.bzsoft.oworld.util.concurrent.impl.ThreadPoolImpl;
+
+/**
+ * Draws a background plus random character frames into an off screen frame
+ * with {@link Java2DRenderer}, using drawImage per frame, and with
+ * {@link SoftwareRenderer}, using RLE sprites in parallel bands, and with
+ * the Java2D renderer at reduced {@link ScaledRenderer} scales.
+ * <p>
+ * Usage: RendererBenchmark [sprites] [rounds] [threads]
+ */
+public final class RendererBenchmark {
+
+	private static final int WIDTH = 1280;
+	private static final int HEIGHT = 800;
+
+	private RendererBenchmark() {
+		// empty
+	}
+
+	private static long run(Renderer renderer, List<Drawable> drawables, int rounds) {
+		final BufferedImage screen = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		long total = 0;
+		for (int r = -2; r < rounds; r++) {
+			final Graphics2D g = screen.createGraphics();
+			final long t = System.nanoTime();
+			renderer.render(g, WIDTH, HEIGHT, 0, drawables);
+			g.dispose();
+			if (r >= 0) {
+				total += System.nanoTime() - t;
+			}
+		}
+		return total / rounds;
+	}
+
+	public static void main(String[] args) throws Exception {
+		final int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		final int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		final int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		final int nframes = R.CharInfo.frameCount();
+		final BufferedImage[] images = new BufferedImage[nframes];
+		final Sprite[] frames = new Sprite[nframes];
+		for (int f = 0; f < nframes; f++) {
+			try (InputStream is = RendererBenchmark.class.getClassLoader()
+					.getResourceAsStream(R.CharInfo.frameUrl(f))) {
+				final BufferedImage img = ImageIO.read(is);
+				images[f] = CompatibleImageDecoder.toCompatibleImage(img, null);
+				frames[f] = RleSprite.of(img);
+			}
+		}
+		final Image background;
+		try (InputStream is = RendererBenchmark.class.getClassLoader()
+				.getResourceAsStream(R.Resources.get(R.Resources.background))) {
+			background = ImageIO.read(is);
+		}
+		final Random rnd = new Random(1);
+		final Sprite[] sprites = new Sprite[count];
+		final int[] xs = new int[count];
+		final int[] ys = new int[count];
+		final int[] fs = new int[count];
+		for (int i = 0; i < count; i++) {
+			fs[i] = rnd.nextInt(nframes);
+			sprites[i] = frames[fs[i]];
+			xs[i] = rnd.nextInt(WIDTH + 100) - 100;
+			ys[i] = rnd.nextInt(HEIGHT + 100) - 100;
+		}
+		final UIPanel panel = new UIPanel(null, null, null, null);
+		panel.setBackground(background);
+		final UISpriteLayer layer = new UISpriteLayer(null);
+		layer.setSprites(sprites, xs, ys, count);
+		final Drawable drawImages = (g, w, h, now) -> {
+			for (int i = 0; i < count; i++) {
+				g.drawImage(images[fs[i]], xs[i], ys[i], null);
+			}
+		};
+		final ThreadPool pool = new ThreadPoolImpl(threads);
+		try {
+			final long java2d = run(new Java2DRenderer(Launcher.createRenderingHints()),
+					Arrays.asList(panel, drawImages), rounds);
+			final long software = run(new SoftwareRenderer(pool, Launcher.createRenderingHints()),
+					Arrays.asList(panel, layer), rounds);
+			System.out.printf("%d sprites, %d threads%njava2d   %8.2f ms/frame%nsoftware %8.2f ms/frame%n", count,
+					threads, java2d / 1e6, software / 1e6);
+			for (final float scale : new float[] { 0.75f, 0.5f }) {
+				final long scaled = run(RendererFactory.createScaled(Launcher.createRenderingHints(), scale, false,
+						0), Arrays.asList(panel, drawImages), rounds);
+				System.out.printf("java2d x%.2f %5.2f ms/frame%n", scale, scaled / 1e6);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
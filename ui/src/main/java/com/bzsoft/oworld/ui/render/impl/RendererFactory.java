@@ -0,0 +1,84 @@
+package com.bzsoft.oworld.ui.render.impl;
+
+import java.awt.RenderingHints;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bzsoft.oworld.ui.render.Renderer;
+import com.bzsoft.oworld.ui.render.Renderer.Type;
+import com.bzsoft.oworld.util.concurrent.ThreadPool;
+
+public final class RendererFactory {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(RendererFactory.class);
+
+	private RendererFactory() {
+		// empty
+	}
+
+	public static final Renderer create(Type type, ThreadPool pool, Map<RenderingHints.Key, Object> hints) {
+		switch (type) {
+		case SOFTWARE:
+			return new SoftwareRenderer(pool, hints);
+		case JAVA2D:
+		default:
+			return new Java2DRenderer(hints);
+		}
+	}
+
+	/**
+	 * Creates the renderer named by {@link Renderer#PROPERTY}, scaled as
+	 * requested by {@link Renderer#SCALE_PROPERTY}.
+	 */
+	public static final Renderer create(ThreadPool pool, Map<RenderingHints.Key, Object> hints,
+			long frameMillis) {
+		final Renderer renderer = create(parseType(System.getProperty(Renderer.PROPERTY)), pool, hints);
+		final String scale = System.getProperty(Renderer.SCALE_PROPERTY);
+		if (scale == null || scale.trim().isEmpty()) {
+			return renderer;
+		}
+		if (renderer.getType() != Type.JAVA2D) {
+			// sprites are blitted 1:1, the software renderer is not scaled
+			LOGGER.warn("Render scale is only supported by {}", Type.JAVA2D);
+			return renderer;
+		}
+		// leave half of the frame interval to the rest of the loop
+		if ("dynamic".equalsIgnoreCase(scale.trim())) {
+			return createScaled(hints, ScaledRenderer.MAX_SCALE, true, frameMillis / 2);
+		}
+		try {
+			return createScaled(hints, Float.parseFloat(scale.trim()), false, frameMillis / 2);
+		} catch (final NumberFormatException e) {
+			LOGGER.warn("Bad render scale {}", scale);
+			return renderer;
+		}
+	}
+
+	/**
+	 * Creates a {@link Type#JAVA2D} renderer drawing into a scaled target.
+	 * Drawables are drawn with nearest neighbor interpolation under the scale
+	 * transform, filtering is left to the single upscale.
+	 */
+	public static final Renderer createScaled(Map<RenderingHints.Key, Object> hints, float scale, boolean dynamic,
+			long budgetMillis) {
+		final Map<RenderingHints.Key, Object> scaledHints = new HashMap<>(hints);
+		scaledHints.put(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+		return new ScaledRenderer(new Java2DRenderer(scaledHints), scale, dynamic, budgetMillis);
+	}
+
+	public static final Type parseType(String s) {
+		if (s == null || s.isEmpty()) {
+			return Type.JAVA2D;
+		}
+		try {
+			return Type.valueOf(s.trim().toUpperCase());
+		} catch (final IllegalArgumentException e) {
+			LOGGER.warn("Unknown renderer {}, using {}", s, Type.JAVA2D);
+			return Type.JAVA2D;
+		}
+	}
+
+}
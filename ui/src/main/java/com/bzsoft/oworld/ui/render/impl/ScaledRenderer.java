@@ -0,0 +1,130 @@
+package com.bzsoft.oworld.ui.render.impl;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.VolatileImage;
+import java.util.List;
+
+import com.bzsoft.oworld.ui.components.Drawable;
+import com.bzsoft.oworld.ui.render.Renderer;
+
+/**
+ * Renders through a Graphics2D based renderer into an offscreen target at a
+ * fraction of the output size and upscales it to the output with one
+ * drawImage. Drawables keep drawing in output coordinates, a scale transform
+ * maps them to the target. In dynamic mode the scale follows the measured
+ * render time: it drops by a step when the average is over budget and grows
+ * back when it is well under. A step down that does not make rendering faster
+ * is undone and becomes the lowest scale tried: on software pipelines the
+ * transformed blits may cost more than the fill they save.
+ */
+public final class ScaledRenderer implements Renderer {
+
+	public static final float MIN_SCALE = 0.5f;
+	public static final float MAX_SCALE = 1f;
+	private static final float STEP = 0.05f;
+	private static final int ADJUST_FRAMES = 10;
+
+	private final Renderer delegate;
+	private final boolean dynamic;
+	private final long budgetNanos;
+	private final Object upscaleHint;
+	private float scale;
+	private float minScale;
+	private VolatileImage target;
+	private double avgNanos;
+	private double lastAvgNanos;
+	private boolean steppedDown;
+	private int frames;
+
+	/**
+	 * @param scale        initial scale, clamped to [{@link #MIN_SCALE},
+	 *                     {@link #MAX_SCALE}]
+	 * @param dynamic      adjust the scale from the render time
+	 * @param budgetMillis render time aimed at in dynamic mode
+	 */
+	public ScaledRenderer(Renderer delegate, float scale, boolean dynamic, long budgetMillis) {
+		this.delegate = delegate;
+		this.scale = clamp(scale);
+		this.minScale = MIN_SCALE;
+		this.dynamic = dynamic;
+		this.budgetNanos = budgetMillis * 1000000L;
+		this.upscaleHint = RenderingHints.VALUE_INTERPOLATION_BILINEAR;
+	}
+
+	private static float clamp(float s) {
+		return Math.max(MIN_SCALE, Math.min(MAX_SCALE, s));
+	}
+
+	@Override
+	public Type getType() {
+		return delegate.getType();
+	}
+
+	public float getScale() {
+		return scale;
+	}
+
+	public void setScale(float scale) {
+		this.scale = clamp(scale);
+	}
+
+	@Override
+	public void render(Graphics2D g, int w, int h, long now, List<Drawable> drawables) {
+		final int sw = Math.max(1, Math.round(w * scale));
+		final int sh = Math.max(1, Math.round(h * scale));
+		final long t = System.nanoTime();
+		do {
+			// full size once, smaller scales use its top left corner
+			if (target == null || target.getWidth() != w || target.getHeight() != h
+					|| target.validate(g.getDeviceConfiguration()) == VolatileImage.IMAGE_INCOMPATIBLE) {
+				if (target != null) {
+					target.flush();
+				}
+				target = g.getDeviceConfiguration().createCompatibleVolatileImage(w, h, Transparency.OPAQUE);
+			}
+			final Graphics2D tg = target.createGraphics();
+			try {
+				tg.setClip(0, 0, sw, sh);
+				tg.scale((double) sw / w, (double) sh / h);
+				delegate.render(tg, w, h, now, drawables);
+			} finally {
+				tg.dispose();
+			}
+		} while (target.contentsLost());
+		final Object hint = g.getRenderingHint(RenderingHints.KEY_INTERPOLATION);
+		g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, upscaleHint);
+		g.drawImage(target, 0, 0, w, h, 0, 0, sw, sh, null);
+		if (hint != null) {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, hint);
+		}
+		if (dynamic) {
+			adjust(System.nanoTime() - t);
+		}
+	}
+
+	private void adjust(long nanos) {
+		avgNanos = frames == 0 ? nanos : 0.8 * avgNanos + 0.2 * nanos;
+		if (++frames < ADJUST_FRAMES) {
+			return;
+		}
+		frames = 1;
+		if (steppedDown) {
+			steppedDown = false;
+			if (avgNanos > lastAvgNanos * 0.95) {
+				scale = clamp(scale + STEP);
+				minScale = scale;
+				return;
+			}
+		}
+		if (avgNanos > budgetNanos * 1.1 && scale > minScale) {
+			lastAvgNanos = avgNanos;
+			steppedDown = true;
+			scale = Math.max(minScale, clamp(scale - STEP));
+		} else if (avgNanos < budgetNanos * 0.7 && scale < MAX_SCALE) {
+			scale = clamp(scale + STEP);
+		}
+	}
+
+}
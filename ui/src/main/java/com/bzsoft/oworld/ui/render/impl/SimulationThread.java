@@ -0,0 +1,79 @@
+package com.bzsoft.oworld.ui.render.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.bzsoft.oworld.ui.render.Simulation;
+import com.bzsoft.oworld.util.concurrent.TripleBuffer;
+import com.bzsoft.oworld.util.render.DepthSorter;
+import com.bzsoft.oworld.util.render.RenderSnapshot;
+
+/**
+ * Runs a {@link Simulation} at a fixed tick rate on its own thread and
+ * publishes every tick into a {@link TripleBuffer}, depth sorted by one
+ * {@link DepthSorter} so each tick starts from the previous order. Never waits for the
+ * render thread; when a tick overruns, the next one starts at once and the
+ * schedule is reset instead of trying to catch up.
+ */
+public final class SimulationThread implements Runnable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SimulationThread.class);
+
+	private final Simulation simulation;
+	private final TripleBuffer<RenderSnapshot> snapshots;
+	private final DepthSorter sorter;
+	private final long tickNanos;
+	private final Thread thread;
+	private volatile boolean running;
+
+	public SimulationThread(Simulation simulation, TripleBuffer<RenderSnapshot> snapshots, int ticksPerSecond) {
+		this.simulation = simulation;
+		this.snapshots = snapshots;
+		this.sorter = new DepthSorter();
+		this.tickNanos = TimeUnit.SECONDS.toNanos(1) / ticksPerSecond;
+		this.thread = new Thread(this, "SimulationThread");
+		thread.setDaemon(true);
+	}
+
+	public void start() {
+		running = true;
+		thread.start();
+	}
+
+	public void stop() {
+		running = false;
+		LockSupport.unpark(thread);
+	}
+
+	@Override
+	public void run() {
+		long tick = 0;
+		long next = System.nanoTime();
+		long last = System.currentTimeMillis();
+		while (running) {
+			final long now = System.currentTimeMillis();
+			final RenderSnapshot out = snapshots.getWriteBuffer();
+			out.clear(tick, now);
+			try {
+				simulation.update(tick, now, now - last, out);
+				out.sortByDepth(sorter);
+				snapshots.publish();
+			} catch (final RuntimeException e) {
+				LOGGER.warn("Simulation tick {} failed", tick, e);
+			}
+			last = now;
+			tick++;
+			next += tickNanos;
+			final long wait = next - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			} else if (-wait > tickNanos) {
+				next = System.nanoTime();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.bzsoft.oworld.ui.render.impl;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.bzsoft.oworld.ui.components.Drawable;
+import com.bzsoft.oworld.ui.components.PixelDrawable;
+import com.bzsoft.oworld.ui.render.Renderer;
+import com.bzsoft.oworld.util.concurrent.ThreadPool;
+
+/**
+ * Composites the frame into a TYPE_INT_RGB back buffer and copies it to the
+ * screen with a single drawImage. Runs of consecutive {@link PixelDrawable}s
+ * are drawn in horizontal bands, one per pool thread; any other drawable is
+ * drawn with a Graphics2D on the back buffer between runs, so the z order is
+ * kept.
+ */
+public final class SoftwareRenderer implements Renderer {
+
+	private final ThreadPool pool;
+	private final int bands;
+	private final Map<RenderingHints.Key, Object> renderingHints;
+	private BufferedImage backBuffer;
+	private int[] pixels;
+
+	public SoftwareRenderer(ThreadPool pool, Map<RenderingHints.Key, Object> renderingHints) {
+		this.pool = pool;
+		this.bands = pool.getParallelism();
+		this.renderingHints = renderingHints;
+	}
+
+	@Override
+	public Type getType() {
+		return Type.SOFTWARE;
+	}
+
+	public BufferedImage getBackBuffer() {
+		return backBuffer;
+	}
+
+	private void ensureBackBuffer(int w, int h) {
+		if (backBuffer == null || backBuffer.getWidth() != w || backBuffer.getHeight() != h) {
+			backBuffer = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+			pixels = ((DataBufferInt) backBuffer.getRaster().getDataBuffer()).getData();
+		}
+	}
+
+	/** Draws into the back buffer only, see {@link #getBackBuffer()}. */
+	public void compose(int w, int h, long now, List<Drawable> drawables) {
+		ensureBackBuffer(w, h);
+		final int[] px = pixels;
+		final int n = drawables.size();
+		boolean clear = true;
+		int i = 0;
+		while (i < n || clear) {
+			int end = i;
+			while (end < n && drawables.get(end) instanceof PixelDrawable) {
+				end++;
+			}
+			// the first run also clears the back buffer, band by band
+			if (end > i || clear) {
+				drawBands(px, w, h, now, drawables.subList(i, end), clear);
+				clear = false;
+			}
+			if (end < n) {
+				final Graphics2D g = backBuffer.createGraphics();
+				try {
+					g.setRenderingHints(renderingHints);
+					drawables.get(end).onDraw(g, w, h, now);
+				} finally {
+					g.dispose();
+				}
+				end++;
+			}
+			i = end;
+		}
+	}
+
+	private void drawBands(int[] px, int w, int h, long now, List<Drawable> run, boolean clear) {
+		pool.invokeAll(bands, band -> {
+			final int y0 = band * h / bands;
+			final int y1 = (band + 1) * h / bands;
+			if (clear) {
+				Arrays.fill(px, y0 * w, y1 * w, 0);
+			}
+			for (final Drawable d : run) {
+				((PixelDrawable) d).onDraw(px, w, h, y0, y1, now);
+			}
+		});
+	}
+
+	@Override
+	public void render(Graphics2D g, int w, int h, long now, List<Drawable> drawables) {
+		compose(w, h, now, drawables);
+		g.drawImage(backBuffer, 0, 0, null);
+	}
+
+}
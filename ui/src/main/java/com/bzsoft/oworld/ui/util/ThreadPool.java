@@ -1,5 +0,0 @@
-package com.bzsoft.oworld.ui.util;
-
-public interface ThreadPool {
-
-}
@@ -20,7 +20,7 @@ public class EventLoopImpl implements EventLoop, EventManager {
 	private final PriorityQueue<TimerItem> queue;
 	private final Lock lock;
 	private final Condition condition;
-	private final Thread edt;
+	private volatile Thread edt;
 	private final ExceptionHandler eh;
 	private final Map<Class<Object>, List<Listener<Object>>> listenerMap;
 	private volatile boolean stop;
@@ -37,6 +37,8 @@ public class EventLoopImpl implements EventLoop, EventManager {
 
 	@Override
 	public void readAndDispatch() {
+		// the dispatching thread may differ from the one that created the loop
+		edt = Thread.currentThread();
 		try {
 			lock.lock();
 			final TimerItem t = queue.peek();
@@ -104,8 +106,8 @@ public class EventLoopImpl implements EventLoop, EventManager {
 
 	@Override
 	public <E> void runEvent(Class<E> type, E event) {
-		if (Thread.currentThread() == edt) {
-			throw new RuntimeException("runEvent must be callrd in EDT");
+		if (Thread.currentThread() != edt) {
+			throw new IllegalStateException("runEvent must be called in EDT");
 		}
 		executeEvent(listenerMap, type, event);
 	}
@@ -1,7 +0,0 @@
-package com.bzsoft.oworld.ui.util.impl;
-
-import com.bzsoft.oworld.ui.util.ThreadPool;
-
-public class ThreadPoolImpl implements ThreadPool {
-
-}
@@ -0,0 +1,18 @@
+package com.bzsoft.oworld.util.concurrent;
+
+import java.util.function.IntConsumer;
+
+public interface ThreadPool {
+
+	public int getParallelism();
+
+	/**
+	 * Runs task for every index in [0, n) and returns once all of them are
+	 * done. The calling thread runs one of the indices itself. The first
+	 * exception thrown by a task is rethrown.
+	 */
+	public void invokeAll(int n, IntConsumer task);
+
+	public void shutdown();
+
+}
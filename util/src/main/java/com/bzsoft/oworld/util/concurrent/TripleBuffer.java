@@ -0,0 +1,58 @@
+package com.bzsoft.oworld.util.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Lock free triple buffer between one writer and one reader thread. The
+ * writer fills {@link #getWriteBuffer()} and calls {@link #publish()}, the
+ * reader calls {@link #acquire()} and gets the newest published buffer.
+ * Neither side ever waits: the writer always has a buffer the reader is not
+ * using, and old unread buffers are simply overwritten.
+ */
+public final class TripleBuffer<T> {
+
+	private static final int INDEX = 3;
+	private static final int FRESH = 4;
+
+	private final Object[] slots;
+	private final AtomicInteger middle;
+	private int back;
+	private int front;
+
+	public TripleBuffer(Supplier<T> factory) {
+		slots = new Object[] { factory.get(), factory.get(), factory.get() };
+		front = 0;
+		middle = new AtomicInteger(1);
+		back = 2;
+	}
+
+	/** Writer side, the buffer to fill before {@link #publish()}. */
+	@SuppressWarnings("unchecked")
+	public T getWriteBuffer() {
+		return (T) slots[back];
+	}
+
+	/** Writer side, makes the write buffer the newest one. */
+	public void publish() {
+		back = middle.getAndSet(back | FRESH) & INDEX;
+	}
+
+	/** True when a buffer was published since the last {@link #acquire()}. */
+	public boolean hasFresh() {
+		return (middle.get() & FRESH) != 0;
+	}
+
+	/**
+	 * Reader side, returns the newest published buffer, or the previous one
+	 * when nothing new was published. It stays valid until the next call.
+	 */
+	@SuppressWarnings("unchecked")
+	public T acquire() {
+		if ((middle.get() & FRESH) != 0) {
+			front = middle.getAndSet(front) & INDEX;
+		}
+		return (T) slots[front];
+	}
+
+}
@@ -0,0 +1,61 @@
+package com.bzsoft.oworld.util.concurrent.impl;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+import com.bzsoft.oworld.util.concurrent.ThreadPool;
+
+public class ThreadPoolImpl implements ThreadPool {
+
+	private final ForkJoinPool pool;
+
+	public ThreadPoolImpl(int parallelism) {
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	public ThreadPoolImpl() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	@Override
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	@Override
+	public void invokeAll(int n, IntConsumer task) {
+		if (n <= 0) {
+			return;
+		}
+		final ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[n - 1];
+		for (int i = 1; i < n; i++) {
+			final int index = i;
+			tasks[i - 1] = pool.submit(() -> task.accept(index));
+		}
+		RuntimeException error = null;
+		try {
+			task.accept(0);
+		} catch (final RuntimeException e) {
+			error = e;
+		}
+		for (final ForkJoinTask<?> t : tasks) {
+			try {
+				t.join();
+			} catch (final RuntimeException e) {
+				if (error == null) {
+					error = e;
+				}
+			}
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+}
@@ -0,0 +1,163 @@
+package com.bzsoft.oworld.util.render;
+
+import java.util.Arrays;
+
+/**
+ * Orders entries by a primitive long depth key, reusing the order of the
+ * previous call. Entry i is expected to be the same object from one call to
+ * the next, so the previous order is nearly sorted and an insertion sort
+ * fixes it in about n steps. When too many entries moved, e.g. after a
+ * teleport or a new scene, a stable LSD radix sort over the bytes the keys
+ * actually span is used instead. Entries of equal key keep the order of the
+ * previous call, so they do not flicker. No boxing, no comparators, the
+ * arrays are reused.
+ */
+public final class DepthSorter {
+
+	/** Insertion sort shifts allowed per entry before falling back to radix. */
+	private static final int MAX_SHIFTS_PER_ENTRY = 8;
+	private static final int RADIX_BITS = 8;
+	private static final int RADIX = 1 << RADIX_BITS;
+
+	private int[] order;
+	private int size;
+	private long[] sorted;
+	private long[] tmpKeys;
+	private int[] tmpOrder;
+	private final int[] counts;
+	private int radixSorts;
+
+	public DepthSorter() {
+		this(256);
+	}
+
+	public DepthSorter(int capacity) {
+		order = new int[capacity];
+		sorted = new long[capacity];
+		tmpKeys = new long[capacity];
+		tmpOrder = new int[capacity];
+		counts = new int[RADIX];
+	}
+
+	/**
+	 * Sorts entries [0, n) by ascending keys[i] and returns the order, entry
+	 * order[k] is drawn k-th. The returned array is owned by the sorter and
+	 * valid until the next call.
+	 */
+	public int[] sort(long[] keys, int n) {
+		if (order.length < n) {
+			final int capacity = Math.max(n, order.length * 2);
+			order = Arrays.copyOf(order, capacity);
+			sorted = new long[capacity];
+			tmpKeys = new long[capacity];
+			tmpOrder = new int[capacity];
+		}
+		seed(n);
+		for (int k = 0; k < n; k++) {
+			sorted[k] = keys[order[k]];
+		}
+		if (!insertionSort(n, (long) n * MAX_SHIFTS_PER_ENTRY)) {
+			for (int k = 0; k < n; k++) {
+				order[k] = k;
+				sorted[k] = keys[k];
+			}
+			radixSort(n);
+			radixSorts++;
+		}
+		return order;
+	}
+
+	/** Previous order without the entries gone, then the new entries. */
+	private void seed(int n) {
+		int k = 0;
+		for (int p = 0; p < size; p++) {
+			if (order[p] < n) {
+				order[k++] = order[p];
+			}
+		}
+		for (int i = size; i < n; i++) {
+			order[k++] = i;
+		}
+		size = n;
+	}
+
+	private boolean insertionSort(int n, long maxShifts) {
+		long shifts = 0;
+		for (int k = 1; k < n; k++) {
+			final long key = sorted[k];
+			final int idx = order[k];
+			int m = k - 1;
+			while (m >= 0 && sorted[m] > key) {
+				sorted[m + 1] = sorted[m];
+				order[m + 1] = order[m];
+				m--;
+			}
+			order[m + 1] = idx;
+			sorted[m + 1] = key;
+			shifts += k - 1 - m;
+			if (shifts > maxShifts) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Stable LSD radix sort of sorted/order, only over the bits keys differ in. */
+	private void radixSort(int n) {
+		if (n < 2) {
+			return;
+		}
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		for (int k = 0; k < n; k++) {
+			min = Math.min(min, sorted[k]);
+			max = Math.max(max, sorted[k]);
+		}
+		// unsigned offsets from min keep the signed order
+		final long range = max - min;
+		final int bits = 64 - Long.numberOfLeadingZeros(range);
+		long[] srcKeys = sorted;
+		int[] srcOrder = order;
+		long[] dstKeys = tmpKeys;
+		int[] dstOrder = tmpOrder;
+		for (int shift = 0; shift < bits; shift += RADIX_BITS) {
+			Arrays.fill(counts, 0);
+			for (int k = 0; k < n; k++) {
+				counts[(int) ((srcKeys[k] - min) >>> shift) & (RADIX - 1)]++;
+			}
+			int sum = 0;
+			for (int d = 0; d < RADIX; d++) {
+				final int c = counts[d];
+				counts[d] = sum;
+				sum += c;
+			}
+			for (int k = 0; k < n; k++) {
+				final int d = (int) ((srcKeys[k] - min) >>> shift) & (RADIX - 1);
+				final int to = counts[d]++;
+				dstKeys[to] = srcKeys[k];
+				dstOrder[to] = srcOrder[k];
+			}
+			final long[] tk = srcKeys;
+			srcKeys = dstKeys;
+			dstKeys = tk;
+			final int[] to = srcOrder;
+			srcOrder = dstOrder;
+			dstOrder = to;
+		}
+		if (srcKeys != sorted) {
+			System.arraycopy(srcKeys, 0, sorted, 0, n);
+			System.arraycopy(srcOrder, 0, order, 0, n);
+		}
+	}
+
+	/** Calls that fell back to the radix sort. */
+	public int getRadixSorts() {
+		return radixSorts;
+	}
+
+	/** Depth key of a tile depth and a screen y, ordered by depth then y. */
+	public static final long key(int depth, int y) {
+		return (long) depth << 32 | (y ^ Integer.MIN_VALUE) & 0xffffffffL;
+	}
+
+}
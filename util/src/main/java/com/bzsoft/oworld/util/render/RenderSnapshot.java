@@ -0,0 +1,125 @@
+package com.bzsoft.oworld.util.render;
+
+import java.util.Arrays;
+
+/**
+ * Compact state of one simulation tick for the renderer: per entry the frame
+ * key, world position and tile depth. Filled by the simulation thread and sorted
+ * by depth before being published, read only by the render thread afterwards;
+ * see {@link com.bzsoft.oworld.util.concurrent.TripleBuffer}.
+ */
+public final class RenderSnapshot {
+
+	private int size;
+	private int[] frames;
+	private int[] xs;
+	private int[] ys;
+	private int[] zs;
+	private long[] keys;
+	private int[] scratch;
+	private DepthSorter sorter;
+	private long tick;
+	private long time;
+
+	public RenderSnapshot() {
+		this(256);
+	}
+
+	public RenderSnapshot(int capacity) {
+		frames = new int[capacity];
+		xs = new int[capacity];
+		ys = new int[capacity];
+		zs = new int[capacity];
+		keys = new long[capacity];
+		scratch = new int[capacity];
+	}
+
+	/** Starts a new tick, keeps the arrays. */
+	public void clear(long tick, long time) {
+		this.size = 0;
+		this.tick = tick;
+		this.time = time;
+	}
+
+	public void add(int frame, int x, int y, int z) {
+		if (size == frames.length) {
+			final int capacity = size * 2;
+			frames = Arrays.copyOf(frames, capacity);
+			xs = Arrays.copyOf(xs, capacity);
+			ys = Arrays.copyOf(ys, capacity);
+			zs = Arrays.copyOf(zs, capacity);
+			keys = new long[capacity];
+			scratch = new int[capacity];
+		}
+		frames[size] = frame;
+		xs[size] = x;
+		ys[size] = y;
+		zs[size] = z;
+		size++;
+	}
+
+	/** Like {@link #sortByDepth(DepthSorter)} with a sorter of this snapshot. */
+	public void sortByDepth() {
+		if (sorter == null) {
+			sorter = new DepthSorter();
+		}
+		sortByDepth(sorter);
+	}
+
+	/**
+	 * Orders the entries back to front by ascending depth, then screen y. The
+	 * producer should pass the same sorter every tick and add its entities in
+	 * a stable order, the sorter then starts from the previous tick's order.
+	 */
+	public void sortByDepth(DepthSorter sorter) {
+		boolean sorted = true;
+		for (int i = 0; i < size; i++) {
+			keys[i] = DepthSorter.key(zs[i], ys[i]);
+			sorted &= i == 0 || keys[i - 1] <= keys[i];
+		}
+		final int[] order = sorter.sort(keys, size);
+		if (sorted) {
+			return;
+		}
+		permute(order, frames);
+		permute(order, xs);
+		permute(order, ys);
+		permute(order, zs);
+	}
+
+	private void permute(int[] order, int[] a) {
+		for (int i = 0; i < size; i++) {
+			scratch[i] = a[order[i]];
+		}
+		System.arraycopy(scratch, 0, a, 0, size);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getFrame(int i) {
+		return frames[i];
+	}
+
+	public int getX(int i) {
+		return xs[i];
+	}
+
+	public int getY(int i) {
+		return ys[i];
+	}
+
+	public int getZ(int i) {
+		return zs[i];
+	}
+
+	public long getTick() {
+		return tick;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+}
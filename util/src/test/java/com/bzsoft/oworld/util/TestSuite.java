@@ -0,0 +1,13 @@
+package com.bzsoft.oworld.util;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+
+import com.bzsoft.oworld.util.concurrent.TripleBufferTest;
+import com.bzsoft.oworld.util.render.DepthSorterTest;
+
+@RunWith(Suite.class)
+@Suite.SuiteClasses({ TripleBufferTest.class, DepthSorterTest.class })
+public class TestSuite {
+
+}
@@ -0,0 +1,71 @@
+package com.bzsoft.oworld.util.concurrent;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class TripleBufferTest {
+
+	@Test
+	public void readerGetsNewestBuffer() {
+		final TripleBuffer<int[]> tb = new TripleBuffer<>(() -> new int[1]);
+		final int[] first = tb.acquire();
+		assertFalse(tb.hasFresh());
+		tb.getWriteBuffer()[0] = 1;
+		tb.publish();
+		tb.getWriteBuffer()[0] = 2;
+		tb.publish();
+		assertTrue(tb.hasFresh());
+		final int[] b = tb.acquire();
+		assertEquals(2, b[0]);
+		assertFalse(tb.hasFresh());
+		assertSame(b, tb.acquire());
+		assertTrue(b != first);
+	}
+
+	@Test
+	public void writerNeverGetsReaderBuffer() {
+		final TripleBuffer<int[]> tb = new TripleBuffer<>(() -> new int[1]);
+		for (int i = 0; i < 100; i++) {
+			tb.getWriteBuffer()[0] = i;
+			tb.publish();
+			final int[] read = tb.acquire();
+			assertTrue(read != tb.getWriteBuffer());
+			assertEquals(i, read[0]);
+		}
+	}
+
+	@Test(timeout = 30000)
+	public void concurrentHandOffIsNotTornNorLost() throws InterruptedException {
+		final int frames = 200000;
+		final TripleBuffer<int[]> tb = new TripleBuffer<>(() -> new int[64]);
+		final Thread writer = new Thread(() -> {
+			for (int i = 1; i <= frames; i++) {
+				Arrays.fill(tb.getWriteBuffer(), i);
+				tb.publish();
+			}
+		});
+		writer.start();
+		int last = 0;
+		while (last < frames) {
+			final int[] b = tb.acquire();
+			final int v = b[0];
+			for (final int x : b) {
+				assertEquals("torn buffer", v, x);
+			}
+			assertTrue("went back in time", v >= last);
+			last = v;
+			if (!writer.isAlive() && !tb.hasFresh()) {
+				break;
+			}
+		}
+		writer.join();
+		assertEquals("last frame lost", frames, tb.acquire()[0]);
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.bzsoft.oworld.util.render;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DepthSorterTest {
+
+	/** The expected order: by key, equal keys by prev, the order of the previous call. */
+	private static final int[] expected(long[] keys, int n, int[] prev) {
+		final int[] rank = new int[n];
+		Arrays.fill(rank, Integer.MAX_VALUE);
+		for (int k = 0; k < prev.length; k++) {
+			if (prev[k] < n) {
+				rank[prev[k]] = k;
+			}
+		}
+		final Integer[] order = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingLong((Integer i) -> keys[i]).thenComparingInt(i -> rank[i])
+				.thenComparingInt(i -> i));
+		final int[] result = new int[n];
+		for (int i = 0; i < n; i++) {
+			result[i] = order[i];
+		}
+		return result;
+	}
+
+	private static final void assertSorted(long[] keys, int[] order, int n) {
+		for (int k = 1; k < n; k++) {
+			assertTrue(keys[order[k - 1]] <= keys[order[k]]);
+		}
+	}
+
+	@Test
+	public void smallMovesKeepInsertionSort() {
+		final Random rnd = new Random(1);
+		final int n = 1000;
+		final long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = DepthSorter.key(rnd.nextInt(4), rnd.nextInt(100));
+		}
+		final DepthSorter sorter = new DepthSorter();
+		int[] prev = sorter.sort(keys, n).clone();
+		final int radix = sorter.getRadixSorts();
+		for (int frame = 0; frame < 50; frame++) {
+			for (int j = 0; j < 10; j++) {
+				final int i = rnd.nextInt(n);
+				keys[i] += rnd.nextInt(3) - 1;
+			}
+			final int[] order = sorter.sort(keys, n);
+			assertArrayEquals(expected(keys, n, prev), Arrays.copyOf(order, n));
+			prev = Arrays.copyOf(order, n);
+		}
+		assertEquals(radix, sorter.getRadixSorts());
+	}
+
+	@Test
+	public void shuffleFallsBackToStableRadix() {
+		final Random rnd = new Random(2);
+		final int n = 5000;
+		final long[] keys = new long[n];
+		final DepthSorter sorter = new DepthSorter(16);
+		for (int frame = 0; frame < 5; frame++) {
+			for (int i = 0; i < n; i++) {
+				// few distinct keys, negative ones included, many ties
+				keys[i] = DepthSorter.key(rnd.nextInt(3) - 1, rnd.nextInt(20) - 10);
+			}
+			final int before = sorter.getRadixSorts();
+			final int[] order = sorter.sort(keys, n);
+			assertEquals(before + 1, sorter.getRadixSorts());
+			// after the fallback, ties are in entry order
+			assertArrayEquals(expected(keys, n, new int[0]), Arrays.copyOf(order, n));
+		}
+	}
+
+	@Test
+	public void entriesComeAndGo() {
+		final Random rnd = new Random(3);
+		final long[] keys = new long[300];
+		final DepthSorter sorter = new DepthSorter(8);
+		for (int frame = 0; frame < 100; frame++) {
+			final int n = 1 + rnd.nextInt(keys.length);
+			for (int i = 0; i < n; i++) {
+				keys[i] = rnd.nextLong();
+			}
+			final int[] order = sorter.sort(keys, n);
+			assertSorted(keys, order, n);
+			final boolean[] seen = new boolean[n];
+			for (int k = 0; k < n; k++) {
+				assertTrue(!seen[order[k]]);
+				seen[order[k]] = true;
+			}
+		}
+	}
+
+	@Test
+	public void keyOrdersByDepthThenY() {
+		assertTrue(DepthSorter.key(0, 100) < DepthSorter.key(1, -100));
+		assertTrue(DepthSorter.key(-1, 5) < DepthSorter.key(0, -5));
+		assertTrue(DepthSorter.key(2, -1) < DepthSorter.key(2, 0));
+	}
+
+}